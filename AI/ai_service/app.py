@@ -73,6 +73,87 @@ except Exception as e:
     threshold = 0.5
 
 
+def build_fallback_features(df):
+    """
+    Construit les features sans historique (rolling statistics à 0).
+    Utilisé quand un patient a moins de 3 points historiques.
+    """
+    # Créer des features manuelles avec des valeurs par défaut pour la première prédiction
+    # Les rolling statistics seront à 0 (pas de variation)
+    df_feat = df.copy()
+    
+    # Ajouter les features de base sans rolling statistics
+    continuous_vars = ['heart_rate', 'hr_variability', 'steps', 'mood_score',
+                     'sleep_duration_hours', 'sleep_efficiency', 'num_awakenings']
+    
+    # Pour la première prédiction, les deltas et z-scores sont à 0 (pas de variation)
+    for col in continuous_vars:
+        if col in df_feat.columns:
+            df_feat[f"{col}_delta"] = 0.0
+            df_feat[f"{col}_z"] = 0.0
+    
+    # Ajouter les features dérivées
+    if "steps" in df_feat.columns:
+        df_feat["steps_log1p"] = np.log1p(df_feat["steps"])
+    
+    if "num_awakenings" in df_feat.columns and "sleep_duration_hours" in df_feat.columns:
+        df_feat["awakenings_per_hour"] = df_feat["num_awakenings"] / df_feat["sleep_duration_hours"].clip(lower=0.5)
+    
+    if "day_of_week" in df_feat.columns:
+        df_feat["dow_sin"] = np.sin(2 * np.pi * df_feat["day_of_week"] / 7)
+        df_feat["dow_cos"] = np.cos(2 * np.pi * df_feat["day_of_week"] / 7)
+    
+    if "heart_rate" in df_feat.columns and "hr_variability" in df_feat.columns:
+        hrv_clipped = df_feat["hr_variability"].clip(lower=1e-3)
+        df_feat["hr_hrv_ratio"] = df_feat["heart_rate"] / hrv_clipped
+    
+    if "sleep_duration_hours" in df_feat.columns:
+        df_feat["sleep_debt"] = np.maximum(0, 7.5 - df_feat["sleep_duration_hours"])
+    
+    # Définir num_cols et cat_cols pour le cas manuel (identique à preprocessing_supervised.py)
+    num_cols = []
+    for col in continuous_vars:
+        if f"{col}_delta" in df_feat.columns:
+            num_cols.append(f"{col}_delta")
+        if f"{col}_z" in df_feat.columns:
+            num_cols.append(f"{col}_z")
+    
+    if "steps_log1p" in df_feat.columns:
+        num_cols.append("steps_log1p")
+    if "awakenings_per_hour" in df_feat.columns:
+        num_cols.append("awakenings_per_hour")
+    if "hr_hrv_ratio" in df_feat.columns:
+        num_cols.append("hr_hrv_ratio")
+    if "sleep_debt" in df_feat.columns:
+        num_cols.append("sleep_debt")
+    if "age" in df_feat.columns:
+        num_cols.append("age")
+    if "dow_sin" in df_feat.columns:
+        num_cols.append("dow_sin")
+    if "dow_cos" in df_feat.columns:
+        num_cols.append("dow_cos")
+    
+    cat_cols = []
+    for col in ["weekend", "medication_taken", "is_female"]:
+        if col in df_feat.columns:
+            cat_cols.append(col)
+    
+    # Filtrer pour ne garder que les colonnes qui existent
+    num_cols = [col for col in num_cols if col in df_feat.columns]
+    cat_cols = [col for col in cat_cols if col in df_feat.columns]
+    
+    # Rolling statistics calculées par le backend (fenêtre glissante par patient), si fournies
+    if "rolling_features" in df_feat.columns:
+        for idx, rolling in df_feat["rolling_features"].items():
+            if not isinstance(rolling, dict):
+                continue
+            for name, value in rolling.items():
+                if name in num_cols and name.endswith(("_delta", "_z")) and value is not None:
+                    df_feat.at[idx, name] = float(value)
+    
+    return df_feat, num_cols, cat_cols
+
+
 @app.route('/', methods=['GET'])
 def index():
     """Endpoint racine qui affiche les informations du service"""
@@ -123,8 +204,11 @@ def predict():
         "weekend": bool,
         "medication_taken": bool,
         "is_female": bool,
-        "date": string (format: "YYYY-MM-DD")
+        "date": string (format: "YYYY-MM-DD"),
+        "rolling_features": {"heart_rate_delta": float, "heart_rate_z": float, ...} (optionnel)
     }
+    
+    Sans historique, les deltas / z-scores absents de rolling_features valent 0.
     """
     if pipeline is None:
         return jsonify({
@@ -163,7 +247,8 @@ def predict():
             'day_of_week': int(data['day_of_week']),
             'weekend': bool(data['weekend']),
             'medication_taken': bool(data['medication_taken']),
-            'is_female': bool(data['is_female'])
+            'is_female': bool(data['is_female']),
+            'rolling_features': data.get('rolling_features')
         }])
         
         # Feature engineering
@@ -181,69 +266,7 @@ def predict():
             print(f"[INFO] Le modèle nécessite au moins 3 données historiques pour calculer les rolling statistics")
             print(f"[INFO] Solution: Utiliser des valeurs par défaut pour les features manquantes")
             
-            # Créer des features manuelles avec des valeurs par défaut pour la première prédiction
-            # Les rolling statistics seront à 0 (pas de variation)
-            df_feat = df.copy()
-            
-            # Ajouter les features de base sans rolling statistics
-            continuous_vars = ['heart_rate', 'hr_variability', 'steps', 'mood_score',
-                             'sleep_duration_hours', 'sleep_efficiency', 'num_awakenings']
-            
-            # Pour la première prédiction, les deltas et z-scores sont à 0 (pas de variation)
-            for col in continuous_vars:
-                if col in df_feat.columns:
-                    df_feat[f"{col}_delta"] = 0.0
-                    df_feat[f"{col}_z"] = 0.0
-            
-            # Ajouter les features dérivées
-            if "steps" in df_feat.columns:
-                df_feat["steps_log1p"] = np.log1p(df_feat["steps"])
-            
-            if "num_awakenings" in df_feat.columns and "sleep_duration_hours" in df_feat.columns:
-                df_feat["awakenings_per_hour"] = df_feat["num_awakenings"] / df_feat["sleep_duration_hours"].clip(lower=0.5)
-            
-            if "day_of_week" in df_feat.columns:
-                df_feat["dow_sin"] = np.sin(2 * np.pi * df_feat["day_of_week"] / 7)
-                df_feat["dow_cos"] = np.cos(2 * np.pi * df_feat["day_of_week"] / 7)
-            
-            if "heart_rate" in df_feat.columns and "hr_variability" in df_feat.columns:
-                hrv_clipped = df_feat["hr_variability"].clip(lower=1e-3)
-                df_feat["hr_hrv_ratio"] = df_feat["heart_rate"] / hrv_clipped
-            
-            if "sleep_duration_hours" in df_feat.columns:
-                df_feat["sleep_debt"] = np.maximum(0, 7.5 - df_feat["sleep_duration_hours"])
-            
-            # Définir num_cols et cat_cols pour le cas manuel (identique à preprocessing_supervised.py)
-            num_cols = []
-            for col in continuous_vars:
-                if f"{col}_delta" in df_feat.columns:
-                    num_cols.append(f"{col}_delta")
-                if f"{col}_z" in df_feat.columns:
-                    num_cols.append(f"{col}_z")
-            
-            if "steps_log1p" in df_feat.columns:
-                num_cols.append("steps_log1p")
-            if "awakenings_per_hour" in df_feat.columns:
-                num_cols.append("awakenings_per_hour")
-            if "hr_hrv_ratio" in df_feat.columns:
-                num_cols.append("hr_hrv_ratio")
-            if "sleep_debt" in df_feat.columns:
-                num_cols.append("sleep_debt")
-            if "age" in df_feat.columns:
-                num_cols.append("age")
-            if "dow_sin" in df_feat.columns:
-                num_cols.append("dow_sin")
-            if "dow_cos" in df_feat.columns:
-                num_cols.append("dow_cos")
-            
-            cat_cols = []
-            for col in ["weekend", "medication_taken", "is_female"]:
-                if col in df_feat.columns:
-                    cat_cols.append(col)
-            
-            # Filtrer pour ne garder que les colonnes qui existent
-            num_cols = [col for col in num_cols if col in df_feat.columns]
-            cat_cols = [col for col in cat_cols if col in df_feat.columns]
+            df_feat, num_cols, cat_cols = build_fallback_features(df)
             
             print(f"[INFO] Features créées manuellement: {len(num_cols)} num, {len(cat_cols)} cat")
         
@@ -297,6 +320,11 @@ def predict_batch():
             ...
         ]
     }
+    
+    Les prédictions sont renvoyées dans l'ordre des échantillons reçus, chacune
+    avec son patient_id. Les échantillons sans historique suffisant (moins de
+    3 points pour le patient dans le lot) utilisent les mêmes features par
+    défaut que /predict.
     """
     if pipeline is None:
         return jsonify({
@@ -314,18 +342,30 @@ def predict_batch():
         
         # Créer un DataFrame avec tous les échantillons
         df = pd.DataFrame(samples)
+        df['date'] = pd.to_datetime(df['date'])
+        
+        # build_features_patient_centric trie par (patient_id, date) et réindexe:
+        # on garde la permutation pour remettre les résultats dans l'ordre d'entrée
+        order = df.sort_values(by=["patient_id", "date"]).index
         
         # Feature engineering
         df_feat, num_cols, cat_cols = build_features_patient_centric(df, window=7)
+        X = df_feat[num_cols + cat_cols]
+        X.index = order[df_feat.index]
+        
+        # Échantillons sans historique suffisant: features par défaut (comme /predict)
+        missing = df.index.difference(X.index)
+        if len(missing) > 0:
+            df_fallback, _, _ = build_fallback_features(df.loc[missing])
+            X = pd.concat([X, df_fallback[num_cols + cat_cols]])
         
-        if len(df_feat) == 0:
+        X = X.sort_index()
+        
+        if len(X) == 0:
             return jsonify({
                 'error': 'Impossible de créer les features'
             }), 400
         
-        # Sélectionner les features nécessaires
-        X = df_feat[num_cols + cat_cols]
-        
         # Faire les prédictions
         results = predict_with_supervised_model(
             pipeline,
@@ -338,6 +378,7 @@ def predict_batch():
         predictions = []
         for i in range(len(results['scores'])):
             predictions.append({
+                'patient_id': int(df.loc[X.index[i], 'patient_id']),
                 'alert_flag': bool(results['predictions'][i]),
                 'anomaly_score': float(results['scores'][i]),
                 'threshold_used': float(results['threshold_used']),
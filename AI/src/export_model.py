@@ -0,0 +1,132 @@
+"""
+Export du modèle supervisé (HistGradientBoosting) vers un format d'arbres JSON
+lisible par le backend Java (évaluation locale, sans appel HTTP au service Flask).
+
+Format "alert-gbdt" version 1:
+- num_features / scaler_mean / scaler_scale : StandardScaler de la partie numérique
+- cat_features / categories                 : OneHotEncoder (handle_unknown="ignore")
+- baseline                                  : prédiction initiale (log-odds)
+- trees                                     : arbres en tableaux colonnes (feature, threshold,
+                                              left, right, missing_left, value); feature = -1 pour une feuille
+- threshold                                 : seuil tau de supervised_threshold.json
+
+Le script écrit aussi un fichier de parité (features brutes + score attendu calculé par
+le pipeline Python sur data/clinical_alerts.csv) utilisé par le test Java.
+
+Usage:
+    python -m src.export_model --artifacts ../artifacts --data ../data/clinical_alerts.csv
+"""
+
+import argparse
+import json
+from pathlib import Path
+
+import numpy as np
+import pandas as pd
+from joblib import load
+
+try:
+    from .preprocessing_supervised import build_features_patient_centric
+except ImportError:
+    from preprocessing_supervised import build_features_patient_centric
+
+FORMAT_NAME = "alert-gbdt"
+FORMAT_VERSION = 1
+
+
+def _get_transformer(preprocessor, name):
+    for transformer_name, transformer, columns in preprocessor.transformers_:
+        if transformer_name == name:
+            return transformer, list(columns)
+    raise ValueError(f"Transformer '{name}' introuvable dans le preprocessor")
+
+
+def _export_tree(predictor):
+    """Convertit un TreePredictor sklearn en tableaux colonnes."""
+    nodes = predictor.nodes
+    if "is_categorical" in nodes.dtype.names and nodes["is_categorical"].any():
+        raise ValueError("Les splits catégoriels natifs ne sont pas supportés par le format alert-gbdt")
+
+    is_leaf = nodes["is_leaf"].astype(bool)
+    return {
+        "feature": [-1 if leaf else int(f) for leaf, f in zip(is_leaf, nodes["feature_idx"])],
+        "threshold": [0.0 if leaf else float(t) for leaf, t in zip(is_leaf, nodes["num_threshold"])],
+        "left": [int(v) for v in nodes["left"]],
+        "right": [int(v) for v in nodes["right"]],
+        "missing_left": [bool(v) for v in nodes["missing_go_to_left"]],
+        "value": [float(v) if leaf else 0.0 for leaf, v in zip(is_leaf, nodes["value"])],
+    }
+
+
+def export_model(pipeline, tau: float) -> dict:
+    preprocessor = pipeline.named_steps["preprocessor"]
+    classifier = pipeline.named_steps["classifier"]
+
+    if getattr(classifier, "n_trees_per_iteration_", 1) != 1:
+        raise ValueError("Seule la classification binaire est supportée")
+
+    scaler, num_cols = _get_transformer(preprocessor, "num")
+    encoder, cat_cols = _get_transformer(preprocessor, "cat")
+
+    baseline = float(np.ravel(classifier._baseline_prediction)[0])
+    trees = [_export_tree(iteration[0]) for iteration in classifier._predictors]
+
+    return {
+        "format": FORMAT_NAME,
+        "version": FORMAT_VERSION,
+        "threshold": float(tau),
+        "num_features": num_cols,
+        "scaler_mean": [float(v) for v in scaler.mean_],
+        "scaler_scale": [float(v) for v in scaler.scale_],
+        "cat_features": cat_cols,
+        "categories": [[float(c) for c in cats] for cats in encoder.categories_],
+        "baseline": baseline,
+        "trees": trees,
+    }
+
+
+def export_parity_fixture(pipeline, data_path: Path, out_path: Path, max_rows: int):
+    """Features brutes (avant scaler/one-hot) et score attendu pour le test de parité Java."""
+    df_raw = pd.read_csv(data_path)
+    df_feat, num_cols, cat_cols = build_features_patient_centric(df_raw, window=7)
+    X = df_feat[num_cols + cat_cols]
+    if max_rows > 0:
+        X = X.iloc[:max_rows]
+
+    scores = pipeline.predict_proba(X)[:, 1]
+    fixture = X.astype(float).copy()
+    fixture["expected_score"] = scores
+    fixture.to_csv(out_path, index=False, float_format="%.17g")
+    return len(fixture)
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Exporte le modèle supervisé au format alert-gbdt (JSON).")
+    parser.add_argument("--artifacts", default="artifacts", help="Répertoire des artefacts (joblib + seuil)")
+    parser.add_argument("--data", default="data/clinical_alerts.csv", help="CSV utilisé pour le fichier de parité")
+    parser.add_argument("--parity-rows", type=int, default=2000, help="Nombre de lignes de parité (0 = toutes)")
+    args = parser.parse_args()
+
+    artifacts = Path(args.artifacts)
+    pipeline = load(artifacts / "supervised_pipeline.joblib")
+    with open(artifacts / "supervised_threshold.json", "r") as f:
+        tau = json.load(f)["tau"]
+
+    model = export_model(pipeline, tau)
+    model_path = artifacts / "supervised_model.json"
+    with open(model_path, "w") as f:
+        json.dump(model, f, separators=(",", ":"))
+    node_count = sum(len(tree["feature"]) for tree in model["trees"])
+    print(f"[OK] {model_path}: {len(model['trees'])} arbres, {node_count} noeuds")
+
+    data_path = Path(args.data)
+    if data_path.exists():
+        parity_path = artifacts / "supervised_parity.csv"
+        rows = export_parity_fixture(pipeline, data_path, parity_path, args.parity_rows)
+        print(f"[OK] {parity_path}: {rows} lignes")
+    else:
+        print(f"[WARNING] {data_path} introuvable, fichier de parité non généré")
+
+
+if __name__ == "__main__":
+    main()
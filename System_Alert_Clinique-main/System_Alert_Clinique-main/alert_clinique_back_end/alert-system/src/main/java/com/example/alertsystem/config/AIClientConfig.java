@@ -0,0 +1,90 @@
+package com.example.alertsystem.config;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.json.JacksonJsonHttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Transport HTTP du service IA: connexions poolées et keep-alive,
+ * timeouts bornés pour qu'un worker Flask lent ne bloque pas les threads Tomcat.
+ */
+@Configuration
+public class AIClientConfig {
+
+    @Value("${ai.service.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${ai.service.http.max-connections-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${ai.service.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${ai.service.http.read-timeout-ms:10000}")
+    private long readTimeoutMs;
+
+    @Value("${ai.service.http.pool-acquire-timeout-ms:2000}")
+    private long poolAcquireTimeoutMs;
+
+    @Value("${ai.service.http.idle-eviction-seconds:30}")
+    private long idleEvictionSeconds;
+
+    @Value("${ai.service.http.time-to-live-seconds:300}")
+    private long timeToLiveSeconds;
+
+    @Bean
+    public PoolingHttpClientConnectionManager aiConnectionManager() {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+            .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+            .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+            .setTimeToLive(TimeValue.ofSeconds(timeToLiveSeconds))
+            .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+            .build();
+
+        return PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnectionsPerRoute)
+            .setDefaultConnectionConfig(connectionConfig)
+            .build();
+    }
+
+    @Bean
+    public CloseableHttpClient aiHttpClient(@Qualifier("aiConnectionManager") PoolingHttpClientConnectionManager connectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeoutMs))
+            .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+            .build();
+
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofSeconds(idleEvictionSeconds))
+            .build();
+    }
+
+    /**
+     * Les réponses du service IA sont lues avec le JsonMapper partagé de l'application
+     * plutôt qu'avec un mapper créé par le RestTemplate.
+     */
+    @Bean
+    public RestTemplate aiRestTemplate(@Qualifier("aiHttpClient") CloseableHttpClient httpClient, JsonMapper jsonMapper) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        restTemplate.getMessageConverters().replaceAll(converter ->
+            converter instanceof JacksonJsonHttpMessageConverter ? new JacksonJsonHttpMessageConverter(jsonMapper) : converter);
+        return restTemplate;
+    }
+}
@@ -17,6 +17,7 @@ public class CorsConfig {
                         .allowedOriginPatterns("*")  // Utiliser allowedOriginPatterns au lieu de allowedOrigins pour permettre toutes les origines avec credentials
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                         .allowedHeaders("*")
+                        .exposedHeaders("X-Next-Cursor")  // curseur de pagination de GET /api/alertes
                         .allowCredentials(true)
                         .maxAge(3600);
             }
@@ -0,0 +1,12 @@
+package com.example.alertsystem.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active les tâches @Scheduled (purge des jobs IA expirés, ...)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,36 +1,87 @@
 package com.example.alertsystem.controller;
 
+import com.example.alertsystem.dto.AIBatchPredictionResponse;
+import com.example.alertsystem.dto.AIJobResponse;
 import com.example.alertsystem.dto.AIPredictionRequest;
 import com.example.alertsystem.dto.AIPredictionResponse;
 import com.example.alertsystem.dto.AISimplePredictionRequest;
+import com.example.alertsystem.service.AIPredictionJobService;
 import com.example.alertsystem.service.AIService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/ai")
 public class AIController {
     private final AIService aiService;
+    private final AIPredictionJobService jobService;
 
-    public AIController(AIService aiService) {
+    @Value("${ai.jobs.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    public AIController(AIService aiService, AIPredictionJobService jobService) {
         this.aiService = aiService;
+        this.jobService = jobService;
     }
 
     /**
-     * GET /api/ai/health - Vérifie la disponibilité du service IA
+     * GET /api/ai/health - Disponibilité du service IA (état en cache de la sonde périodique)
      */
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> checkHealth() {
-        boolean isHealthy = aiService.checkHealth();
-        Map<String, Object> response = new HashMap<>();
-        response.put("available", isHealthy);
+        Map<String, Object> response = aiService.getHealthStatus();
+        boolean isHealthy = Boolean.TRUE.equals(response.get("available"));
         response.put("message", isHealthy ? "Service IA disponible" : "Service IA indisponible");
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/ai/pool - Occupation du pool de connexions HTTP vers le service IA
+     */
+    @GetMapping("/pool")
+    public ResponseEntity<Map<String, Object>> connectionPool() {
+        return ResponseEntity.ok(aiService.getConnectionPoolStats());
+    }
+
+    /**
+     * GET /api/ai/model - Modèle local (ai.service.mode=local): arbres, noeuds, seuil
+     */
+    @GetMapping("/model")
+    public ResponseEntity<Map<String, Object>> localModel() {
+        return ResponseEntity.ok(aiService.getLocalModelInfo());
+    }
+
+    /**
+     * GET /api/ai/circuit - Etat du disjoncteur (CLOSED/OPEN/HALF_OPEN) et du bulkhead
+     */
+    @GetMapping("/circuit")
+    public ResponseEntity<Map<String, Object>> circuitStats() {
+        return ResponseEntity.ok(aiService.getCircuitStats());
+    }
+
+    /**
+     * GET /api/ai/cache - Statistiques du cache de prédictions (hits, misses, taille)
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        return ResponseEntity.ok(aiService.getCacheStats());
+    }
+
+    /**
+     * DELETE /api/ai/cache - Invalide le cache après un changement d'artefact modèle
+     */
+    @DeleteMapping("/cache")
+    public ResponseEntity<Map<String, Object>> invalidateCache() {
+        aiService.invalidateCache();
+        return ResponseEntity.ok(aiService.getCacheStats());
+    }
+
     /**
      * POST /api/ai/predict - Prédiction avec données complètes
      */
@@ -44,6 +95,19 @@ public class AIController {
         }
     }
 
+    /**
+     * POST /api/ai/predict/batch - Prédictions en lot (un résultat par patient_id, dans l'ordre reçu)
+     */
+    @PostMapping("/predict/batch")
+    public ResponseEntity<AIBatchPredictionResponse> predictBatch(@RequestBody List<AIPredictionRequest> requests) {
+        AIBatchPredictionResponse response = aiService.predictBatch(requests);
+        if (response.getSuccess() != null && response.getSuccess()) {
+            return ResponseEntity.ok(response);
+        } else {
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     /**
      * POST /api/ai/predict/simple - Prédiction simplifiée avec paramètres de base
      */
@@ -56,5 +120,47 @@ public class AIController {
             return ResponseEntity.badRequest().body(response);
         }
     }
-}
 
+    /**
+     * POST /api/ai/predict/async - Soumet une prédiction, renvoie l'identifiant du job (202)
+     */
+    @PostMapping("/predict/async")
+    public ResponseEntity<AIJobResponse> predictAsync(@RequestBody AIPredictionRequest request) {
+        AIPredictionJobService.Job job = jobService.submit(request);
+        if (job == null) {
+            AIJobResponse response = new AIJobResponse();
+            response.setError("File des prédictions asynchrones pleine, réessayer plus tard");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toResponse());
+    }
+
+    /**
+     * GET /api/ai/jobs/{id}?waitMs=... - Etat et résultat d'un job.
+     * Avec waitMs, la réponse attend la fin du job (long-poll, borné par ai.jobs.max-wait-ms)
+     * sans bloquer de thread Tomcat.
+     */
+    @GetMapping("/jobs/{id}")
+    public DeferredResult<ResponseEntity<AIJobResponse>> getJob(@PathVariable String id,
+                                                                @RequestParam(defaultValue = "0") long waitMs) {
+        AIPredictionJobService.Job job = jobService.getJob(id);
+        if (job == null || job.isDone() || waitMs <= 0) {
+            DeferredResult<ResponseEntity<AIJobResponse>> result = new DeferredResult<>();
+            result.setResult(job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job.toResponse()));
+            return result;
+        }
+
+        DeferredResult<ResponseEntity<AIJobResponse>> result = new DeferredResult<>(Math.min(waitMs, maxWaitMs));
+        result.onTimeout(() -> result.setResult(ResponseEntity.ok(job.toResponse())));
+        job.getCompletion().thenAccept(done -> result.setResult(ResponseEntity.ok(done.toResponse())));
+        return result;
+    }
+
+    /**
+     * GET /api/ai/jobs - Occupation du pool des prédictions asynchrones
+     */
+    @GetMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> jobStats() {
+        return ResponseEntity.ok(jobService.getStats());
+    }
+}
@@ -3,27 +3,81 @@ package com.example.alertsystem.controller;
 
 
 import org.springframework.web.bind.annotation.*;
+import com.example.alertsystem.service.AlerteDedupIndex;
 import com.example.alertsystem.service.AlerteService;
+import com.example.alertsystem.service.AlerteStreamService;
 import com.example.alertsystem.entities.Alerte;
 import com.example.alertsystem.dto.AlerteDto;
+import com.example.alertsystem.dto.KeysetPage;
+import org.springframework.format.annotation.DateTimeFormat;
+import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/alertes")
 public class AlerteController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final AlerteService alerteService;
+    private final AlerteStreamService alerteStreamService;
+    private final AlerteDedupIndex alerteDedupIndex;
 
-    public AlerteController(AlerteService alerteService) {
+    public AlerteController(AlerteService alerteService, AlerteStreamService alerteStreamService,
+                            AlerteDedupIndex alerteDedupIndex) {
         this.alerteService = alerteService;
+        this.alerteStreamService = alerteStreamService;
+        this.alerteDedupIndex = alerteDedupIndex;
     }
 
+    /**
+     * GET /api/alertes - alertes les plus récentes d'abord, filtrables par type, patient, médecin
+     * et plage [from, to). Le corps reste une liste, complète si ni limit ni after ne sont
+     * donnés; sinon paginée: quand il reste des résultats, l'en-tête X-Next-Cursor contient la
+     * valeur à passer dans "after" pour la page suivante.
+     */
     @GetMapping
-    public List<AlerteDto> getAllAlertes() { 
-        return alerteService.getAllAlertes().stream()
-            .map(AlerteDto::fromEntity)
-            .collect(Collectors.toList());
+    public ResponseEntity<List<AlerteDto>> getAlertes(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Long patientId,
+            @RequestParam(required = false) Long medecinId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        KeysetPage<AlerteDto> page = alerteService.getPage(type, patientId, medecinId, from, to, after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext_cursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNext_cursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    /**
+     * GET /api/alertes/stream - nouvelles alertes en Server-Sent Events (événements "alerte"),
+     * filtrables par patient et/ou médecin. En reconnexion, le navigateur renvoie Last-Event-ID
+     * et reçoit les alertes manquées, ou un événement "reset" s'il faut recharger la liste.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) Long patientId,
+                             @RequestParam(required = false) Long medecinId,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return alerteStreamService.subscribe(patientId, medecinId, lastEventId);
+    }
+
+    /** GET /api/alertes/stream/stats - abonnés SSE, événements diffusés, rejoués, clients lents */
+    @GetMapping("/stream/stats")
+    public Map<String, Object> getStreamStats() {
+        return alerteStreamService.getStats();
+    }
+
+    /** GET /api/alertes/dedup/stats - alertes ouvertes, occurrences repliées, reports en base */
+    @GetMapping("/dedup/stats")
+    public Map<String, Object> getDedupStats() {
+        return alerteDedupIndex.getStats();
     }
 
     @GetMapping("/{id}")
@@ -35,7 +89,7 @@ public class AlerteController {
     }
 
     @PostMapping
-    public Alerte createAlerte(@RequestBody Alerte alerte) { return alerteService.saveAlerte(alerte); }
+    public AlerteDto createAlerte(@RequestBody Alerte alerte) { return alerteService.saveAlerte(alerte); }
 
     @DeleteMapping("/{id}")
     public void deleteAlerte(@PathVariable Long id) { alerteService.deleteAlerte(id); }
@@ -25,8 +25,16 @@ public class HumeurController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * POST - 200 avec la mesure enregistrée, ou 202 en mode write-behind (écriture en base différée)
+     */
     @PostMapping
-    public Humeur create(@RequestBody Humeur h) { return service.save(h); }
+    public ResponseEntity<Humeur> create(@RequestBody Humeur h) {
+        if (service.appendWriteBehind(h)) {
+            return ResponseEntity.accepted().body(h);
+        }
+        return ResponseEntity.ok(service.save(h));
+    }
 
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Long id) { service.delete(id); }
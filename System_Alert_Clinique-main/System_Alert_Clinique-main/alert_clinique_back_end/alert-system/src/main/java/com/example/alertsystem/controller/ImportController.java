@@ -0,0 +1,74 @@
+package com.example.alertsystem.controller;
+
+import com.example.alertsystem.service.ClinicalCsvImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/import")
+public class ImportController {
+    private final ClinicalCsvImportService importService;
+    private final String adminToken;
+
+    // /api/** est en permitAll: l'accès est contrôlé ici par le token admin (en-tête X-Admin-Token)
+    public ImportController(ClinicalCsvImportService importService,
+                            @Value("${app.admin.token:}") String adminToken) {
+        this.importService = importService;
+        this.adminToken = adminToken;
+    }
+
+    /**
+     * POST /api/admin/import/clinical-csv?source= - Corps text/csv au format data/clinical_alerts.csv
+     * Ex: curl --data-binary @clinical_alerts.csv -H "Content-Type: text/csv" -H "X-Admin-Token: ..." ".../clinical-csv?source=clinique-a"
+     * 202: import lancé (suivi par GET /api/admin/import/{jobId}); 401: token absent ou invalide;
+     * 409: un import est déjà en cours
+     */
+    @PostMapping("/clinical-csv")
+    public ResponseEntity<Map<String, Object>> importClinicalCsv(HttpServletRequest request,
+                                                                 @RequestHeader(value = "X-Admin-Token", required = false) String token,
+                                                                 @RequestParam(defaultValue = "import") String source) throws IOException {
+        if (!isAdmin(token)) {
+            return unauthorized();
+        }
+        ClinicalCsvImportService.Job job = importService.start(request.getInputStream(), source);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Un import est déjà en cours"));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toMap());
+    }
+
+    /**
+     * GET /api/admin/import/{jobId} - Avancement (phase, lignes lues / copiées par table, lignes par seconde)
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> getImport(@PathVariable String jobId,
+                                                         @RequestHeader(value = "X-Admin-Token", required = false) String token) {
+        if (!isAdmin(token)) {
+            return unauthorized();
+        }
+        ClinicalCsvImportService.Job job = importService.getJob(jobId);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job.toMap());
+    }
+
+    /**
+     * Token fourni égal à app.admin.token (comparaison en temps constant); sans token configuré, refusé
+     */
+    private boolean isAdmin(String token) {
+        if (adminToken == null || adminToken.isBlank() || token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ResponseEntity<Map<String, Object>> unauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Token admin absent ou invalide"));
+    }
+}
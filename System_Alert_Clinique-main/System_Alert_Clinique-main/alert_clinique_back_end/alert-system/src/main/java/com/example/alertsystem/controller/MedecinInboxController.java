@@ -0,0 +1,69 @@
+package com.example.alertsystem.controller;
+
+import com.example.alertsystem.dto.KeysetPage;
+import com.example.alertsystem.entities.InboxEntry;
+import com.example.alertsystem.service.MedecinInboxService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/medecins/{medecinId}/inbox")
+public class MedecinInboxController {
+    private final MedecinInboxService inboxService;
+
+    public MedecinInboxController(MedecinInboxService inboxService) {
+        this.inboxService = inboxService;
+    }
+
+    /**
+     * GET /api/medecins/{medecinId}/inbox : alertes du médecin, non lues par défaut
+     * (state=READ pour les lues), pagination par "after" / next_cursor
+     */
+    @GetMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'MEDECIN')")
+    public KeysetPage<InboxEntry> getInbox(@PathVariable Long medecinId,
+                                           @RequestParam(required = false) String state,
+                                           @RequestParam(required = false) String after,
+                                           @RequestParam(required = false) Integer limit) {
+        return inboxService.getPage(medecinId, state, after, limit);
+    }
+
+    /**
+     * GET /api/medecins/{medecinId}/inbox/unread-count : badge (sans requête SQL)
+     */
+    @GetMapping("/unread-count")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MEDECIN')")
+    public Map<String, Object> getUnreadCount(@PathVariable Long medecinId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("medecin_id", medecinId);
+        response.put("unread", inboxService.getUnreadCount(medecinId));
+        return response;
+    }
+
+    /**
+     * PUT /api/medecins/{medecinId}/inbox/{entryId}/read : marque une alerte comme lue
+     */
+    @PutMapping("/{entryId}/read")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MEDECIN')")
+    public ResponseEntity<Void> markRead(@PathVariable Long medecinId, @PathVariable Long entryId) {
+        return inboxService.markRead(medecinId, entryId)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * PUT /api/medecins/{medecinId}/inbox/read : marque toutes les alertes non lues comme lues
+     */
+    @PutMapping("/read")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MEDECIN')")
+    public Map<String, Object> markAllRead(@PathVariable Long medecinId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("medecin_id", medecinId);
+        response.put("marked", inboxService.markAllRead(medecinId));
+        return response;
+    }
+}
@@ -1,10 +1,26 @@
 package com.example.alertsystem.controller;
 
+import com.example.alertsystem.dto.KeysetPage;
+import com.example.alertsystem.dto.RecentRythmes;
+import com.example.alertsystem.dto.RollupSeries;
+import com.example.alertsystem.dto.RythmePoint;
 import com.example.alertsystem.entities.Patient;
+import com.example.alertsystem.entities.VitalRollup;
+import com.example.alertsystem.service.HeartRateCodec;
 import com.example.alertsystem.service.PatientService;
+import com.example.alertsystem.service.RythmeCardiaqueService;
+import com.example.alertsystem.service.RythmeExportService;
+import com.example.alertsystem.service.VitalRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 
 
@@ -12,9 +28,16 @@ import java.util.List;
 @RequestMapping("/api/patients")
 public class PatientController {
     private final PatientService patientService;
+    private final RythmeCardiaqueService rythmeCardiaqueService;
+    private final VitalRollupService rollupService;
+    private final RythmeExportService exportService;
 
-    public PatientController(PatientService patientService) {
+    public PatientController(PatientService patientService, RythmeCardiaqueService rythmeCardiaqueService,
+                             VitalRollupService rollupService, RythmeExportService exportService) {
         this.patientService = patientService;
+        this.rythmeCardiaqueService = rythmeCardiaqueService;
+        this.rollupService = rollupService;
+        this.exportService = exportService;
     }
 
     /**
@@ -37,6 +60,67 @@ public class PatientController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * GET /api/patients/{id}/rythmes?from=&to=&after=&limit= : Rythmes cardiaques du patient
+     * sur [from, to) en ordre chronologique, paginés par curseur (after = next_cursor précédent)
+     */
+    @GetMapping("/{id}/rythmes")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MEDECIN', 'PATIENT')")
+    public KeysetPage<RythmePoint> getRythmes(@PathVariable Long id,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+                                              @RequestParam(required = false) String after,
+                                              @RequestParam(required = false) Integer limit) {
+        return rythmeCardiaqueService.getPageByPatient(id, from, to, after, limit);
+    }
+
+    /**
+     * GET /api/patients/{id}/rythmes/recent?minutes= : Derniers rythmes cardiaques du patient
+     * (fenêtre chaude en mémoire), en colonnes timestamps (epoch millis) / values
+     */
+    @GetMapping("/{id}/rythmes/recent")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MEDECIN', 'PATIENT')")
+    public RecentRythmes getRecentRythmes(@PathVariable Long id, @RequestParam(defaultValue = "15") long minutes) {
+        return rythmeCardiaqueService.getRecent(id, minutes);
+    }
+
+    /**
+     * GET /api/patients/{id}/rythmes/export?from=&to= : Historique complet sur [from, to) au
+     * format binaire HeartRateCodec (application/x-hr-delta), écrit au fil de la lecture en base
+     */
+    @GetMapping("/{id}/rythmes/export")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MEDECIN', 'PATIENT')")
+    public ResponseEntity<StreamingResponseBody> exportRythmes(@PathVariable Long id,
+                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to) {
+        if (patientService.getPatientById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        OffsetDateTime lower = from != null ? from : Instant.EPOCH.atOffset(ZoneOffset.UTC);
+        OffsetDateTime upper = to != null ? to : OffsetDateTime.parse("9999-12-31T23:59:59Z");
+        StreamingResponseBody body = out -> exportService.export(id, lower, upper, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(HeartRateCodec.CONTENT_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rythmes-" + id + ".hrd\"")
+                .body(body);
+    }
+
+    /**
+     * GET /api/patients/{id}/rollups?metric=heart_rate|sleep&from=&to=&points= : Série agrégée
+     * (min, max, moyenne, nombre, dernière valeur) à la résolution la plus grossière donnant
+     * au moins "points" intervalles sur [from, to)
+     */
+    @GetMapping("/{id}/rollups")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MEDECIN', 'PATIENT')")
+    public RollupSeries getRollups(@PathVariable Long id,
+                                   @RequestParam(defaultValue = "heart_rate") String metric,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+                                   @RequestParam(required = false) Integer points) {
+        VitalRollup.Metric rollupMetric = VitalRollup.Metric.valueOf(metric.trim().toUpperCase());
+        return rollupService.getSeries(id, rollupMetric, from, to, points);
+    }
+
     /**
      * POST /api/patients : Création possible seulement par Admin
      */
@@ -27,8 +27,16 @@ public class QualiteSommeilController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * POST - 200 avec la mesure enregistrée, ou 202 en mode write-behind (écriture en base différée)
+     */
     @PostMapping
-    public QualiteSommeil create(@RequestBody QualiteSommeil qs) { return service.save(qs); }
+    public ResponseEntity<QualiteSommeil> create(@RequestBody QualiteSommeil qs) {
+        if (service.appendWriteBehind(qs)) {
+            return ResponseEntity.accepted().body(qs);
+        }
+        return ResponseEntity.ok(service.save(qs));
+    }
 
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Long id) { service.delete(id); }
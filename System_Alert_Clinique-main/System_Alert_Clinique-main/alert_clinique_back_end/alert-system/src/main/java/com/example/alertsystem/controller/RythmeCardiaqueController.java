@@ -2,10 +2,14 @@ package com.example.alertsystem.controller;
 
 
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import com.example.alertsystem.dto.RythmeCardiaqueSample;
 import com.example.alertsystem.service.RythmeCardiaqueService;
 import com.example.alertsystem.entities.RythmeCardiaque;
 import java.util.List;
+import java.util.Map;
 import org.springframework.http.ResponseEntity;
 
 @RestController
@@ -13,6 +17,9 @@ import org.springframework.http.ResponseEntity;
 public class RythmeCardiaqueController {
     private final RythmeCardiaqueService service;
 
+    @Value("${rythmes.batch.max-samples:10000}")
+    private int maxBatchSamples;
+
     public RythmeCardiaqueController(RythmeCardiaqueService service) {
         this.service = service;
     }
@@ -30,6 +37,22 @@ public class RythmeCardiaqueController {
     @PostMapping
     public RythmeCardiaque create(@RequestBody RythmeCardiaque rc) { return service.save(rc); }
 
+    /**
+     * POST /api/rythmes/batch - Insère jusqu'à rythmes.batch.max-samples mesures en un appel
+     * Corps: [{"patient_id": 1, "valeur": 72, "timestamp": "2025-01-01T08:00:00Z"}, ...]
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> createBatch(@RequestBody List<RythmeCardiaqueSample> samples) {
+        if (samples == null || samples.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Aucune mesure fournie"));
+        }
+        if (samples.size() > maxBatchSamples) {
+            return ResponseEntity.status(HttpStatus.CONTENT_TOO_LARGE)
+                .body(Map.of("error", "Trop de mesures (max " + maxBatchSamples + ")"));
+        }
+        return ResponseEntity.ok(service.saveBatch(samples));
+    }
+
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Long id) { service.delete(id); }
 }
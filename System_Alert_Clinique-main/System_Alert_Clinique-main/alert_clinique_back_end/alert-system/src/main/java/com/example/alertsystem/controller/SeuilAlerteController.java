@@ -0,0 +1,49 @@
+package com.example.alertsystem.controller;
+
+import com.example.alertsystem.entities.SeuilAlerte;
+import com.example.alertsystem.service.SeuilAlerteService;
+import com.example.alertsystem.service.ThresholdRuleEngine;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/seuils")
+public class SeuilAlerteController {
+    private final SeuilAlerteService service;
+    private final ThresholdRuleEngine ruleEngine;
+
+    public SeuilAlerteController(SeuilAlerteService service, ThresholdRuleEngine ruleEngine) {
+        this.service = service;
+        this.ruleEngine = ruleEngine;
+    }
+
+    @GetMapping
+    public List<SeuilAlerte> getAll() { return service.getAll(); }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<SeuilAlerte> getById(@PathVariable Long id) {
+        return service.getById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    public SeuilAlerte create(@RequestBody SeuilAlerte seuil) { return service.save(seuil); }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<SeuilAlerte> update(@PathVariable Long id, @RequestBody SeuilAlerte seuil) {
+        return service.update(id, seuil)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{id}")
+    public void delete(@PathVariable Long id) { service.delete(id); }
+
+    /** GET /api/seuils/engine/stats - règles compilées, mesures évaluées, alertes créées */
+    @GetMapping("/engine/stats")
+    public Map<String, Object> getEngineStats() { return ruleEngine.getStats(); }
+}
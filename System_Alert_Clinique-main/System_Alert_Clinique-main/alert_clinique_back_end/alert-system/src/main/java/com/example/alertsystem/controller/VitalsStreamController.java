@@ -0,0 +1,74 @@
+package com.example.alertsystem.controller;
+
+import com.example.alertsystem.service.VitalsStreamIngestionService;
+import com.example.alertsystem.service.VitalsWriteBehindLog;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/vitals")
+public class VitalsStreamController {
+    private final VitalsStreamIngestionService ingestionService;
+    private final VitalsWriteBehindLog writeBehindLog;
+
+    @Value("${vitals.stream.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    public VitalsStreamController(VitalsStreamIngestionService ingestionService, VitalsWriteBehindLog writeBehindLog) {
+        this.ingestionService = ingestionService;
+        this.writeBehindLog = writeBehindLog;
+    }
+
+    /**
+     * POST /api/vitals/stream - Ingestion NDJSON (une mesure JSON par ligne) lue au fil de l'eau
+     * Ex: {"type":"heart_rate","patient_id":1,"valeur":72,"timestamp":"2025-01-01T08:00:00Z"}
+     *     {"type":"sleep","patient_id":1,"duree":420}
+     *     {"type":"mood","patient_id":1,"etat":"fatigué"}
+     * 202: tout le flux est en file d'écriture; 429: écriture en retard, renvoyer à partir
+     * de la ligne lines + 1 après Retry-After; 400: JSON illisible.
+     */
+    @PostMapping("/stream")
+    public ResponseEntity<Map<String, Object>> stream(HttpServletRequest request) throws IOException {
+        VitalsStreamIngestionService.StreamResult result = ingestionService.ingest(request.getInputStream());
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("lines", result.lines());
+        body.put("accepted", result.accepted());
+        body.put("rejected", result.rejected());
+        if (result.error() != null) {
+            body.put("error", result.error());
+            return ResponseEntity.badRequest().body(body);
+        }
+        if (result.throttled()) {
+            body.put("error", "Ingestion saturée, réessayer plus tard");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(body);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(body);
+    }
+
+    /**
+     * GET /api/vitals/stream/stats - File d'écriture et compteurs de l'ingestion en flux
+     */
+    @GetMapping("/stream/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(ingestionService.getStats());
+    }
+
+    /**
+     * GET /api/vitals/write-behind/stats - Journal write-behind de l'humeur et du sommeil
+     */
+    @GetMapping("/write-behind/stats")
+    public ResponseEntity<Map<String, Object>> writeBehindStats() {
+        return ResponseEntity.ok(writeBehindLog.getStats());
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.alertsystem.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class AIBatchPredictionResponse {
+    private Boolean success;
+    private Integer count;
+    private List<PatientPrediction> predictions;
+    private String error;
+
+    /**
+     * Résultat d'un échantillon du lot, dans l'ordre des requêtes reçues
+     */
+    @Data
+    public static class PatientPrediction {
+        private Long patient_id;
+        private Boolean success;
+        private AIPredictionResponse.PredictionData prediction;
+        private String error;
+    }
+}
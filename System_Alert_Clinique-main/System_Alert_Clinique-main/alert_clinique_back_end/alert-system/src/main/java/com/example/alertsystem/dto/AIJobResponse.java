@@ -0,0 +1,15 @@
+package com.example.alertsystem.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class AIJobResponse {
+    private String job_id;
+    private String status; // PENDING, RUNNING, DONE, FAILED
+    private Instant submitted_at;
+    private Instant completed_at;
+    private AIPredictionResponse result;
+    private String error;
+}
@@ -1,7 +1,9 @@
 package com.example.alertsystem.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import java.time.LocalDate;
+import java.util.Map;
 
 @Data
 public class AIPredictionRequest {
@@ -19,5 +21,8 @@ public class AIPredictionRequest {
     private Boolean medication_taken;
     private Boolean is_female;
     private String date; // Format: "YYYY-MM-DD"
+    // Optionnel: {feature}_delta / {feature}_z calculés par PatientFeatureWindow
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Double> rolling_features;
 }
 
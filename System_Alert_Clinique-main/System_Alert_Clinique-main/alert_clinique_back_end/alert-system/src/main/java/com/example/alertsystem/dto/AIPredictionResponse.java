@@ -14,6 +14,8 @@ public class AIPredictionResponse {
         private Double anomaly_score;
         private Double threshold_used;
         private Double confidence;
+        // "model" (service IA) ou "rules" (repli RuleBasedScorer)
+        private String source;
     }
 }
 
@@ -0,0 +1,63 @@
+package com.example.alertsystem.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Réponse brute du service IA Python, désérialisée directement depuis le flux HTTP.
+ * Couvre la forme imbriquée ({"prediction": {...}}), la forme plate (champs à la racine)
+ * et la réponse de /predict/batch ({"predictions": [...]}).
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AIServiceResponse {
+    private Boolean success;
+    private String error;
+    private AIPredictionResponse.PredictionData prediction;
+
+    // Format alternatif: données directement dans la réponse
+    private Boolean alert_flag;
+    private Double anomaly_score;
+    private Double threshold_used;
+    private Double confidence;
+
+    // /predict/batch
+    private List<BatchItem> predictions;
+    private Integer count;
+
+    /**
+     * Données de prédiction quelle que soit la forme de la réponse
+     */
+    public AIPredictionResponse.PredictionData predictionData() {
+        if (prediction != null) {
+            return prediction;
+        }
+        AIPredictionResponse.PredictionData data = new AIPredictionResponse.PredictionData();
+        data.setAlert_flag(alert_flag);
+        data.setAnomaly_score(anomaly_score);
+        data.setThreshold_used(threshold_used);
+        data.setConfidence(confidence);
+        return data;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class BatchItem {
+        private Long patient_id;
+        private Boolean alert_flag;
+        private Double anomaly_score;
+        private Double threshold_used;
+        private Double confidence;
+
+        public AIPredictionResponse.PredictionData predictionData() {
+            AIPredictionResponse.PredictionData data = new AIPredictionResponse.PredictionData();
+            data.setAlert_flag(alert_flag);
+            data.setAnomaly_score(anomaly_score);
+            data.setThreshold_used(threshold_used);
+            data.setConfidence(confidence);
+            return data;
+        }
+    }
+}
@@ -11,6 +11,8 @@ public class AlerteDto {
     private Long patientId;
     private String patientName;
     private Long medecinId;
+    private Integer occurrences;
+    private OffsetDateTime lastSeen;
 
     // Constructeurs
     public AlerteDto() {}
@@ -26,6 +28,14 @@ public class AlerteDto {
         this.medecinId = medecinId;
     }
 
+    public AlerteDto(Long id, String type, String message, OffsetDateTime timestamp,
+                    Long patientId, String patientName, Long medecinId,
+                    Integer occurrences, OffsetDateTime lastSeen) {
+        this(id, type, message, timestamp, patientId, patientName, medecinId);
+        this.occurrences = occurrences;
+        this.lastSeen = lastSeen;
+    }
+
     // Méthode statique pour convertir depuis l'entité Alerte
     public static AlerteDto fromEntity(Alerte alerte) {
         String patientName = "Patient inconnu";
@@ -43,7 +53,9 @@ public class AlerteDto {
             alerte.getTimestamp(),
             patientId,
             patientName,
-            alerte.getMedecin() != null ? alerte.getMedecin().getId() : null
+            alerte.getMedecin() != null ? alerte.getMedecin().getId() : null,
+            alerte.getOccurrences() != null ? alerte.getOccurrences() : 1,
+            alerte.getLastSeen()
         );
     }
 
@@ -68,5 +80,11 @@ public class AlerteDto {
 
     public Long getMedecinId() { return medecinId; }
     public void setMedecinId(Long medecinId) { this.medecinId = medecinId; }
+
+    public Integer getOccurrences() { return occurrences; }
+    public void setOccurrences(Integer occurrences) { this.occurrences = occurrences; }
+
+    public OffsetDateTime getLastSeen() { return lastSeen; }
+    public void setLastSeen(OffsetDateTime lastSeen) { this.lastSeen = lastSeen; }
 }
 
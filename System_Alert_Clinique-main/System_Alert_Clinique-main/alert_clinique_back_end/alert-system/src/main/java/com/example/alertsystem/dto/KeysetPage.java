@@ -0,0 +1,16 @@
+package com.example.alertsystem.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Page d'une pagination par clé (keyset): next_cursor est à renvoyer tel quel dans "after",
+ * null quand il n'y a plus de résultats.
+ */
+@Data
+public class KeysetPage<T> {
+    private List<T> items;
+    private int limit;
+    private String next_cursor;
+}
@@ -0,0 +1,16 @@
+package com.example.alertsystem.dto;
+
+import lombok.Data;
+
+/**
+ * Fenêtre récente de rythme cardiaque en colonnes (aucun objet par mesure):
+ * timestamps[i] (epoch millis) et values[i] vont ensemble, par ordre chronologique.
+ */
+@Data
+public class RecentRythmes {
+    private Long patient_id;
+    private long from;
+    private String source; // "memory" ou "database"
+    private long[] timestamps;
+    private int[] values;
+}
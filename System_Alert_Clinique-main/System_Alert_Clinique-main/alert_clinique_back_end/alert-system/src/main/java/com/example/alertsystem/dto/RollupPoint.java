@@ -0,0 +1,30 @@
+package com.example.alertsystem.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Un intervalle agrégé renvoyé par GET /api/patients/{id}/rollups
+ */
+@Data
+@NoArgsConstructor
+public class RollupPoint {
+    private OffsetDateTime bucket_start;
+    private int min;
+    private int max;
+    private double avg;
+    private long count;
+    private int last;
+
+    // Utilisé par la projection JPQL de VitalRollupRepository
+    public RollupPoint(OffsetDateTime bucketStart, int min, int max, long sum, long count, int last) {
+        this.bucket_start = bucketStart;
+        this.min = min;
+        this.max = max;
+        this.avg = count > 0 ? (double) sum / count : 0;
+        this.count = count;
+        this.last = last;
+    }
+}
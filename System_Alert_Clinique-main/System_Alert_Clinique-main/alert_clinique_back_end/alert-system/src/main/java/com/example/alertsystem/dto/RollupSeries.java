@@ -0,0 +1,15 @@
+package com.example.alertsystem.dto;
+
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Data
+public class RollupSeries {
+    private String metric;
+    private String resolution; // MINUTE, HOUR, DAY
+    private OffsetDateTime from;
+    private OffsetDateTime to;
+    private List<RollupPoint> points;
+}
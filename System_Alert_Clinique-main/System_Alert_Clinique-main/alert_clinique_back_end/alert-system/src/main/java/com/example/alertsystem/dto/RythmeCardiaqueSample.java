@@ -0,0 +1,15 @@
+package com.example.alertsystem.dto;
+
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Une mesure de /api/rythmes/batch (format plat, sans objet patient imbriqué)
+ */
+@Data
+public class RythmeCardiaqueSample {
+    private Long patient_id;
+    private Integer valeur;
+    private OffsetDateTime timestamp; // maintenant si absent
+}
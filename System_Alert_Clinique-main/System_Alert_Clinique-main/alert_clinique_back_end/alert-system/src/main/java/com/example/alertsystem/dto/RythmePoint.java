@@ -0,0 +1,19 @@
+package com.example.alertsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Mesure de rythme cardiaque sans l'entité Patient (projection JPQL)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RythmePoint {
+    private Long id;
+    private int valeur;
+    private OffsetDateTime timestamp;
+}
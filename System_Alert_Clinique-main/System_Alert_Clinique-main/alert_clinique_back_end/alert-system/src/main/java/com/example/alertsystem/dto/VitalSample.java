@@ -0,0 +1,21 @@
+package com.example.alertsystem.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Une ligne NDJSON de POST /api/vitals/stream
+ * type = "heart_rate" (valeur), "sleep" (duree, en minutes) ou "mood" (etat)
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class VitalSample {
+    private String type;
+    private Long patient_id;
+    private Integer valeur;
+    private Integer duree;
+    private String etat;
+    private OffsetDateTime timestamp; // maintenant si absent
+}
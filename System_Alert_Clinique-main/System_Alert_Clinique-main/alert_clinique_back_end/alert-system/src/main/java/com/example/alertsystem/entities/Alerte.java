@@ -5,6 +5,10 @@ import java.time.OffsetDateTime;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_alerte_ts", columnList = "timestamp, id"),
+    @Index(name = "idx_alerte_patient_ts", columnList = "patient_id, timestamp, id")
+})
 public class Alerte {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -14,6 +18,12 @@ public class Alerte {
     private String message;
     private OffsetDateTime timestamp = OffsetDateTime.now();
 
+    // Occurrences repliées sur cette alerte par la déduplication (AlerteDedupIndex)
+    private Integer occurrences = 1;
+
+    @Column(name = "last_seen")
+    private OffsetDateTime lastSeen;
+
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "patient_id")
     private Patient patient;
@@ -38,6 +48,12 @@ public class Alerte {
     public OffsetDateTime getTimestamp() { return timestamp; }
     public void setTimestamp(OffsetDateTime timestamp) { this.timestamp = timestamp; }
 
+    public Integer getOccurrences() { return occurrences; }
+    public void setOccurrences(Integer occurrences) { this.occurrences = occurrences; }
+
+    public OffsetDateTime getLastSeen() { return lastSeen; }
+    public void setLastSeen(OffsetDateTime lastSeen) { this.lastSeen = lastSeen; }
+
     public Patient getPatient() { return patient; }
     public void setPatient(Patient patient) { this.patient = patient; }
 
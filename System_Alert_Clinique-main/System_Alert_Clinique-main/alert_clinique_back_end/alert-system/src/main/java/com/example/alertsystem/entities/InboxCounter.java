@@ -0,0 +1,32 @@
+package com.example.alertsystem.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * Nombre d'alertes non lues d'un médecin, sauvegardé périodiquement depuis les compteurs
+ * mémoire de MedecinInboxService (rechargé au démarrage)
+ */
+@Entity
+@Table(name = "medecin_inbox_counter")
+public class InboxCounter {
+    @Id
+    @Column(name = "medecin_id")
+    private Long medecinId;
+
+    private long unread;
+
+    public InboxCounter() {
+    }
+
+    public InboxCounter(Long medecinId, long unread) {
+        this.medecinId = medecinId;
+        this.unread = unread;
+    }
+
+    // Getters & Setters
+    public Long getMedecinId() { return medecinId; }
+    public void setMedecinId(Long medecinId) { this.medecinId = medecinId; }
+
+    public long getUnread() { return unread; }
+    public void setUnread(long unread) { this.unread = unread; }
+}
@@ -0,0 +1,92 @@
+package com.example.alertsystem.entities;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import java.time.OffsetDateTime;
+
+/**
+ * Entrée de la boîte de réception d'un médecin: copie des colonnes affichées de l'Alerte
+ * (type, message, patient) pour lister la boîte sans jointure, avec l'état lu / non lu.
+ * Supprimée en base avec son médecin ou son alerte (clés étrangères ON DELETE CASCADE).
+ */
+@Entity
+@Table(name = "alerte_inbox",
+       indexes = @Index(name = "idx_inbox_medecin_state_ts", columnList = "medecin_id, state, timestamp, id"),
+       uniqueConstraints = @UniqueConstraint(name = "uk_inbox_medecin_alerte", columnNames = {"medecin_id", "alerte_id"}))
+public class InboxEntry {
+
+    public enum State { UNREAD, READ }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "medecin_id", nullable = false)
+    private Long medecinId;
+
+    @Column(name = "alerte_id", nullable = false)
+    private Long alerteId;
+
+    // Associations en lecture seule, pour les clés étrangères uniquement (ni getter ni JSON)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "medecin_id", insertable = false, updatable = false,
+                foreignKey = @ForeignKey(name = "fk_inbox_medecin"))
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Medecin medecin;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "alerte_id", insertable = false, updatable = false,
+                foreignKey = @ForeignKey(name = "fk_inbox_alerte"))
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Alerte alerte;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private State state = State.UNREAD;
+
+    private OffsetDateTime timestamp;
+
+    private String type;
+    private String message;
+
+    @Column(name = "patient_id")
+    private Long patientId;
+
+    @Column(name = "patient_name")
+    private String patientName;
+
+    @Column(name = "read_at")
+    private OffsetDateTime readAt;
+
+    // Getters & Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getMedecinId() { return medecinId; }
+    public void setMedecinId(Long medecinId) { this.medecinId = medecinId; }
+
+    public Long getAlerteId() { return alerteId; }
+    public void setAlerteId(Long alerteId) { this.alerteId = alerteId; }
+
+    public State getState() { return state; }
+    public void setState(State state) { this.state = state; }
+
+    public OffsetDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(OffsetDateTime timestamp) { this.timestamp = timestamp; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+
+    public String getPatientName() { return patientName; }
+    public void setPatientName(String patientName) { this.patientName = patientName; }
+
+    public OffsetDateTime getReadAt() { return readAt; }
+    public void setReadAt(OffsetDateTime readAt) { this.readAt = readAt; }
+}
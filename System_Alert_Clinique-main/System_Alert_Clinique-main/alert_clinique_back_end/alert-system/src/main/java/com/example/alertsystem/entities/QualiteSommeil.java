@@ -9,7 +9,7 @@ public class QualiteSommeil {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    private int duree;
+    private int duree; // minutes
 
     private OffsetDateTime timestamp = OffsetDateTime.now();
 
@@ -0,0 +1,40 @@
+package com.example.alertsystem.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * Dernière ligne de la table brute déjà intégrée dans vital_rollup, par mesure:
+ * position (transaction d'insertion, id) dans l'ordre de rattrapage
+ */
+@Entity
+@Table(name = "rollup_watermark")
+public class RollupWatermark {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private VitalRollup.Metric metric;
+
+    // Nullable: colonne ajoutée à une table existante par ddl-auto
+    private Long lastXid;
+
+    private long lastId;
+
+    public RollupWatermark() {
+    }
+
+    public RollupWatermark(VitalRollup.Metric metric, long lastXid, long lastId) {
+        this.metric = metric;
+        this.lastXid = lastXid;
+        this.lastId = lastId;
+    }
+
+    // Getters & Setters
+    public VitalRollup.Metric getMetric() { return metric; }
+    public void setMetric(VitalRollup.Metric metric) { this.metric = metric; }
+
+    public Long getLastXid() { return lastXid; }
+    public void setLastXid(Long lastXid) { this.lastXid = lastXid; }
+
+    public long getLastId() { return lastId; }
+    public void setLastId(long lastId) { this.lastId = lastId; }
+}
@@ -4,9 +4,13 @@ import jakarta.persistence.*;
 import java.time.OffsetDateTime;
 
 @Entity
+@Table(indexes = @Index(name = "idx_rythme_patient_ts", columnList = "patient_id, timestamp, id"))
 public class RythmeCardiaque {
+    // Séquence avec allocation par blocs de 50: Hibernate peut regrouper les INSERT en batch JDBC
+    // (impossible avec IDENTITY). allocationSize doit rester égal à l'INCREMENT BY de la séquence.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rythme_cardiaque_seq")
+    @SequenceGenerator(name = "rythme_cardiaque_seq", sequenceName = "rythme_cardiaque_seq", allocationSize = 50)
     private Long id;
 
     private int valeur;
@@ -0,0 +1,77 @@
+package com.example.alertsystem.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * Seuil d'alerte sur une mesure: une valeur hors de [min, max] déclenche une Alerte.
+ * Portée: un patient (patientId), une pathologie (condition du patient) ou tous les
+ * patients si les deux sont vides. Pour une mesure donnée, le seuil le plus spécifique
+ * l'emporte (patient, puis pathologie, puis global).
+ */
+@Entity
+@Table(name = "seuil_alerte")
+public class SeuilAlerte {
+
+    public enum Metrique {
+        HEART_RATE("Rythme cardiaque", "Anomalie de rythme"),
+        SLEEP_HOURS("Durée de sommeil (h)", "Anomalie de sommeil"),
+        MOOD_SCORE("Score d'humeur", "Anomalie d'humeur");
+
+        private final String libelle;
+        private final String typeAlerte;
+
+        Metrique(String libelle, String typeAlerte) {
+            this.libelle = libelle;
+            this.typeAlerte = typeAlerte;
+        }
+
+        public String getLibelle() { return libelle; }
+        public String getTypeAlerte() { return typeAlerte; }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Metrique metrique;
+
+    @Column(name = "patient_id")
+    private Long patientId;
+
+    @Column(name = "\"condition\"")
+    private String condition; // Ex: "Hypertension sévère"
+
+    private Double min;
+    private Double max;
+
+    private String type; // type de l'Alerte créée, sinon celui de la mesure
+
+    private boolean actif = true;
+
+    // Getters & Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Metrique getMetrique() { return metrique; }
+    public void setMetrique(Metrique metrique) { this.metrique = metrique; }
+
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+
+    public String getCondition() { return condition; }
+    public void setCondition(String condition) { this.condition = condition; }
+
+    public Double getMin() { return min; }
+    public void setMin(Double min) { this.min = min; }
+
+    public Double getMax() { return max; }
+    public void setMax(Double max) { this.max = max; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public boolean isActif() { return actif; }
+    public void setActif(boolean actif) { this.actif = actif; }
+}
@@ -0,0 +1,104 @@
+package com.example.alertsystem.entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+
+/**
+ * Agrégat d'une mesure (rythme cardiaque, durée de sommeil) par patient et par intervalle
+ * de temps (minute, heure, jour, en UTC). Alimenté par VitalRollupService.
+ * L'index idx_rollup_series fixe l'ordre des colonnes pour la lecture d'une série,
+ * l'ordre de la clé primaire générée n'étant pas garanti.
+ */
+@Entity
+@Table(name = "vital_rollup",
+       indexes = @Index(name = "idx_rollup_series", columnList = "metric, patient_id, resolution, bucket_start"))
+public class VitalRollup {
+
+    public enum Metric { HEART_RATE, SLEEP }
+
+    public enum Resolution {
+        MINUTE(60), HOUR(3600), DAY(86400);
+
+        private final long seconds;
+
+        Resolution(long seconds) {
+            this.seconds = seconds;
+        }
+
+        public long getSeconds() { return seconds; }
+    }
+
+    @EmbeddedId
+    private Key id;
+
+    private int minValue;
+    private int maxValue;
+    private long sumValue;
+    private long countValue;
+    private int lastValue;
+    private OffsetDateTime lastTimestamp;
+
+    // Getters & Setters
+    public Key getId() { return id; }
+    public void setId(Key id) { this.id = id; }
+
+    public int getMinValue() { return minValue; }
+    public void setMinValue(int minValue) { this.minValue = minValue; }
+
+    public int getMaxValue() { return maxValue; }
+    public void setMaxValue(int maxValue) { this.maxValue = maxValue; }
+
+    public long getSumValue() { return sumValue; }
+    public void setSumValue(long sumValue) { this.sumValue = sumValue; }
+
+    public long getCountValue() { return countValue; }
+    public void setCountValue(long countValue) { this.countValue = countValue; }
+
+    public int getLastValue() { return lastValue; }
+    public void setLastValue(int lastValue) { this.lastValue = lastValue; }
+
+    public OffsetDateTime getLastTimestamp() { return lastTimestamp; }
+    public void setLastTimestamp(OffsetDateTime lastTimestamp) { this.lastTimestamp = lastTimestamp; }
+
+    @Embeddable
+    public static class Key implements Serializable {
+        @Enumerated(EnumType.STRING)
+        @Column(length = 20)
+        private Metric metric;
+
+        private Long patientId;
+
+        @Enumerated(EnumType.STRING)
+        @Column(length = 10)
+        private Resolution resolution;
+
+        private OffsetDateTime bucketStart;
+
+        public Metric getMetric() { return metric; }
+        public void setMetric(Metric metric) { this.metric = metric; }
+
+        public Long getPatientId() { return patientId; }
+        public void setPatientId(Long patientId) { this.patientId = patientId; }
+
+        public Resolution getResolution() { return resolution; }
+        public void setResolution(Resolution resolution) { this.resolution = resolution; }
+
+        public OffsetDateTime getBucketStart() { return bucketStart; }
+        public void setBucketStart(OffsetDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return metric == key.metric && resolution == key.resolution
+                && Objects.equals(patientId, key.patientId) && Objects.equals(bucketStart, key.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(metric, patientId, resolution, bucketStart);
+        }
+    }
+}
@@ -1,12 +1,36 @@
 package com.example.alertsystem.repository;
 
 
+import com.example.alertsystem.dto.AlerteDto;
 import com.example.alertsystem.entities.Alerte;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
 import java.util.List;
 
 public interface AlerteRepository extends JpaRepository<Alerte, Long> {
-    @Query("SELECT a FROM Alerte a LEFT JOIN FETCH a.patient LEFT JOIN FETCH a.medecin")
-    List<Alerte> findAllWithPatient();
+    /**
+     * Alertes filtrées, de la plus récente à la plus ancienne, strictement avant la position
+     * (beforeTs, beforeId). Seules les colonnes d'AlerteDto sont lues (pas d'entité Patient
+     * ni Medecin); parcours des index (timestamp, id) / (patient_id, timestamp, id).
+     */
+    @Query("select new com.example.alertsystem.dto.AlerteDto(a.id, a.type, a.message, a.timestamp, "
+        + "p.id, coalesce(p.name, 'Patient inconnu'), m.id, coalesce(a.occurrences, 1), a.lastSeen) "
+        + "from Alerte a left join a.patient p left join a.medecin m "
+        + "where a.timestamp >= :from and a.timestamp <= :beforeTs "
+        + "and (a.timestamp < :beforeTs or a.id < :beforeId) "
+        + "and (:type is null or a.type = :type) "
+        + "and (:patientId is null or a.patient.id = :patientId) "
+        + "and (:medecinId is null or a.medecin.id = :medecinId) "
+        + "order by a.timestamp desc, a.id desc")
+    List<AlerteDto> findPage(@Param("type") String type,
+                             @Param("patientId") Long patientId,
+                             @Param("medecinId") Long medecinId,
+                             @Param("from") OffsetDateTime from,
+                             @Param("beforeTs") OffsetDateTime beforeTs,
+                             @Param("beforeId") long beforeId,
+                             Limit limit);
 }
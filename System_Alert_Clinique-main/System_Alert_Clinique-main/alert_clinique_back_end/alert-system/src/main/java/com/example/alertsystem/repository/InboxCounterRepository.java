@@ -0,0 +1,7 @@
+package com.example.alertsystem.repository;
+
+import com.example.alertsystem.entities.InboxCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface InboxCounterRepository extends JpaRepository<InboxCounter, Long> {
+}
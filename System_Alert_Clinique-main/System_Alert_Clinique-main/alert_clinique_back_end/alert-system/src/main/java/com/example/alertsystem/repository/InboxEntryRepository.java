@@ -0,0 +1,47 @@
+package com.example.alertsystem.repository;
+
+import com.example.alertsystem.entities.InboxEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface InboxEntryRepository extends JpaRepository<InboxEntry, Long> {
+
+    /**
+     * Entrées d'un médecin dans un état, des plus récentes aux plus anciennes, strictement
+     * avant (beforeTs, beforeId): parcours de l'index (medecin_id, state, timestamp, id)
+     */
+    @Query("select e from InboxEntry e where e.medecinId = :medecinId and e.state = :state "
+        + "and e.timestamp <= :beforeTs and (e.timestamp < :beforeTs or e.id < :beforeId) "
+        + "order by e.timestamp desc, e.id desc")
+    List<InboxEntry> findPage(@Param("medecinId") Long medecinId,
+                              @Param("state") InboxEntry.State state,
+                              @Param("beforeTs") OffsetDateTime beforeTs,
+                              @Param("beforeId") long beforeId,
+                              Limit limit);
+
+    @Modifying
+    @Query("update InboxEntry e set e.state = :read, e.readAt = :now "
+        + "where e.id = :id and e.medecinId = :medecinId and e.state = :unread")
+    int markRead(@Param("medecinId") Long medecinId, @Param("id") Long id, @Param("now") OffsetDateTime now,
+                 @Param("read") InboxEntry.State read, @Param("unread") InboxEntry.State unread);
+
+    @Modifying
+    @Query("update InboxEntry e set e.state = :read, e.readAt = :now "
+        + "where e.medecinId = :medecinId and e.state = :unread")
+    int markAllRead(@Param("medecinId") Long medecinId, @Param("now") OffsetDateTime now,
+                    @Param("read") InboxEntry.State read, @Param("unread") InboxEntry.State unread);
+
+    /**
+     * [medecinId, nombre] des entrées dans l'état donné, par médecin
+     */
+    @Query("select e.medecinId, count(e) from InboxEntry e where e.state = :state group by e.medecinId")
+    List<Object[]> countByMedecin(@Param("state") InboxEntry.State state);
+
+    List<InboxEntry> findByAlerteId(Long alerteId);
+}
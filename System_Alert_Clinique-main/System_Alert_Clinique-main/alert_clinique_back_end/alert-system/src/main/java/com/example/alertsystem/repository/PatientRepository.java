@@ -2,9 +2,39 @@ package com.example.alertsystem.repository;
 
 import com.example.alertsystem.entities.Patient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PatientRepository extends JpaRepository<Patient, Long> {
     Optional<Patient> findByEmail(String email);
+
+    /**
+     * Projection (age, gender) sans charger l'entité ni ses collections
+     */
+    @Query("select p.age as age, p.gender as gender from Patient p where p.id = :id")
+    Optional<Demographics> findDemographicsById(@Param("id") Long id);
+
+    @Query("select p.id from Patient p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Patients dont la pathologie (en minuscules, sans espaces autour) est dans la liste
+     */
+    @Query("select p.id as id, lower(trim(p.condition)) as condition from Patient p "
+        + "where lower(trim(p.condition)) in :conditions")
+    List<PatientCondition> findByNormalizedConditionIn(@Param("conditions") Collection<String> conditions);
+
+    interface Demographics {
+        Integer getAge();
+        String getGender();
+    }
+
+    interface PatientCondition {
+        Long getId();
+        String getCondition();
+    }
 }
 
@@ -1,8 +1,43 @@
 package com.example.alertsystem.repository;
 
 
+import com.example.alertsystem.dto.RythmePoint;
 import com.example.alertsystem.entities.RythmeCardiaque;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
 
 public interface RythmeCardiaqueRepository extends JpaRepository<RythmeCardiaque, Long> {
+
+    /**
+     * Mesures d'un patient triées par (timestamp, id), strictement après la position
+     * (afterTs, afterId) et avant "to". Parcours de l'index (patient_id, timestamp, id)
+     * à partir de la position: le coût ne dépend pas du numéro de page ni de la taille de la table.
+     */
+    @Query("select new com.example.alertsystem.dto.RythmePoint(r.id, r.valeur, r.timestamp) "
+        + "from RythmeCardiaque r "
+        + "where r.patient.id = :patientId and r.timestamp >= :afterTs and r.timestamp < :to "
+        + "and (r.timestamp > :afterTs or r.id > :afterId) "
+        + "order by r.timestamp, r.id")
+    List<RythmePoint> findPageByPatient(@Param("patientId") Long patientId,
+                                        @Param("afterTs") OffsetDateTime afterTs,
+                                        @Param("afterId") long afterId,
+                                        @Param("to") OffsetDateTime to,
+                                        Limit limit);
+
+    /**
+     * Mesures les plus récentes d'un patient depuis "since", de la plus récente à la plus
+     * ancienne (même index, parcouru à l'envers)
+     */
+    @Query("select new com.example.alertsystem.dto.RythmePoint(r.id, r.valeur, r.timestamp) "
+        + "from RythmeCardiaque r "
+        + "where r.patient.id = :patientId and r.timestamp >= :since "
+        + "order by r.timestamp desc, r.id desc")
+    List<RythmePoint> findLatestByPatient(@Param("patientId") Long patientId,
+                                          @Param("since") OffsetDateTime since,
+                                          Limit limit);
 }
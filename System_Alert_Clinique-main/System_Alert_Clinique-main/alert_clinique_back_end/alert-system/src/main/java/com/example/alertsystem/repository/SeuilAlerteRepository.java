@@ -0,0 +1,10 @@
+package com.example.alertsystem.repository;
+
+import com.example.alertsystem.entities.SeuilAlerte;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface SeuilAlerteRepository extends JpaRepository<SeuilAlerte, Long> {
+    List<SeuilAlerte> findByActifTrue();
+}
@@ -0,0 +1,25 @@
+package com.example.alertsystem.repository;
+
+import com.example.alertsystem.dto.RollupPoint;
+import com.example.alertsystem.entities.VitalRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface VitalRollupRepository extends JpaRepository<VitalRollup, VitalRollup.Key> {
+
+    @Query("select new com.example.alertsystem.dto.RollupPoint(r.id.bucketStart, r.minValue, r.maxValue, "
+        + "r.sumValue, r.countValue, r.lastValue) "
+        + "from VitalRollup r "
+        + "where r.id.metric = :metric and r.id.patientId = :patientId and r.id.resolution = :resolution "
+        + "and r.id.bucketStart >= :from and r.id.bucketStart < :to "
+        + "order by r.id.bucketStart")
+    List<RollupPoint> findSeries(@Param("metric") VitalRollup.Metric metric,
+                                 @Param("patientId") Long patientId,
+                                 @Param("resolution") VitalRollup.Resolution resolution,
+                                 @Param("from") OffsetDateTime from,
+                                 @Param("to") OffsetDateTime to);
+}
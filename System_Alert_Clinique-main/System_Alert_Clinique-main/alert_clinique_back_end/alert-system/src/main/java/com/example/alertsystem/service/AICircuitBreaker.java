@@ -0,0 +1,150 @@
+package com.example.alertsystem.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Disjoncteur + bulkhead autour des appels HTTP au service IA.
+ *
+ * CLOSED: les appels passent; après failureThreshold échecs consécutifs le circuit s'ouvre.
+ * OPEN: les appels échouent immédiatement pendant openDurationMs.
+ * HALF_OPEN: un nombre limité d'appels de test passent; un succès referme le circuit,
+ * un échec le rouvre.
+ * Le bulkhead limite en plus le nombre d'appels simultanés vers le service IA.
+ */
+@Component
+public class AICircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+    private final int maxConcurrentCalls;
+    private final long bulkheadWaitMs;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private final Semaphore bulkhead;
+    private final LongAdder rejectedOpen = new LongAdder();
+    private final LongAdder rejectedBulkhead = new LongAdder();
+    private volatile long openedAt;
+
+    public AICircuitBreaker(@Value("${ai.circuit.failure-threshold:5}") int failureThreshold,
+                            @Value("${ai.circuit.open-duration-ms:10000}") long openDurationMs,
+                            @Value("${ai.circuit.half-open-probes:1}") int halfOpenProbes,
+                            @Value("${ai.circuit.max-concurrent-calls:20}") int maxConcurrentCalls,
+                            @Value("${ai.circuit.bulkhead-wait-ms:50}") long bulkheadWaitMs) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMs);
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+        this.bulkheadWaitMs = Math.max(0, bulkheadWaitMs);
+        this.bulkhead = new Semaphore(this.maxConcurrentCalls);
+    }
+
+    /**
+     * Indique si un appel a une chance de passer (sans prendre de place dans le bulkhead)
+     */
+    public boolean isCallPermitted() {
+        return state.get() != State.OPEN || System.nanoTime() - openedAt >= openDurationNanos;
+    }
+
+    /**
+     * Réserve une place pour un appel au service IA.
+     * Renvoie false si le circuit est ouvert, si les appels de test sont déjà pris
+     * ou si le bulkhead est plein: l'appelant doit alors utiliser le repli.
+     * Chaque true doit être suivi de release().
+     */
+    public boolean tryAcquire() {
+        if (state.get() == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                rejectedOpen.increment();
+                return false;
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                halfOpenPermits.set(halfOpenProbes);
+            }
+        }
+        // Place dans le bulkhead d'abord: un appel de test n'est consommé que si l'appel part
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejectedBulkhead.increment();
+            return false;
+        }
+        if (state.get() == State.HALF_OPEN && halfOpenPermits.getAndDecrement() <= 0) {
+            halfOpenPermits.incrementAndGet();
+            bulkhead.release();
+            rejectedOpen.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void release() {
+        bulkhead.release();
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        state.compareAndSet(State.HALF_OPEN, State.CLOSED);
+    }
+
+    public void recordFailure() {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Ouvre le circuit immédiatement (ex: sonde de santé en échec)
+     */
+    public void forceOpen() {
+        open();
+    }
+
+    /**
+     * Ecourte la période d'ouverture: le prochain appel passe en HALF_OPEN (ex: sonde de santé OK)
+     */
+    public void allowProbeNow() {
+        if (state.get() == State.OPEN) {
+            openedAt = System.nanoTime() - openDurationNanos;
+        }
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        state.set(State.OPEN);
+        consecutiveFailures.set(0);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("state", state.get().name());
+        stats.put("consecutiveFailures", consecutiveFailures.get());
+        stats.put("inFlight", maxConcurrentCalls - bulkhead.availablePermits());
+        stats.put("maxConcurrentCalls", maxConcurrentCalls);
+        stats.put("rejectedOpen", rejectedOpen.sum());
+        stats.put("rejectedBulkhead", rejectedBulkhead.sum());
+        return stats;
+    }
+}
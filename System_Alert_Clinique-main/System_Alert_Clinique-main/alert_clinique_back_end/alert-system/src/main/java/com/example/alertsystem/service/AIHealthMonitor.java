@@ -0,0 +1,118 @@
+package com.example.alertsystem.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sonde périodique de GET /health du service Flask.
+ * Le dernier état (disponibilité, modèle chargé, latence, date du dernier changement)
+ * est gardé en mémoire: /api/ai/health le lit sans appel réseau, et AIService
+ * s'en sert pour router les prédictions et piloter le disjoncteur.
+ */
+@Component
+public class AIHealthMonitor {
+    private static final ParameterizedTypeReference<Map<String, Object>> HEALTH_BODY =
+        new ParameterizedTypeReference<>() {
+        };
+
+    /**
+     * Etat immuable publié après chaque sonde
+     */
+    public record Snapshot(boolean available, boolean modelLoaded, long latencyMs, Instant checkedAt,
+                           Instant lastChange, int consecutiveFailures, String error) {
+    }
+
+    private final RestTemplate restTemplate;
+    private final AICircuitBreaker circuitBreaker;
+    private final int failuresBeforeOpen;
+
+    @Value("${ai.service.url:http://localhost:5000}")
+    private String aiServiceUrl;
+
+    @Value("${ai.service.mode:remote}")
+    private String mode;
+
+    // Disponible par défaut tant qu'aucune sonde n'a tourné (checkedAt = null)
+    private volatile Snapshot snapshot = new Snapshot(true, true, -1, null, Instant.now(), 0, null);
+
+    public AIHealthMonitor(@Qualifier("aiRestTemplate") RestTemplate restTemplate,
+                           AICircuitBreaker circuitBreaker,
+                           @Value("${ai.health.failures-before-open:2}") int failuresBeforeOpen) {
+        this.restTemplate = restTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.failuresBeforeOpen = Math.max(1, failuresBeforeOpen);
+    }
+
+    @Scheduled(fixedDelayString = "${ai.health.interval-ms:5000}", initialDelayString = "${ai.health.initial-delay-ms:0}")
+    public void probe() {
+        if ("local".equalsIgnoreCase(mode)) {
+            // Le service Flask n'est pas utilisé en mode local
+            return;
+        }
+        long start = System.nanoTime();
+        boolean available = false;
+        boolean modelLoaded = false;
+        String error = null;
+        try {
+            ResponseEntity<Map<String, Object>> response =
+                restTemplate.exchange(aiServiceUrl + "/health", HttpMethod.GET, null, HEALTH_BODY);
+            available = response.getStatusCode().is2xxSuccessful();
+            Map<String, Object> body = response.getBody();
+            modelLoaded = body != null && Boolean.TRUE.equals(body.get("model_loaded"));
+            if (available && !modelLoaded) {
+                error = "Modèle non chargé";
+            }
+        } catch (Exception e) {
+            error = e.getMessage();
+        }
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        update(available && modelLoaded, modelLoaded, latencyMs, error);
+    }
+
+    private void update(boolean healthy, boolean modelLoaded, long latencyMs, String error) {
+        Snapshot previous = snapshot;
+        Instant now = Instant.now();
+        int failures = healthy ? 0 : previous.consecutiveFailures() + 1;
+        Instant lastChange = previous.available() != healthy || previous.checkedAt() == null ? now : previous.lastChange();
+        snapshot = new Snapshot(healthy, modelLoaded, latencyMs, now, lastChange, failures, error);
+
+        if (healthy) {
+            // Service revenu: inutile d'attendre la fin de la période d'ouverture
+            circuitBreaker.allowProbeNow();
+        } else if (failures >= failuresBeforeOpen) {
+            circuitBreaker.forceOpen();
+        }
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public boolean isAvailable() {
+        return snapshot.available();
+    }
+
+    public Map<String, Object> toMap() {
+        Snapshot current = snapshot;
+        Map<String, Object> status = new HashMap<>();
+        status.put("available", current.available());
+        status.put("modelLoaded", current.modelLoaded());
+        status.put("latencyMs", current.latencyMs());
+        status.put("checkedAt", current.checkedAt());
+        status.put("lastChange", current.lastChange());
+        status.put("consecutiveFailures", current.consecutiveFailures());
+        status.put("error", current.error());
+        return status;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.AIPredictionRequest;
+import com.example.alertsystem.dto.AIPredictionResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache LRU + TTL des prédictions IA.
+ *
+ * La clé est le vecteur de features quantifié à une précision cliniquement utile
+ * (1 bpm, 100 pas, 0.1 h de sommeil, ...) et la génération du modèle: un rafraîchissement
+ * du dashboard sur le même patient ne refait donc pas d'appel au service IA.
+ * La génération change via invalidate() ou dès que le seuil renvoyé par le modèle change.
+ */
+@Component
+public class AIPredictionCache {
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<FeatureKey, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private volatile long generation;
+    private volatile Double lastThreshold;
+
+    public AIPredictionCache(@Value("${ai.cache.enabled:true}") boolean enabled,
+                             @Value("${ai.cache.max-size:10000}") int maxSize,
+                             @Value("${ai.cache.ttl-seconds:30}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FeatureKey, Entry> eldest) {
+                return size() > AIPredictionCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Renvoie une copie de la prédiction en cache, ou null si absente ou expirée
+     */
+    public AIPredictionResponse get(AIPredictionRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        FeatureKey key = FeatureKey.of(request, generation);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.storedAt > ttlNanos) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(entry.response);
+    }
+
+    /**
+     * Met en cache une prédiction réussie du modèle (les scores de repli ne sont pas gardés)
+     */
+    public void put(AIPredictionRequest request, AIPredictionResponse response) {
+        if (!enabled || response == null || !Boolean.TRUE.equals(response.getSuccess()) || response.getPrediction() == null
+                || RuleBasedScorer.SOURCE.equals(response.getPrediction().getSource())) {
+            return;
+        }
+        Double threshold = response.getPrediction().getThreshold_used();
+        if (threshold != null) {
+            Double previous = lastThreshold;
+            lastThreshold = threshold;
+            if (previous != null && !previous.equals(threshold)) {
+                // Nouveau seuil = nouvel artefact modèle côté service IA
+                invalidate();
+            }
+        }
+        FeatureKey key = FeatureKey.of(request, generation);
+        synchronized (entries) {
+            entries.put(key, new Entry(copy(response), System.nanoTime()));
+        }
+    }
+
+    /**
+     * Invalide tout le cache (à appeler quand l'artefact du modèle change)
+     */
+    public void invalidate() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+        invalidations.increment();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", size);
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("invalidations", invalidations.sum());
+        stats.put("modelGeneration", generation);
+        return stats;
+    }
+
+    private static AIPredictionResponse copy(AIPredictionResponse source) {
+        AIPredictionResponse response = new AIPredictionResponse();
+        response.setSuccess(source.getSuccess());
+        response.setError(source.getError());
+        if (source.getPrediction() != null) {
+            AIPredictionResponse.PredictionData prediction = new AIPredictionResponse.PredictionData();
+            prediction.setAlert_flag(source.getPrediction().getAlert_flag());
+            prediction.setAnomaly_score(source.getPrediction().getAnomaly_score());
+            prediction.setThreshold_used(source.getPrediction().getThreshold_used());
+            prediction.setConfidence(source.getPrediction().getConfidence());
+            prediction.setSource(source.getPrediction().getSource());
+            response.setPrediction(prediction);
+        }
+        return response;
+    }
+
+    private record Entry(AIPredictionResponse response, long storedAt) {
+    }
+
+    /**
+     * Vecteur de features quantifié. patient_id et date ne sont pas utilisés par le modèle
+     * (seul day_of_week l'est), ils ne font donc pas partie de la clé.
+     * Les rolling features éventuelles (arrondies à 0.01) en font partie.
+     */
+    private record FeatureKey(long generation, int heartRate, int hrVariability, int steps, int mood,
+                              int sleepDuration, int sleepEfficiency, int awakenings, int age,
+                              int dayOfWeek, int flags, Map<String, Integer> rolling) {
+
+        static FeatureKey of(AIPredictionRequest r, long generation) {
+            int flags = (Boolean.TRUE.equals(r.getWeekend()) ? 1 : 0)
+                | (Boolean.TRUE.equals(r.getMedication_taken()) ? 2 : 0)
+                | (Boolean.TRUE.equals(r.getIs_female()) ? 4 : 0);
+            return new FeatureKey(
+                generation,
+                quantize(r.getHeart_rate(), 1),
+                quantize(r.getHr_variability(), 1),
+                r.getSteps() == null ? Integer.MIN_VALUE : Math.round(r.getSteps() / 100f),
+                quantize(r.getMood_score(), 10),
+                quantize(r.getSleep_duration_hours(), 10),
+                quantize(r.getSleep_efficiency(), 100),
+                r.getNum_awakenings() == null ? Integer.MIN_VALUE : r.getNum_awakenings(),
+                r.getAge() == null ? Integer.MIN_VALUE : r.getAge(),
+                r.getDay_of_week() == null ? Integer.MIN_VALUE : r.getDay_of_week(),
+                flags,
+                quantizeRolling(r.getRolling_features())
+            );
+        }
+
+        private static Map<String, Integer> quantizeRolling(Map<String, Double> rolling) {
+            if (rolling == null || rolling.isEmpty()) {
+                return null;
+            }
+            Map<String, Integer> quantized = new TreeMap<>();
+            rolling.forEach((name, value) -> quantized.put(name, quantize(value, 100)));
+            return quantized;
+        }
+
+        private static int quantize(Double value, int scale) {
+            return value == null ? Integer.MIN_VALUE : (int) Math.round(value * scale);
+        }
+    }
+}
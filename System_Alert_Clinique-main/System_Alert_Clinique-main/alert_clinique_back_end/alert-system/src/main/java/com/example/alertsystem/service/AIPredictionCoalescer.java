@@ -0,0 +1,215 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.AIBatchPredictionResponse;
+import com.example.alertsystem.dto.AIPredictionRequest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Regroupe les appels concurrents à AIService.predict en un seul appel /predict/batch.
+ *
+ * Un thread dispatcher attend la première requête, puis accumule les suivantes pendant
+ * au plus maxWaitMs ou jusqu'à maxBatchSize requêtes. Le lot part sur un pool d'envoi
+ * et chaque appelant reçoit son propre résultat via sa CompletableFuture.
+ *
+ * Un même patient n'apparaît qu'une fois par lot: le service IA calcule les rolling
+ * statistics par patient à l'intérieur d'un lot, deux requêtes du même patient ne
+ * doivent donc pas se servir mutuellement d'historique. Les requêtes ainsi reportées
+ * (carryOver) ne sont manipulées que par le dispatcher et bornées comme la file d'entrée.
+ *
+ * Au plus un lot attend par thread d'envoi: service IA lent, les lots suivants sont refusés
+ * et leurs appelants reçoivent aussitôt une erreur (repli sur les règles) au lieu d'un lot
+ * périmé envoyé bien après leur abandon.
+ */
+class AIPredictionCoalescer {
+    private final Function<List<AIPredictionRequest>, List<AIBatchPredictionResponse.PatientPrediction>> batchSender;
+    private final long maxWaitNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<Pending> queue;
+    // Confiné au thread dispatcher
+    private final Deque<Pending> carryOver = new ArrayDeque<>();
+    private final int maxCarryOver;
+    private final ThreadPoolExecutor senders;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    AIPredictionCoalescer(Function<List<AIPredictionRequest>, List<AIBatchPredictionResponse.PatientPrediction>> batchSender,
+                          long maxWaitMs, int maxBatchSize, int senderThreads) {
+        this.batchSender = batchSender;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.queue = new LinkedBlockingQueue<>(this.maxBatchSize * 16);
+        this.maxCarryOver = this.maxBatchSize * 16;
+        int threads = Math.max(1, senderThreads);
+        this.senders = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threads), runnable -> {
+                Thread thread = new Thread(runnable, "ai-coalescer-sender");
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.dispatcher = new Thread(this::dispatchLoop, "ai-coalescer-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Met la requête en attente du prochain lot.
+     * Renvoie null si la file est pleine ou le coalesceur arrêté: l'appelant fait alors un appel direct.
+     */
+    CompletableFuture<AIBatchPredictionResponse.PatientPrediction> submit(AIPredictionRequest request) {
+        if (!running) {
+            return null;
+        }
+        Pending pending = new Pending(request);
+        return queue.offer(pending) ? pending.future : null;
+    }
+
+    void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+        try {
+            // Le dispatcher échoue lui-même les requêtes qu'il détient (carryOver) en sortant
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        senders.shutdown();
+        // Requêtes arrivées pendant l'arrêt
+        failQueued();
+    }
+
+    private void dispatchLoop() {
+        try {
+            while (running) {
+                List<Pending> batch = collectBatch();
+                if (!batch.isEmpty()) {
+                    send(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            Pending pending;
+            while ((pending = carryOver.pollFirst()) != null) {
+                pending.future.complete(error(pending.request, "Service de prédiction arrêté"));
+            }
+            failQueued();
+        }
+    }
+
+    private void failQueued() {
+        List<Pending> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Pending pending : remaining) {
+            pending.future.complete(error(pending.request, "Service de prédiction arrêté"));
+        }
+    }
+
+    private List<Pending> collectBatch() throws InterruptedException {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        Set<Long> patients = new HashSet<>();
+        List<Pending> deferred = new ArrayList<>();
+
+        // Les requêtes reportées au lot précédent passent en premier
+        while (!carryOver.isEmpty() && batch.size() < maxBatchSize) {
+            add(carryOver.pollFirst(), batch, patients, deferred);
+        }
+        if (batch.isEmpty()) {
+            add(queue.take(), batch, patients, deferred);
+        }
+
+        long deadline = System.nanoTime() + maxWaitNanos;
+        // Reports pleins: les requêtes restent dans la file bornée (submit refuse au-delà)
+        while (batch.size() < maxBatchSize && carryOver.size() + deferred.size() < maxCarryOver) {
+            long remaining = deadline - System.nanoTime();
+            Pending next;
+            try {
+                next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            } catch (InterruptedException e) {
+                // Arrêt: le lot déjà retiré de la file part quand même (reports échoués en sortant)
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (next == null) {
+                break;
+            }
+            add(next, batch, patients, deferred);
+        }
+
+        for (int i = deferred.size() - 1; i >= 0; i--) {
+            carryOver.addFirst(deferred.get(i));
+        }
+        return batch;
+    }
+
+    private void add(Pending pending, List<Pending> batch, Set<Long> patients, List<Pending> deferred) {
+        Long patientId = pending.request.getPatient_id();
+        if (patientId != null && !patients.add(patientId)) {
+            deferred.add(pending);
+        } else {
+            batch.add(pending);
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        try {
+            senders.execute(() -> complete(batch));
+        } catch (RejectedExecutionException e) {
+            for (Pending pending : batch) {
+                if (running) {
+                    // Pool d'envoi saturé: l'appelant se replie tout de suite
+                    pending.future.completeExceptionally(e);
+                } else {
+                    pending.future.complete(error(pending.request, "Service de prédiction arrêté"));
+                }
+            }
+        }
+    }
+
+    private void complete(List<Pending> batch) {
+        List<AIPredictionRequest> samples = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            samples.add(pending.request);
+        }
+        try {
+            List<AIBatchPredictionResponse.PatientPrediction> results = batchSender.apply(samples);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            for (Pending pending : batch) {
+                pending.future.complete(error(pending.request, "Erreur lors de la prédiction groupée: " + e.getMessage()));
+            }
+        }
+    }
+
+    private static AIBatchPredictionResponse.PatientPrediction error(AIPredictionRequest request, String message) {
+        AIBatchPredictionResponse.PatientPrediction result = new AIBatchPredictionResponse.PatientPrediction();
+        result.setPatient_id(request.getPatient_id());
+        result.setSuccess(false);
+        result.setError(message);
+        return result;
+    }
+
+    private static final class Pending {
+        private final AIPredictionRequest request;
+        private final CompletableFuture<AIBatchPredictionResponse.PatientPrediction> future = new CompletableFuture<>();
+
+        private Pending(AIPredictionRequest request) {
+            this.request = request;
+        }
+    }
+}
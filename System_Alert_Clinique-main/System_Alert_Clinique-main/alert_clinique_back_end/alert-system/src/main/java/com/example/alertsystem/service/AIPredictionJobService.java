@@ -0,0 +1,176 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.AIJobResponse;
+import com.example.alertsystem.dto.AIPredictionRequest;
+import com.example.alertsystem.dto.AIPredictionResponse;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prédictions IA asynchrones: le thread HTTP rend un identifiant de job tout de suite,
+ * le scoring tourne sur un pool dédié et borné, et le résultat reste consultable
+ * jusqu'à ai.jobs.ttl-seconds après la fin du job.
+ */
+@Service
+public class AIPredictionJobService {
+    public enum Status { PENDING, RUNNING, DONE, FAILED }
+
+    private final AIService aiService;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxStoredJobs;
+    private final LongAdder rejected = new LongAdder();
+
+    public AIPredictionJobService(AIService aiService,
+                                  @Value("${ai.jobs.threads:4}") int threads,
+                                  @Value("${ai.jobs.queue-capacity:200}") int queueCapacity,
+                                  @Value("${ai.jobs.ttl-seconds:300}") long ttlSeconds,
+                                  @Value("${ai.jobs.max-stored:10000}") int maxStoredJobs) {
+        this.aiService = aiService;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.maxStoredJobs = Math.max(1, maxStoredJobs);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                Thread thread = new Thread(runnable, "ai-job-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Soumet une prédiction. Renvoie null si la file du pool ou le stockage des jobs est plein.
+     */
+    public Job submit(AIPredictionRequest request) {
+        if (jobs.size() >= maxStoredJobs) {
+            rejected.increment();
+            return null;
+        }
+        Job job = new Job(UUID.randomUUID().toString());
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, request));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            rejected.increment();
+            return null;
+        }
+        return job;
+    }
+
+    private void run(Job job, AIPredictionRequest request) {
+        job.status = Status.RUNNING;
+        try {
+            AIPredictionResponse response = aiService.predict(request);
+            job.complete(Boolean.TRUE.equals(response.getSuccess()) ? Status.DONE : Status.FAILED, response);
+        } catch (Exception e) {
+            AIPredictionResponse response = new AIPredictionResponse();
+            response.setSuccess(false);
+            response.setError("Erreur lors de la prédiction asynchrone: " + e.getMessage());
+            job.complete(Status.FAILED, response);
+        }
+    }
+
+    public Job getJob(String id) {
+        Job job = jobs.get(id);
+        if (job != null && job.isExpired(System.currentTimeMillis(), ttlMillis)) {
+            jobs.remove(id);
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * Purge périodique des jobs terminés et expirés
+     */
+    @Scheduled(fixedDelayString = "${ai.jobs.cleanup-interval-ms:30000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.isExpired(now, ttlMillis));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("stored", jobs.size());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("completed", executor.getCompletedTaskCount());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    public static final class Job {
+        private final String id;
+        private final Instant submittedAt = Instant.now();
+        private final CompletableFuture<Job> completion = new CompletableFuture<>();
+        private volatile Status status = Status.PENDING;
+        private volatile Instant completedAt;
+        private volatile AIPredictionResponse result;
+
+        Job(String id) {
+            this.id = id;
+        }
+
+        void complete(Status finalStatus, AIPredictionResponse response) {
+            result = response;
+            completedAt = Instant.now();
+            status = finalStatus;
+            completion.complete(this);
+        }
+
+        boolean isExpired(long now, long ttlMillis) {
+            Instant done = completedAt;
+            return done != null && now - done.toEpochMilli() > ttlMillis;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isDone() {
+            return completion.isDone();
+        }
+
+        /**
+         * Complété quand le job se termine (pour le long-poll)
+         */
+        public CompletableFuture<Job> getCompletion() {
+            return completion;
+        }
+
+        public AIJobResponse toResponse() {
+            AIJobResponse response = new AIJobResponse();
+            response.setJob_id(id);
+            response.setStatus(status.name());
+            response.setSubmitted_at(submittedAt);
+            response.setCompleted_at(completedAt);
+            AIPredictionResponse current = result;
+            response.setResult(current);
+            if (current != null && !Boolean.TRUE.equals(current.getSuccess())) {
+                response.setError(current.getError());
+            }
+            return response;
+        }
+    }
+}
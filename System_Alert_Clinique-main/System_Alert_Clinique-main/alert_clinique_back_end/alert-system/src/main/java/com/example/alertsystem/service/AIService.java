@@ -1,9 +1,15 @@
 package com.example.alertsystem.service;
 
+import com.example.alertsystem.dto.AIBatchPredictionResponse;
 import com.example.alertsystem.dto.AIPredictionRequest;
 import com.example.alertsystem.dto.AIPredictionResponse;
+import com.example.alertsystem.dto.AIServiceResponse;
 import com.example.alertsystem.dto.AISimplePredictionRequest;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -12,41 +18,206 @@ import org.springframework.web.client.RestClientException;
 
 import java.time.LocalDate;
 import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class AIService {
     private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
-    private final PatientService patientService;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final PatientDemographicsCache demographicsCache;
+    private final AIPredictionCache predictionCache;
+    private final AICircuitBreaker circuitBreaker;
+    private final RuleBasedScorer ruleBasedScorer;
+    private final LocalAIPredictor localPredictor;
+    private final PatientFeatureWindow featureWindow;
+    private final AIHealthMonitor healthMonitor;
     
     @Value("${ai.service.url:http://localhost:5000}")
     private String aiServiceUrl;
 
-    public AIService(PatientService patientService) {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
-        this.patientService = patientService;
+    @Value("${ai.service.batch-size:200}")
+    private int batchSize;
+
+    @Value("${ai.service.coalescing.enabled:false}")
+    private boolean coalescingEnabled;
+
+    @Value("${ai.service.coalescing.max-wait-ms:5}")
+    private long coalescingMaxWaitMs;
+
+    @Value("${ai.service.coalescing.max-batch-size:32}")
+    private int coalescingMaxBatchSize;
+
+    @Value("${ai.service.coalescing.sender-threads:4}")
+    private int coalescingSenderThreads;
+
+    @Value("${ai.service.coalescing.wait-timeout-ms:12000}")
+    private long coalescingWaitTimeoutMs;
+
+    private AIPredictionCoalescer coalescer;
+
+    public AIService(PatientDemographicsCache demographicsCache,
+                     AIPredictionCache predictionCache,
+                     AICircuitBreaker circuitBreaker,
+                     RuleBasedScorer ruleBasedScorer,
+                     LocalAIPredictor localPredictor,
+                     PatientFeatureWindow featureWindow,
+                     AIHealthMonitor healthMonitor,
+                     @Qualifier("aiRestTemplate") RestTemplate restTemplate,
+                     @Qualifier("aiConnectionManager") PoolingHttpClientConnectionManager connectionManager) {
+        this.restTemplate = restTemplate;
+        this.connectionManager = connectionManager;
+        this.demographicsCache = demographicsCache;
+        this.predictionCache = predictionCache;
+        this.circuitBreaker = circuitBreaker;
+        this.ruleBasedScorer = ruleBasedScorer;
+        this.localPredictor = localPredictor;
+        this.featureWindow = featureWindow;
+        this.healthMonitor = healthMonitor;
+    }
+
+    @PostConstruct
+    void startCoalescer() {
+        if (coalescingEnabled) {
+            coalescer = new AIPredictionCoalescer(this::sendBatch, coalescingMaxWaitMs,
+                coalescingMaxBatchSize, coalescingSenderThreads);
+        }
+    }
+
+    @PreDestroy
+    void stopCoalescer() {
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
     }
 
     /**
-     * Vérifie si le service IA est disponible
+     * Vérifie si le service IA est disponible (toujours vrai en mode local avec modèle chargé).
+     * Lit le dernier état de AIHealthMonitor, sans appel réseau.
      */
     public boolean checkHealth() {
-        try {
-            String url = aiServiceUrl + "/health";
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-            return response.getStatusCode().is2xxSuccessful();
-        } catch (RestClientException e) {
-            return false;
-        }
+        return localPredictor.isEnabled() || healthMonitor.isAvailable();
     }
 
     /**
-     * Fait une prédiction avec toutes les données requises
+     * Dernier état de la sonde de santé, mode de prédiction et état du disjoncteur
+     */
+    public Map<String, Object> getHealthStatus() {
+        Map<String, Object> status = healthMonitor.toMap();
+        status.put("available", checkHealth());
+        status.put("mode", localPredictor.isEnabled() ? "local" : "remote");
+        status.put("circuit", circuitBreaker.getState().name());
+        return status;
+    }
+
+    /**
+     * Occupation du pool de connexions vers le service IA
+     */
+    public Map<String, Object> getConnectionPoolStats() {
+        PoolStats stats = connectionManager.getTotalStats();
+        Map<String, Object> pool = new HashMap<>();
+        pool.put("leased", stats.getLeased());
+        pool.put("available", stats.getAvailable());
+        pool.put("pending", stats.getPending());
+        pool.put("max", stats.getMax());
+        pool.put("routes", connectionManager.getRoutes().size());
+        return pool;
+    }
+
+    /**
+     * Fait une prédiction avec toutes les données requises.
+     * Une requête déjà scorée (à la précision du cache près) est servie depuis le cache.
+     * En mode coalescing, la requête est regroupée avec les appels concurrents
+     * dans un seul appel /predict/batch.
      */
     public AIPredictionResponse predict(AIPredictionRequest request) {
+        AIPredictionResponse cached = predictionCache.get(request);
+        if (cached != null) {
+            return cached;
+        }
+        AIPredictionResponse response = predictUncached(request);
+        predictionCache.put(request, response);
+        return response;
+    }
+
+    private AIPredictionResponse predictUncached(AIPredictionRequest request) {
+        if (localPredictor.isEnabled()) {
+            return localPredictor.predict(request);
+        }
+        if (!healthMonitor.isAvailable() && localPredictor.isAvailable()) {
+            // Service Flask signalé indisponible par la sonde: relais sur le modèle local
+            return localPredictor.predict(request);
+        }
+        if (!circuitBreaker.isCallPermitted()) {
+            // Circuit ouvert: inutile d'attendre un paquet qui ne sera pas envoyé
+            return ruleFallback(request);
+        }
+        if (coalescer != null) {
+            CompletableFuture<AIBatchPredictionResponse.PatientPrediction> future = coalescer.submit(request);
+            if (future != null) {
+                AIBatchPredictionResponse.PatientPrediction result;
+                try {
+                    result = future.get(coalescingWaitTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException | ExecutionException e) {
+                    // Lot bloqué (service IA lent) ou refusé (pool d'envoi saturé): l'appelant n'attend pas plus
+                    return ruleFallback(request);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return ruleFallback(request);
+                }
+                AIPredictionResponse response = new AIPredictionResponse();
+                response.setSuccess(result.getSuccess());
+                response.setPrediction(result.getPrediction());
+                response.setError(result.getError());
+                return response;
+            }
+        }
+        return predictRemote(request);
+    }
+
+    /**
+     * Etat du disjoncteur et du bulkhead vers le service IA
+     */
+    public Map<String, Object> getCircuitStats() {
+        return circuitBreaker.getStats();
+    }
+
+    /**
+     * Modèle évalué dans la JVM (ai.service.mode=local)
+     */
+    public Map<String, Object> getLocalModelInfo() {
+        return localPredictor.getModelInfo();
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return predictionCache.getStats();
+    }
+
+    /**
+     * Vide le cache des prédictions (nouvel artefact modèle déployé)
+     */
+    public void invalidateCache() {
+        predictionCache.invalidate();
+    }
+
+    /**
+     * Appel direct de /predict pour une seule requête.
+     * Si le disjoncteur refuse l'appel ou si le service IA est en panne (5xx, connexion,
+     * timeout), la prédiction est calculée par le RuleBasedScorer (source = "rules").
+     */
+    private AIPredictionResponse predictRemote(AIPredictionRequest request) {
+        if (!circuitBreaker.tryAcquire()) {
+            return ruleFallback(request);
+        }
         try {
             String url = aiServiceUrl + "/predict";
             
@@ -55,114 +226,259 @@ public class AIService {
             
             HttpEntity<AIPredictionRequest> entity = new HttpEntity<>(request, headers);
             
-            // Récupérer la réponse comme String pour pouvoir la parser manuellement
-            ResponseEntity<String> stringResponse = restTemplate.exchange(
+            // Désérialisation typée directement depuis le flux HTTP (ni String ni Map intermédiaires)
+            ResponseEntity<AIServiceResponse> rawResponse = restTemplate.exchange(
                 url,
                 HttpMethod.POST,
                 entity,
-                String.class
+                AIServiceResponse.class
             );
+            circuitBreaker.recordSuccess();
             
-            if (stringResponse.getStatusCode().is2xxSuccessful() && stringResponse.getBody() != null) {
-                // Parser la réponse JSON manuellement
-                @SuppressWarnings("unchecked")
-                Map<String, Object> responseMap = (Map<String, Object>) objectMapper.readValue(
-                    stringResponse.getBody(), 
-                    Map.class
-                );
-                
+            AIServiceResponse body = rawResponse.getBody();
+            if (rawResponse.getStatusCode().is2xxSuccessful() && body != null) {
                 AIPredictionResponse response = new AIPredictionResponse();
                 
                 // Vérifier si c'est une réponse d'erreur
-                if (responseMap.containsKey("error")) {
+                if (body.getError() != null) {
                     response.setSuccess(false);
-                    response.setError((String) responseMap.get("error"));
+                    response.setError(body.getError());
                     return response;
                 }
                 
-                // Extraire les données de prédiction
-                if (responseMap.containsKey("prediction")) {
-                    Map<String, Object> predictionMap = (Map<String, Object>) responseMap.get("prediction");
-                    AIPredictionResponse.PredictionData predictionData = new AIPredictionResponse.PredictionData();
-                    
-                    if (predictionMap.containsKey("alert_flag")) {
-                        predictionData.setAlert_flag((Boolean) predictionMap.get("alert_flag"));
-                    }
-                    if (predictionMap.containsKey("anomaly_score")) {
-                        Object scoreObj = predictionMap.get("anomaly_score");
-                        if (scoreObj instanceof Number) {
-                            predictionData.setAnomaly_score(((Number) scoreObj).doubleValue());
-                        }
-                    }
-                    if (predictionMap.containsKey("threshold_used")) {
-                        Object thresholdObj = predictionMap.get("threshold_used");
-                        if (thresholdObj instanceof Number) {
-                            predictionData.setThreshold_used(((Number) thresholdObj).doubleValue());
-                        }
-                    }
-                    if (predictionMap.containsKey("confidence")) {
-                        Object confidenceObj = predictionMap.get("confidence");
-                        if (confidenceObj instanceof Number) {
-                            predictionData.setConfidence(((Number) confidenceObj).doubleValue());
-                        }
-                    }
-                    
-                    response.setSuccess(true);
-                    response.setPrediction(predictionData);
-                } else {
-                    // Format alternatif: données directement dans la réponse
-                    AIPredictionResponse.PredictionData predictionData = new AIPredictionResponse.PredictionData();
-                    
-                    if (responseMap.containsKey("alert_flag")) {
-                        predictionData.setAlert_flag((Boolean) responseMap.get("alert_flag"));
-                    }
-                    if (responseMap.containsKey("anomaly_score")) {
-                        Object scoreObj = responseMap.get("anomaly_score");
-                        if (scoreObj instanceof Number) {
-                            predictionData.setAnomaly_score(((Number) scoreObj).doubleValue());
-                        }
-                    }
-                    
-                    response.setSuccess(true);
-                    response.setPrediction(predictionData);
-                }
-                
+                // Forme imbriquée ("prediction") ou plate (champs à la racine)
+                response.setSuccess(true);
+                response.setPrediction(modelPrediction(body.predictionData()));
                 return response;
             } else {
                 AIPredictionResponse errorResponse = new AIPredictionResponse();
                 errorResponse.setSuccess(false);
-                errorResponse.setError("Erreur lors de la prédiction: Status " + stringResponse.getStatusCode());
+                errorResponse.setError("Erreur lors de la prédiction: Status " + rawResponse.getStatusCode());
                 return errorResponse;
             }
         } catch (org.springframework.web.client.HttpClientErrorException e) {
-            // Erreur 4xx (Bad Request, etc.)
+            // Erreur 4xx (Bad Request, etc.): la requête est en cause, pas le service IA
+            circuitBreaker.recordSuccess();
             AIPredictionResponse errorResponse = new AIPredictionResponse();
             errorResponse.setSuccess(false);
             errorResponse.setError("Erreur du service IA (HTTP " + e.getStatusCode() + "): " + e.getResponseBodyAsString());
             return errorResponse;
         } catch (org.springframework.web.client.HttpServerErrorException e) {
-            // Erreur 5xx (Internal Server Error, etc.)
-            AIPredictionResponse errorResponse = new AIPredictionResponse();
-            errorResponse.setSuccess(false);
-            errorResponse.setError("Erreur serveur IA (HTTP " + e.getStatusCode() + "): " + e.getResponseBodyAsString());
-            return errorResponse;
+            // Erreur 5xx (Internal Server Error, modèle non chargé, etc.)
+            circuitBreaker.recordFailure();
+            return ruleFallback(request);
         } catch (RestClientException e) {
-            // Erreur de connexion
-            AIPredictionResponse errorResponse = new AIPredictionResponse();
-            errorResponse.setSuccess(false);
-            errorResponse.setError("Impossible de se connecter au service IA (" + aiServiceUrl + "): " + e.getMessage());
-            return errorResponse;
+            // Erreur de connexion ou timeout
+            circuitBreaker.recordFailure();
+            return ruleFallback(request);
         } catch (Exception e) {
             // Autres erreurs
+            circuitBreaker.recordFailure();
             AIPredictionResponse errorResponse = new AIPredictionResponse();
             errorResponse.setSuccess(false);
             errorResponse.setError("Erreur lors de la prédiction IA: " + e.getMessage());
             return errorResponse;
+        } finally {
+            circuitBreaker.release();
         }
     }
 
     /**
-     * Fait une prédiction simplifiée avec des valeurs par défaut pour les champs manquants
+     * Prédiction de repli par règles, marquée source = "rules"
+     */
+    private AIPredictionResponse ruleFallback(AIPredictionRequest request) {
+        AIPredictionResponse response = new AIPredictionResponse();
+        response.setSuccess(true);
+        response.setPrediction(ruleBasedScorer.score(request));
+        return response;
+    }
+
+    private static AIPredictionResponse.PredictionData modelPrediction(AIPredictionResponse.PredictionData prediction) {
+        prediction.setSource("model");
+        return prediction;
+    }
+
+    /**
+     * Fait des prédictions en lot via /predict/batch.
+     * Les requêtes sont découpées en paquets d'au plus ai.service.batch-size échantillons
+     * (sans séparer l'historique d'un patient tant qu'il tient dans un paquet) et chaque
+     * résultat est rattaché au patient_id de sa requête, dans l'ordre d'entrée.
+     * Reste un appel distant même en mode local: les rolling statistics du lot
+     * sont calculées par le service Python.
+     */
+    public AIBatchPredictionResponse predictBatch(List<AIPredictionRequest> requests) {
+        AIBatchPredictionResponse response = new AIBatchPredictionResponse();
+        if (requests == null || requests.isEmpty()) {
+            response.setSuccess(false);
+            response.setCount(0);
+            response.setPredictions(List.of());
+            response.setError("Aucun échantillon fourni");
+            return response;
+        }
+
+        AIBatchPredictionResponse.PatientPrediction[] results =
+            new AIBatchPredictionResponse.PatientPrediction[requests.size()];
+        String firstError = null;
+
+        for (List<Integer> chunk : partitionByPatient(requests)) {
+            List<AIPredictionRequest> samples = new ArrayList<>(chunk.size());
+            for (Integer index : chunk) {
+                samples.add(requests.get(index));
+            }
+            List<AIBatchPredictionResponse.PatientPrediction> chunkResults = sendBatch(samples);
+            for (int i = 0; i < chunk.size(); i++) {
+                AIBatchPredictionResponse.PatientPrediction result = chunkResults.get(i);
+                results[chunk.get(i)] = result;
+                if (firstError == null && !Boolean.TRUE.equals(result.getSuccess())) {
+                    firstError = result.getError();
+                }
+            }
+        }
+
+        response.setSuccess(firstError == null);
+        response.setError(firstError);
+        response.setCount(results.length);
+        response.setPredictions(Arrays.asList(results));
+        return response;
+    }
+
+    /**
+     * Regroupe les index des requêtes par patient puis remplit des paquets bornés.
+     * Les rolling statistics étant calculées par patient à l'intérieur d'un lot,
+     * on évite de couper l'historique d'un patient entre deux paquets.
+     */
+    private List<List<Integer>> partitionByPatient(List<AIPredictionRequest> requests) {
+        int maxChunk = Math.max(1, batchSize);
+        Map<Long, List<Integer>> byPatient = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            byPatient.computeIfAbsent(requests.get(i).getPatient_id(), id -> new ArrayList<>()).add(i);
+        }
+
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> current = new ArrayList<>(maxChunk);
+        for (List<Integer> group : byPatient.values()) {
+            if (!current.isEmpty() && current.size() + group.size() > maxChunk) {
+                chunks.add(current);
+                current = new ArrayList<>(maxChunk);
+            }
+            // Un patient avec plus d'échantillons qu'un paquet est découpé en paquets pleins
+            for (int start = 0; start < group.size(); start += maxChunk) {
+                List<Integer> slice = group.subList(start, Math.min(group.size(), start + maxChunk));
+                if (current.size() + slice.size() > maxChunk) {
+                    chunks.add(current);
+                    current = new ArrayList<>(maxChunk);
+                }
+                current.addAll(slice);
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    /**
+     * Envoie un paquet à /predict/batch et renvoie un résultat par échantillon.
+     * En cas d'erreur, chaque échantillon du paquet porte le message d'erreur;
+     * si le service IA est indisponible, chaque échantillon est scoré par règles.
+     */
+    private List<AIBatchPredictionResponse.PatientPrediction> sendBatch(List<AIPredictionRequest> samples) {
+        if (!circuitBreaker.tryAcquire()) {
+            return batchRuleFallback(samples);
+        }
+        try {
+            String url = aiServiceUrl + "/predict/batch";
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+
+            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(Map.of("samples", samples), headers);
+
+            ResponseEntity<AIServiceResponse> rawResponse = restTemplate.exchange(
+                url,
+                HttpMethod.POST,
+                entity,
+                AIServiceResponse.class
+            );
+            circuitBreaker.recordSuccess();
+
+            AIServiceResponse body = rawResponse.getBody();
+            if (!rawResponse.getStatusCode().is2xxSuccessful() || body == null) {
+                return batchError(samples, "Erreur lors de la prédiction batch: Status " + rawResponse.getStatusCode());
+            }
+            if (body.getError() != null) {
+                return batchError(samples, body.getError());
+            }
+
+            List<AIServiceResponse.BatchItem> predictions = body.getPredictions();
+            if (predictions == null || predictions.size() != samples.size()) {
+                return batchError(samples, "Réponse batch incomplète: " + (predictions == null ? 0 : predictions.size())
+                    + " prédictions pour " + samples.size() + " échantillons");
+            }
+
+            List<AIBatchPredictionResponse.PatientPrediction> results = new ArrayList<>(samples.size());
+            for (int i = 0; i < samples.size(); i++) {
+                AIServiceResponse.BatchItem item = predictions.get(i);
+                Long patientId = samples.get(i).getPatient_id();
+                Long returnedId = item.getPatient_id();
+
+                AIBatchPredictionResponse.PatientPrediction result = new AIBatchPredictionResponse.PatientPrediction();
+                result.setPatient_id(patientId);
+                if (returnedId != null && patientId != null && !returnedId.equals(patientId)) {
+                    result.setSuccess(false);
+                    result.setError("Résultat batch associé au patient " + returnedId + " au lieu de " + patientId);
+                } else {
+                    result.setSuccess(true);
+                    result.setPrediction(modelPrediction(item.predictionData()));
+                }
+                results.add(result);
+            }
+            return results;
+        } catch (org.springframework.web.client.HttpClientErrorException e) {
+            circuitBreaker.recordSuccess();
+            return batchError(samples, "Erreur du service IA (HTTP " + e.getStatusCode() + "): " + e.getResponseBodyAsString());
+        } catch (org.springframework.web.client.HttpServerErrorException e) {
+            circuitBreaker.recordFailure();
+            return batchRuleFallback(samples);
+        } catch (RestClientException e) {
+            circuitBreaker.recordFailure();
+            return batchRuleFallback(samples);
+        } catch (Exception e) {
+            circuitBreaker.recordFailure();
+            return batchError(samples, "Erreur lors de la prédiction batch IA: " + e.getMessage());
+        } finally {
+            circuitBreaker.release();
+        }
+    }
+
+    private List<AIBatchPredictionResponse.PatientPrediction> batchRuleFallback(List<AIPredictionRequest> samples) {
+        List<AIBatchPredictionResponse.PatientPrediction> results = new ArrayList<>(samples.size());
+        for (AIPredictionRequest sample : samples) {
+            AIBatchPredictionResponse.PatientPrediction result = new AIBatchPredictionResponse.PatientPrediction();
+            result.setPatient_id(sample.getPatient_id());
+            result.setSuccess(true);
+            result.setPrediction(ruleBasedScorer.score(sample));
+            results.add(result);
+        }
+        return results;
+    }
+
+    private List<AIBatchPredictionResponse.PatientPrediction> batchError(List<AIPredictionRequest> samples, String error) {
+        List<AIBatchPredictionResponse.PatientPrediction> results = new ArrayList<>(samples.size());
+        for (AIPredictionRequest sample : samples) {
+            AIBatchPredictionResponse.PatientPrediction result = new AIBatchPredictionResponse.PatientPrediction();
+            result.setPatient_id(sample.getPatient_id());
+            result.setSuccess(false);
+            result.setError(error);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Fait une prédiction simplifiée avec des valeurs par défaut pour les champs manquants.
+     * Les dernières mesures connues du patient (PatientFeatureWindow) remplacent les valeurs
+     * par défaut, et ses rolling statistics sont envoyées avec la requête.
      */
     public AIPredictionResponse predictSimple(AISimplePredictionRequest simpleRequest) {
         try {
@@ -170,17 +486,14 @@ public class AIService {
             Integer age = simpleRequest.getAge();
             String gender = simpleRequest.getGender();
             
-            // Essayer de récupérer les informations du patient depuis la base de données
+            // Compléter avec l'âge et le genre du patient (cache mémoire, base au premier accès)
             if ((age == null || gender == null) && simpleRequest.getPatientId() != null) {
-                var patientOpt = patientService.getPatientById(simpleRequest.getPatientId().longValue());
-                if (patientOpt.isPresent()) {
-                    var patient = patientOpt.get();
-                    if (age == null && patient.getAge() != null) {
-                        age = patient.getAge();
-                    }
-                    if (gender == null && patient.getGender() != null) {
-                        gender = patient.getGender();
-                    }
+                int demographics = demographicsCache.lookup(simpleRequest.getPatientId());
+                if (age == null) {
+                    age = PatientDemographicsCache.age(demographics);
+                }
+                if (gender == null) {
+                    gender = PatientDemographicsCache.gender(demographics);
                 }
             }
             
@@ -195,17 +508,25 @@ public class AIService {
             final Integer finalAge = age;
             final String finalGender = gender;
             
+            // Valeurs réelles: saisies dans la requête, sinon dernière mesure du patient
+            Long patientId = simpleRequest.getPatientId();
+            Double heartRate = simpleRequest.getHeartRate() != null ? simpleRequest.getHeartRate()
+                : featureWindow.latest(patientId, PatientFeatureWindow.Metric.HEART_RATE);
+            Double sleepHours = simpleRequest.getSleepDurationHours() != null ? simpleRequest.getSleepDurationHours()
+                : featureWindow.latest(patientId, PatientFeatureWindow.Metric.SLEEP_DURATION);
+            Double moodScore = simpleRequest.getMoodScore() != null ? simpleRequest.getMoodScore()
+                : featureWindow.latest(patientId, PatientFeatureWindow.Metric.MOOD);
+            
             // Convertir la requête simple en requête complète
             AIPredictionRequest fullRequest = new AIPredictionRequest();
-            fullRequest.setPatient_id(simpleRequest.getPatientId());
-            fullRequest.setHeart_rate(simpleRequest.getHeartRate());
+            fullRequest.setPatient_id(patientId);
+            fullRequest.setHeart_rate(heartRate);
             fullRequest.setHr_variability(simpleRequest.getHrVariability() != null ? 
                 simpleRequest.getHrVariability() : 50.0);
             fullRequest.setSteps(simpleRequest.getSteps() != null ? 
                 simpleRequest.getSteps() : 5000);
-            fullRequest.setMood_score(simpleRequest.getMoodScore() != null ? 
-                simpleRequest.getMoodScore() : 5.0);
-            fullRequest.setSleep_duration_hours(simpleRequest.getSleepDurationHours());
+            fullRequest.setMood_score(moodScore != null ? moodScore : 5.0);
+            fullRequest.setSleep_duration_hours(sleepHours);
             fullRequest.setSleep_efficiency(simpleRequest.getSleepEfficiency() != null ? 
                 simpleRequest.getSleepEfficiency() : 85.0);
             fullRequest.setNum_awakenings(simpleRequest.getNumAwakenings() != null ? 
@@ -223,6 +544,13 @@ public class AIService {
             fullRequest.setIs_female("F".equalsIgnoreCase(finalGender));
             fullRequest.setDate(today.toString());
             
+            // Rolling statistics des métriques réellement mesurées (pas des valeurs par défaut)
+            Map<PatientFeatureWindow.Metric, Double> current = new EnumMap<>(PatientFeatureWindow.Metric.class);
+            current.put(PatientFeatureWindow.Metric.HEART_RATE, heartRate);
+            current.put(PatientFeatureWindow.Metric.SLEEP_DURATION, sleepHours);
+            current.put(PatientFeatureWindow.Metric.MOOD, moodScore);
+            fullRequest.setRolling_features(featureWindow.rollingFeatures(patientId, today, current));
+            
             return predict(fullRequest);
         } catch (Exception e) {
             AIPredictionResponse errorResponse = new AIPredictionResponse();
@@ -0,0 +1,267 @@
+package com.example.alertsystem.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Index mémoire des alertes ouvertes par (patient, médecin, type), pour la déduplication.
+ *
+ * Une alerte du même type pour le même patient et le même médecin (ou sans médecin, pour les
+ * alertes du moteur de seuils) moins de window-seconds après l'ouverture de la précédente
+ * n'est pas insérée: elle incrémente le compteur d'occurrences et la date de dernière
+ * occurrence de l'alerte ouverte. L'alerte d'un autre médecin n'est jamais repliée: elle garde
+ * sa propre ligne et son entrée de boîte de réception. Les compteurs sont reportés en base
+ * par lots toutes les flush-interval-ms (colonnes occurrences / last_seen). Deux alertes
+ * identiques simultanées peuvent encore créer deux lignes: la plus récente devient l'alerte
+ * ouverte.
+ */
+@Component
+public class AlerteDedupIndex {
+    private static final String FLUSH_SQL = "UPDATE alerte SET occurrences = COALESCE(occurrences, 1) + ?, "
+        + "last_seen = GREATEST(COALESCE(last_seen, timestamp), ?) WHERE id = ?";
+
+    /**
+     * Clé de déduplication: patient, médecin (null pour le moteur de seuils) et type d'alerte
+     */
+    public record Key(Long patientId, Long medecinId, String type) {
+        boolean isComplete() {
+            return patientId != null && type != null;
+        }
+    }
+
+    /**
+     * Alerte ouverte au moment du repli d'une occurrence
+     */
+    public record Folded(long alerteId, OffsetDateTime openedAt, int occurrences, OffsetDateTime lastSeen) {
+    }
+
+    private static final class OpenAlerte {
+        final long alerteId;
+        final OffsetDateTime openedAt;
+        final OffsetDateTime expiresAt;
+        int occurrences = 1;
+        int pending;
+        OffsetDateTime lastSeen;
+        boolean closed;
+
+        OpenAlerte(long alerteId, OffsetDateTime openedAt, Duration window) {
+            this.alerteId = alerteId;
+            this.openedAt = openedAt;
+            this.expiresAt = openedAt.plus(window);
+            this.lastSeen = openedAt;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Duration window;
+    private final Map<Key, OpenAlerte> index = new ConcurrentHashMap<>();
+    // Alertes sorties de l'index (fenêtre expirée ou remplacées) avec des occurrences à reporter
+    private final Queue<OpenAlerte> retired = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder folded = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+
+    public AlerteDedupIndex(JdbcTemplate jdbcTemplate,
+                            @Value("${alertes.dedup.enabled:true}") boolean enabled,
+                            @Value("${alertes.dedup.window-seconds:300}") long windowSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled && windowSeconds > 0;
+        this.window = Duration.ofSeconds(Math.max(0, windowSeconds));
+    }
+
+    /**
+     * Replie l'occurrence sur l'alerte ouverte (patient, médecin, type) si elle est dans sa
+     * fenêtre; renvoie null s'il faut insérer une nouvelle alerte. Dans une transaction, le
+     * compteur d'occurrences n'est incrémenté qu'après son commit (rien au rollback) et
+     * l'alerte renvoyée porte les valeurs qu'elle aura alors.
+     */
+    public Folded fold(Key key, OffsetDateTime timestamp) {
+        if (!enabled || !key.isComplete()) {
+            return null;
+        }
+        OpenAlerte open = index.get(key);
+        if (open == null || !timestamp.isBefore(open.expiresAt)) {
+            return null;
+        }
+        synchronized (open) {
+            if (open.closed) {
+                return null;
+            }
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                count(open, timestamp);
+                return new Folded(open.alerteId, open.openedAt, open.occurrences, open.lastSeen);
+            }
+            Folded folded = new Folded(open.alerteId, open.openedAt, open.occurrences + 1,
+                timestamp.isAfter(open.lastSeen) ? timestamp : open.lastSeen);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    synchronized (open) {
+                        count(open, timestamp);
+                        // Sortie de l'index entre-temps: l'occurrence est quand même reportée
+                        if (open.closed) {
+                            retired.add(open);
+                        }
+                    }
+                }
+            });
+            return folded;
+        }
+    }
+
+    // Appelé sous le verrou de l'alerte ouverte
+    private void count(OpenAlerte open, OffsetDateTime timestamp) {
+        open.occurrences++;
+        open.pending++;
+        if (timestamp.isAfter(open.lastSeen)) {
+            open.lastSeen = timestamp;
+        }
+        folded.increment();
+    }
+
+    /**
+     * Enregistre une alerte insérée comme alerte ouverte de (patient, médecin, type); dans une
+     * transaction, seulement après son commit
+     */
+    public void open(Key key, long alerteId, OffsetDateTime timestamp) {
+        if (!enabled || !key.isComplete()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    register(key, alerteId, timestamp);
+                }
+            });
+        } else {
+            register(key, alerteId, timestamp);
+        }
+    }
+
+    private void register(Key key, long alerteId, OffsetDateTime timestamp) {
+        OpenAlerte fresh = new OpenAlerte(alerteId, timestamp, window);
+        index.compute(key, (k, current) -> {
+            if (current != null && !current.openedAt.isBefore(timestamp)) {
+                return current;
+            }
+            if (current != null) {
+                retire(current);
+            }
+            return fresh;
+        });
+        opened.increment();
+    }
+
+    private void retire(OpenAlerte open) {
+        synchronized (open) {
+            open.closed = true;
+            if (open.pending > 0) {
+                retired.add(open);
+            }
+        }
+    }
+
+    /**
+     * Reporte en base les occurrences repliées et sort de l'index les alertes dont la
+     * fenêtre est passée
+     */
+    @Scheduled(fixedDelayString = "${alertes.dedup.flush-interval-ms:5000}")
+    public void flush() {
+        OffsetDateTime now = OffsetDateTime.now();
+        for (Iterator<Map.Entry<Key, OpenAlerte>> it = index.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, OpenAlerte> entry = it.next();
+            if (!now.isBefore(entry.getValue().expiresAt) && index.remove(entry.getKey(), entry.getValue())) {
+                retire(entry.getValue());
+            }
+        }
+
+        List<OpenAlerte> alertes = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        OpenAlerte done;
+        while ((done = retired.poll()) != null) {
+            take(done, alertes, counts, updates);
+        }
+        for (OpenAlerte open : index.values()) {
+            take(open, alertes, counts, updates);
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, updates);
+            flushedRows.add(updates.size());
+        } catch (RuntimeException e) {
+            // Base indisponible: les occurrences seront reportées au prochain passage
+            flushFailures.increment();
+            for (int i = 0; i < alertes.size(); i++) {
+                OpenAlerte open = alertes.get(i);
+                synchronized (open) {
+                    open.pending += counts.get(i);
+                    if (open.closed) {
+                        retired.add(open);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void take(OpenAlerte open, List<OpenAlerte> alertes, List<Integer> counts, List<Object[]> updates) {
+        synchronized (open) {
+            if (open.pending == 0) {
+                return;
+            }
+            alertes.add(open);
+            counts.add(open.pending);
+            updates.add(new Object[] {open.pending, Timestamp.from(open.lastSeen.toInstant()), open.alerteId});
+            open.pending = 0;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("windowSeconds", window.getSeconds());
+        stats.put("openAlerts", index.size());
+        stats.put("opened", opened.sum());
+        stats.put("folded", folded.sum());
+        stats.put("flushedRows", flushedRows.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        return stats;
+    }
+}
@@ -2,24 +2,141 @@ package com.example.alertsystem.service;
 
 
 
+import com.example.alertsystem.dto.AlerteDto;
+import com.example.alertsystem.dto.KeysetPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.example.alertsystem.repository.AlerteRepository;
+import com.example.alertsystem.repository.PatientRepository;
 import com.example.alertsystem.entities.Alerte;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class AlerteService {
+    // Bornes par défaut de la plage de temps (timestamptz PostgreSQL)
+    private static final OffsetDateTime MIN_TIMESTAMP = Instant.EPOCH.atOffset(ZoneOffset.UTC);
+    private static final OffsetDateTime MAX_TIMESTAMP = OffsetDateTime.parse("9999-12-31T23:59:59Z");
+
     private final AlerteRepository alerteRepository;
+    private final PatientRepository patientRepository;
+    private final AlerteStreamService alerteStreamService;
+    private final AlerteDedupIndex dedupIndex;
+    private final MedecinInboxService inboxService;
+
+    @Value("${alertes.page.default-limit:100}")
+    private int defaultPageLimit;
+
+    @Value("${alertes.page.max-limit:1000}")
+    private int maxPageLimit;
 
-    public AlerteService(AlerteRepository alerteRepository) {
+    public AlerteService(AlerteRepository alerteRepository, PatientRepository patientRepository,
+                         AlerteStreamService alerteStreamService, AlerteDedupIndex dedupIndex,
+                         MedecinInboxService inboxService) {
         this.alerteRepository = alerteRepository;
+        this.patientRepository = patientRepository;
+        this.alerteStreamService = alerteStreamService;
+        this.dedupIndex = dedupIndex;
+        this.inboxService = inboxService;
     }
 
-    public List<Alerte> getAllAlertes() { 
-        return alerteRepository.findAllWithPatient(); 
+    /**
+     * Alertes sur [from, to), des plus récentes aux plus anciennes, limit lignes après le
+     * curseur "after" (next_cursor de la page précédente). Une ligne de plus est lue pour
+     * savoir s'il reste des résultats. Sans limit ni after, toutes les alertes du filtre sont
+     * renvoyées en une fois (comportement attendu par les clients web et mobile existants).
+     */
+    public KeysetPage<AlerteDto> getPage(String type, Long patientId, Long medecinId,
+                                         OffsetDateTime from, OffsetDateTime to, String after, Integer limit) {
+        int pageSize = limit == null ? defaultPageLimit : Math.min(Math.max(1, limit), maxPageLimit);
+        // Borne haute exclusive "to" ramenée à (to, id 0): rien à cet instant n'a un id < 0
+        OffsetDateTime beforeTs = to != null ? to : MAX_TIMESTAMP;
+        long beforeId = to != null ? 0 : Long.MAX_VALUE;
+        if (after != null && !after.isBlank()) {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            if (!cursor.timestamp().isAfter(beforeTs)) {
+                beforeTs = cursor.timestamp();
+                beforeId = cursor.id();
+            }
+        }
+
+        boolean unpaged = limit == null && (after == null || after.isBlank());
+        List<AlerteDto> rows = alerteRepository.findPage(type == null || type.isBlank() ? null : type,
+            patientId, medecinId, from != null ? from : MIN_TIMESTAMP, beforeTs, beforeId,
+            unpaged ? Limit.unlimited() : Limit.of(pageSize + 1));
+
+        KeysetPage<AlerteDto> page = new KeysetPage<>();
+        if (unpaged) {
+            page.setLimit(rows.size());
+            page.setItems(rows);
+            return page;
+        }
+        page.setLimit(pageSize);
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            AlerteDto last = rows.get(pageSize - 1);
+            page.setNext_cursor(new KeysetCursor(last.getTimestamp(), last.getId()).encode());
+        }
+        page.setItems(rows);
+        return page;
     }
+
     public Optional<Alerte> getAlerteById(Long id) { return alerteRepository.findById(id); }
-    public Alerte saveAlerte(Alerte alerte) { return alerteRepository.save(alerte); }
-    public void deleteAlerte(Long id) { alerteRepository.deleteById(id); }
+
+    /**
+     * Enregistre une nouvelle alerte, sauf si une alerte du même type est déjà ouverte pour ce
+     * patient et ce médecin dans la fenêtre de déduplication: l'occurrence y est alors repliée
+     * (pas de ligne, pas d'événement SSE) et c'est l'alerte ouverte, relue en base avec ses
+     * occurrences à jour, qui est renvoyée. Une nouvelle alerte rattachée à un médecin est
+     * ajoutée à sa boîte de réception. Le patient est relu en base: le corps de la requête
+     * ne porte en général que son id, et son nom est recopié dans la boîte et l'événement SSE.
+     */
+    @Transactional
+    public AlerteDto saveAlerte(Alerte alerte) {
+        AlerteDedupIndex.Key key = new AlerteDedupIndex.Key(
+            alerte.getPatient() != null ? alerte.getPatient().getId() : null,
+            alerte.getMedecin() != null ? alerte.getMedecin().getId() : null,
+            alerte.getType());
+        if (alerte.getId() == null) {
+            if (alerte.getTimestamp() == null) {
+                alerte.setTimestamp(OffsetDateTime.now());
+            }
+            AlerteDedupIndex.Folded folded = dedupIndex.fold(key, alerte.getTimestamp());
+            if (folded != null) {
+                // Supprimée depuis son ouverture: insérée comme nouvelle alerte
+                Optional<Alerte> open = alerteRepository.findById(folded.alerteId());
+                if (open.isPresent()) {
+                    // Compteurs mémoire: pas encore reportés en base
+                    AlerteDto dto = AlerteDto.fromEntity(open.get());
+                    dto.setOccurrences(folded.occurrences());
+                    dto.setLastSeen(folded.lastSeen());
+                    return dto;
+                }
+            }
+        }
+        boolean created = alerte.getId() == null;
+        if (created && key.patientId() != null) {
+            // Patient inconnu: laissé tel quel, l'insertion échoue sur la clé étrangère
+            patientRepository.findById(key.patientId()).ifPresent(alerte::setPatient);
+        }
+        Alerte saved = alerteRepository.save(alerte);
+        AlerteDto dto = AlerteDto.fromEntity(saved);
+        if (created) {
+            dedupIndex.open(key, saved.getId(), saved.getTimestamp());
+            inboxService.deliver(saved);
+            alerteStreamService.publish(dto);
+        }
+        return dto;
+    }
+
+    @Transactional
+    public void deleteAlerte(Long id) {
+        inboxService.removeForAlerte(id);
+        alerteRepository.deleteById(id);
+    }
 }
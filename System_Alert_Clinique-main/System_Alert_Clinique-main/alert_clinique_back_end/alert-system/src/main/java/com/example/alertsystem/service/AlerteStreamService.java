@@ -0,0 +1,295 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.AlerteDto;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diffusion des nouvelles alertes en Server-Sent Events (GET /api/alertes/stream).
+ *
+ * Chaque alerte commitée reçoit un numéro d'événement croissant et est conservée dans un
+ * anneau mémoire de ring-size événements, ce qui permet de rejouer ce qu'un client a manqué
+ * depuis son Last-Event-ID. Chaque abonné a un tampon borné vidé par un pool d'envoi: un
+ * client trop lent pour suivre est déconnecté (il se reconnecte et rattrape par l'anneau)
+ * au lieu de retenir les autres. L'envoi SSE est bloquant: le pool crée ses threads à la
+ * demande (jusqu'à sender-threads, un au plus par abonné en cours d'envoi) pour qu'un client
+ * bloqué n'immobilise que le sien, et un abonné dont l'envoi dure plus de stall-timeout-ms est
+ * déconnecté au heartbeat. Un commentaire "ping" part toutes les heartbeat-ms.
+ */
+@Service
+public class AlerteStreamService {
+    public static final String EVENT_ALERTE = "alerte";
+    // Last-Event-ID hors de l'anneau (trop ancien, ou émis avant un redémarrage): le client
+    // doit recharger la liste par GET /api/alertes
+    public static final String EVENT_RESET = "reset";
+
+    private record Event(long id, AlerteDto alerte) {
+    }
+
+    private final Event[] ring;
+    private final int bufferSize;
+    private final long timeoutMs;
+    private final long stallTimeoutNanos;
+    private final ThreadPoolExecutor sender;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Numéros amorcés sur l'horloge: après un redémarrage ils restent supérieurs aux anciens,
+    // un Last-Event-ID d'avant le redémarrage tombe donc hors de l'anneau (reset)
+    private final long firstId = System.currentTimeMillis() * 1000;
+    private long lastId = firstId;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder resets = new LongAdder();
+    private final LongAdder slowDisconnected = new LongAdder();
+
+    public AlerteStreamService(@Value("${alertes.stream.ring-size:1024}") int ringSize,
+                               @Value("${alertes.stream.buffer-size:256}") int bufferSize,
+                               @Value("${alertes.stream.timeout-ms:1800000}") long timeoutMs,
+                               @Value("${alertes.stream.sender-threads:64}") int senderThreads,
+                               @Value("${alertes.stream.stall-timeout-ms:30000}") long stallTimeoutMs) {
+        this.ring = new Event[Math.max(1, ringSize)];
+        this.bufferSize = Math.max(1, bufferSize);
+        this.timeoutMs = timeoutMs;
+        this.stallTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, stallTimeoutMs));
+        AtomicInteger threadNumber = new AtomicInteger();
+        int threads = Math.max(1, senderThreads);
+        // core = max et expiration des threads inactifs: un thread est créé tant qu'il y en a
+        // moins que sender-threads, au-delà les envois attendent dans la file
+        this.sender = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "alerte-sse-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sender.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+        sender.shutdownNow();
+    }
+
+    /**
+     * Abonnement, éventuellement filtré sur un patient et/ou un médecin. Avec lastEventId,
+     * les alertes manquées encore dans l'anneau sont envoyées avant les nouvelles.
+     */
+    public SseEmitter subscribe(Long patientId, Long medecinId, String lastEventId) {
+        SseEmitter emitter = newEmitter(timeoutMs);
+        Subscriber subscriber;
+        // Sous le verrou de broadcast(): aucune alerte ne peut passer entre le rejeu et le direct
+        synchronized (this) {
+            List<SseEmitter.SseEventBuilder> backlog = new ArrayList<>();
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                long from = parseEventId(lastEventId);
+                long oldest = Math.max(firstId + 1, lastId - ring.length + 1);
+                if (from < oldest - 1 || from > lastId) {
+                    backlog.add(SseEmitter.event().name(EVENT_RESET).data(""));
+                    resets.increment();
+                } else {
+                    for (long id = from + 1; id <= lastId; id++) {
+                        Event event = ring[(int) (id % ring.length)];
+                        if (matches(event.alerte(), patientId, medecinId)) {
+                            backlog.add(toSse(event));
+                        }
+                    }
+                    replayed.add(backlog.size());
+                }
+            }
+            // Le rejeu ne compte pas dans le tampon du direct
+            subscriber = new Subscriber(emitter, patientId, medecinId, backlog.size() + bufferSize);
+            subscribers.add(subscriber);
+            for (SseEmitter.SseEventBuilder event : backlog) {
+                subscriber.offer(event);
+            }
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        return emitter;
+    }
+
+    /**
+     * Diffuse une alerte enregistrée; dans une transaction, seulement après son commit
+     */
+    public void publish(AlerteDto alerte) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast(alerte);
+                }
+            });
+        } else {
+            broadcast(alerte);
+        }
+    }
+
+    private synchronized void broadcast(AlerteDto alerte) {
+        Event event = new Event(++lastId, alerte);
+        ring[(int) (event.id() % ring.length)] = event;
+        published.increment();
+        for (Subscriber subscriber : subscribers) {
+            if (matches(alerte, subscriber.patientId, subscriber.medecinId)) {
+                // Un SseEventBuilder est modifié à l'envoi: un par abonné
+                subscriber.offer(toSse(event));
+            }
+        }
+    }
+
+    SseEmitter newEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    @Scheduled(fixedDelayString = "${alertes.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isStalled(now)) {
+                // Client qui ne lit plus: son thread d'envoi reste bloqué jusqu'à l'erreur d'écriture
+                slowDisconnected.increment();
+                subscriber.close();
+            } else {
+                subscriber.offer(SseEmitter.event().comment("ping"));
+            }
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder toSse(Event event) {
+        return SseEmitter.event()
+            .id(Long.toString(event.id()))
+            .name(EVENT_ALERTE)
+            .data(event.alerte(), MediaType.APPLICATION_JSON);
+    }
+
+    private static boolean matches(AlerteDto alerte, Long patientId, Long medecinId) {
+        return (patientId == null || Objects.equals(patientId, alerte.getPatientId()))
+            && (medecinId == null || Objects.equals(medecinId, alerte.getMedecinId()));
+    }
+
+    private static long parseEventId(String lastEventId) {
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            // Identifiant inconnu: traité comme hors de l'anneau
+            return -1;
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Long patientId;
+        private final Long medecinId;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // System.nanoTime() au début de l'envoi en cours, 0 hors envoi
+        private volatile long sendingSince;
+
+        Subscriber(SseEmitter emitter, Long patientId, Long medecinId, int capacity) {
+            this.emitter = emitter;
+            this.patientId = patientId;
+            this.medecinId = medecinId;
+            this.buffer = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                slowDisconnected.increment();
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            // Un seul envoi en cours par abonné: l'ordre des événements est conservé
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RuntimeException e) {
+                    draining.set(false);
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed.get() && (event = buffer.poll()) != null) {
+                    sendingSince = System.nanoTime();
+                    emitter.send(event);
+                    sendingSince = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client parti ou émetteur déjà terminé
+                close();
+            } finally {
+                sendingSince = 0;
+                draining.set(false);
+            }
+            if (!closed.get() && !buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        boolean isStalled(long now) {
+            long since = sendingSince;
+            return since != 0 && now - since > stallTimeoutNanos;
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                buffer.clear();
+                try {
+                    emitter.complete();
+                } catch (RuntimeException ignored) {
+                    // Réponse déjà fermée
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("published", published.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("resets", resets.sum());
+        stats.put("slowDisconnected", slowDisconnected.sum());
+        stats.put("ringSize", ring.length);
+        synchronized (this) {
+            stats.put("lastEventId", lastId);
+        }
+        return stats;
+    }
+}
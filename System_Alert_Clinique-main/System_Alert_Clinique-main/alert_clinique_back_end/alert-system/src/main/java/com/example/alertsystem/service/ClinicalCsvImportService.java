@@ -0,0 +1,499 @@
+package com.example.alertsystem.service;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Import en masse de l'historique clinique au format data/clinical_alerts.csv
+ * (patient_id,date,...,age,sex,heart_rate,...,mood_score,sleep_duration_hours,...).
+ *
+ * Le corps est d'abord copié dans un fichier temporaire puis lu deux fois:
+ * 1) analyse: patients distincts (âge, sexe) et plage de dates; les patients sont
+ *    résolus en une fois (email patient-{id}@{source}.import, créés s'ils manquent) et
+ *    les partitions mensuelles de la plage sont créées;
+ * 2) copie: chaque ligne alimente jusqu'à trois flux COPY FROM STDIN parallèles
+ *    (rythme_cardiaque, qualite_sommeil, humeur), chacun sur sa propre connexion.
+ * heart_rate est arrondi, sleep_duration_hours converti en minutes, mood_score gardé tel
+ * quel comme etat; les autres colonnes n'ont pas d'équivalent et sont ignorées.
+ * Chaque table est chargée par un seul COPY: elle est importée entièrement ou pas du tout,
+ * mais une table peut échouer sans les autres. Un seul import à la fois; le suivi d'un import
+ * terminé est conservé job-retention-minutes.
+ */
+@Service
+public class ClinicalCsvImportService {
+    public enum Status { RUNNING, DONE, FAILED }
+
+    private static final int CHUNK_BYTES = 256 * 1024;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final VitalsPartitionManager partitionManager;
+    private final Path tempDir;
+    private final Duration jobRetention;
+    private final ExecutorService executor;
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public ClinicalCsvImportService(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                                    VitalsPartitionManager partitionManager,
+                                    @Value("${import.temp-dir:${java.io.tmpdir}}") String tempDir,
+                                    @Value("${import.job-retention-minutes:60}") long jobRetentionMinutes) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitionManager = partitionManager;
+        this.tempDir = Path.of(tempDir);
+        this.jobRetention = Duration.ofMinutes(Math.max(0, jobRetentionMinutes));
+        this.executor = Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "csv-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Copie le CSV reçu dans un fichier temporaire et lance l'import en tâche de fond.
+     * Renvoie null si un import est déjà en cours.
+     */
+    public Job start(InputStream body, String source) throws IOException {
+        String tag = source == null ? "" : source.trim().toLowerCase().replaceAll("[^a-z0-9-]", "");
+        if (tag.isEmpty()) {
+            throw new IllegalArgumentException("source invalide (lettres, chiffres et tirets)");
+        }
+        if (!busy.compareAndSet(false, true)) {
+            return null;
+        }
+        purgeFinished(Instant.now());
+        Path file;
+        try {
+            file = Files.createTempFile(tempDir, "clinical-import-", ".csv");
+            Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            busy.set(false);
+            throw e;
+        }
+        Job job = new Job(UUID.randomUUID().toString(), tag);
+        jobs.put(job.id, job);
+        executor.execute(() -> {
+            try {
+                run(job, file);
+            } catch (Exception e) {
+                job.fail(e.getMessage());
+            } finally {
+                busy.set(false);
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // fichier temporaire laissé sur disque
+                }
+            }
+        });
+        return job;
+    }
+
+    public Job getJob(String id) {
+        purgeFinished(Instant.now());
+        return jobs.get(id);
+    }
+
+    /**
+     * Oublie les imports terminés depuis plus de job-retention-minutes
+     */
+    void purgeFinished(Instant now) {
+        Instant limit = now.minus(jobRetention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(limit));
+    }
+
+    private void run(Job job, Path file) throws IOException, InterruptedException {
+        // 1) Analyse
+        job.phase = "analyse";
+        Map<Long, int[]> patients = new LinkedHashMap<>(); // id CSV -> {âge, 'F'/'M'}
+        LocalDate minDate = null;
+        LocalDate maxDate = null;
+        Columns columns;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            columns = Columns.parse(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] cells = line.split(",", -1);
+                Row row = columns.row(cells);
+                if (row == null) {
+                    continue;
+                }
+                patients.putIfAbsent(row.patientId, new int[] {row.age, row.female ? 'F' : 'M'});
+                minDate = minDate == null || row.date.isBefore(minDate) ? row.date : minDate;
+                maxDate = maxDate == null || row.date.isAfter(maxDate) ? row.date : maxDate;
+            }
+        }
+        if (patients.isEmpty()) {
+            job.complete();
+            return;
+        }
+        List<String> partitionErrors = partitionManager.ensureMonths(YearMonth.from(minDate), YearMonth.from(maxDate));
+        synchronized (job) {
+            job.warnings.addAll(partitionErrors);
+        }
+
+        // Patients résolus une seule fois
+        job.phase = "patients";
+        Map<Long, Long> patientIds = resolvePatients(job, patients);
+
+        // 2) Copie
+        job.phase = "copie";
+        job.copyStartedAt = System.nanoTime();
+        TableCopy rythmes = new TableCopy("COPY rythme_cardiaque (patient_id, valeur, timestamp) FROM STDIN WITH (FORMAT csv)");
+        TableCopy sommeils = new TableCopy("COPY qualite_sommeil (patient_id, duree, timestamp) FROM STDIN WITH (FORMAT csv)");
+        TableCopy humeurs = new TableCopy("COPY humeur (patient_id, etat, timestamp) FROM STDIN WITH (FORMAT csv)");
+        synchronized (job) {
+            job.tables.put("rythme_cardiaque", rythmes);
+            job.tables.put("qualite_sommeil", sommeils);
+            job.tables.put("humeur", humeurs);
+        }
+        List<Future<?>> writers = List.of(executor.submit(rythmes), executor.submit(sommeils), executor.submit(humeurs));
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                job.rowsRead.incrementAndGet();
+                Row row = columns.row(line.split(",", -1));
+                if (row == null) {
+                    job.rowsRejected.incrementAndGet();
+                    continue;
+                }
+                String prefix = patientIds.get(row.patientId) + ",";
+                String suffix = "," + row.date + " 00:00:00+00\n";
+                if (row.heartRate != null) {
+                    rythmes.add(prefix + Math.round(row.heartRate) + suffix);
+                }
+                if (row.sleepHours != null) {
+                    sommeils.add(prefix + Math.round(row.sleepHours * 60) + suffix);
+                }
+                if (row.mood != null) {
+                    humeurs.add(prefix + row.mood + suffix);
+                }
+            }
+        } finally {
+            rythmes.finish();
+            sommeils.finish();
+            humeurs.finish();
+            for (Future<?> writer : writers) {
+                try {
+                    writer.get();
+                } catch (ExecutionException e) {
+                    // erreur déjà enregistrée dans la TableCopy
+                }
+            }
+        }
+        List<String> errors = new ArrayList<>();
+        job.tables.forEach((table, copy) -> {
+            if (copy.error != null) {
+                errors.add(table + ": " + copy.error);
+            }
+        });
+        if (errors.isEmpty()) {
+            job.complete();
+        } else {
+            job.fail(String.join("; ", errors));
+        }
+    }
+
+    /**
+     * Patients de l'import: recherche par email, création des manquants, relecture des ids
+     */
+    private Map<Long, Long> resolvePatients(Job job, Map<Long, int[]> patients) {
+        Map<String, Long> csvIdByEmail = new HashMap<>();
+        for (Long csvId : patients.keySet()) {
+            csvIdByEmail.put("patient-" + csvId + "@" + job.source + ".import", csvId);
+        }
+        Map<Long, Long> ids = new HashMap<>();
+        selectIdsByEmail(csvIdByEmail, ids);
+
+        List<Object[]> missing = new ArrayList<>();
+        csvIdByEmail.forEach((email, csvId) -> {
+            if (!ids.containsKey(csvId)) {
+                int[] info = patients.get(csvId);
+                missing.add(new Object[] {"Patient " + csvId + " (" + job.source + ")", email, "inconnu",
+                    info[0], String.valueOf((char) info[1]), email});
+            }
+        });
+        if (!missing.isEmpty()) {
+            // Sans cible de conflit: ne dépend pas de la présence d'une contrainte unique sur email
+            jdbcTemplate.batchUpdate("INSERT INTO patient (name, email, phone, age, gender, status) "
+                + "SELECT ?, ?, ?, ?, ?, 'stable' WHERE NOT EXISTS (SELECT 1 FROM patient WHERE email = ?) "
+                + "ON CONFLICT DO NOTHING", missing);
+            selectIdsByEmail(csvIdByEmail, ids);
+        }
+        job.patientsCreated = missing.size();
+        job.patientsResolved = ids.size();
+        return ids;
+    }
+
+    private void selectIdsByEmail(Map<String, Long> csvIdByEmail, Map<Long, Long> ids) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT id, email FROM patient WHERE email = ANY (?)");
+            ps.setArray(1, con.createArrayOf("varchar", csvIdByEmail.keySet().toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> ids.put(csvIdByEmail.get(rs.getString(2)), rs.getLong(1)));
+    }
+
+    /**
+     * Position des colonnes utiles dans l'en-tête
+     */
+    record Columns(int patientId, int date, int age, int sex, int heartRate, int sleep, int mood, int count) {
+        static Columns parse(String header) {
+            if (header == null) {
+                throw new IllegalArgumentException("Fichier vide");
+            }
+            List<String> names = List.of(header.trim().split(","));
+            Columns columns = new Columns(names.indexOf("patient_id"), names.indexOf("date"), names.indexOf("age"),
+                names.indexOf("sex"), names.indexOf("heart_rate"), names.indexOf("sleep_duration_hours"),
+                names.indexOf("mood_score"), names.size());
+            if (columns.patientId < 0 || columns.date < 0) {
+                throw new IllegalArgumentException("Colonnes patient_id et date obligatoires");
+            }
+            return columns;
+        }
+
+        /**
+         * Ligne décodée, ou null si elle est invalide
+         */
+        Row row(String[] cells) {
+            if (cells.length != count) {
+                return null;
+            }
+            try {
+                Row row = new Row();
+                row.patientId = Long.parseLong(cells[patientId].trim());
+                row.date = LocalDate.parse(cells[date].trim());
+                row.age = age >= 0 && !cells[age].isBlank() ? (int) Double.parseDouble(cells[age].trim()) : 0;
+                row.female = sex >= 0 && "F".equalsIgnoreCase(cells[sex].trim());
+                row.heartRate = number(cells, heartRate);
+                row.sleepHours = number(cells, sleep);
+                row.mood = mood >= 0 && !cells[mood].isBlank() ? cells[mood].trim() : null;
+                if (row.mood != null) {
+                    Double.parseDouble(row.mood);
+                }
+                return row;
+            } catch (NumberFormatException | DateTimeParseException e) {
+                return null;
+            }
+        }
+
+        private static Double number(String[] cells, int index) {
+            return index >= 0 && !cells[index].isBlank() ? Double.valueOf(cells[index].trim()) : null;
+        }
+    }
+
+    static final class Row {
+        long patientId;
+        LocalDate date;
+        int age;
+        boolean female;
+        Double heartRate;
+        Double sleepHours;
+        String mood;
+    }
+
+    /**
+     * Un flux COPY: le lecteur du CSV remplit des blocs de CHUNK_BYTES, un thread les envoie
+     */
+    private final class TableCopy implements Runnable {
+        private static final Chunk END = new Chunk(new byte[0], 0);
+
+        private record Chunk(byte[] data, int rows) {
+        }
+
+        private final String sql;
+        private final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(16);
+        private final StringBuilder buffer = new StringBuilder(CHUNK_BYTES + 256);
+        private int bufferedRows;
+        private final AtomicLong rows = new AtomicLong();
+        private volatile String error;
+
+        TableCopy(String sql) {
+            this.sql = sql;
+        }
+
+        void add(String line) throws InterruptedException {
+            buffer.append(line);
+            bufferedRows++;
+            if (buffer.length() >= CHUNK_BYTES) {
+                flushBuffer();
+            }
+        }
+
+        void finish() throws InterruptedException {
+            if (bufferedRows > 0) {
+                flushBuffer();
+            }
+            chunks.put(END);
+        }
+
+        private void flushBuffer() throws InterruptedException {
+            chunks.put(new Chunk(buffer.toString().getBytes(StandardCharsets.UTF_8), bufferedRows));
+            buffer.setLength(0);
+            bufferedRows = 0;
+        }
+
+        @Override
+        public void run() {
+            CopyIn copy = null;
+            try (Connection connection = dataSource.getConnection()) {
+                copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+                long sent = 0;
+                Chunk chunk;
+                while ((chunk = chunks.take()) != END) {
+                    copy.writeToCopy(chunk.data(), 0, chunk.data().length);
+                    sent += chunk.rows();
+                    rows.set(sent);
+                }
+                copy.endCopy();
+            } catch (SQLException e) {
+                error = e.getMessage();
+                cancel(copy);
+                drain();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = "Import interrompu";
+                cancel(copy);
+            }
+        }
+
+        private void cancel(CopyIn copy) {
+            if (copy != null && copy.isActive()) {
+                try {
+                    copy.cancelCopy();
+                } catch (SQLException e) {
+                    // connexion déjà perdue
+                }
+            }
+            rows.set(0);
+        }
+
+        /**
+         * Après une erreur, continue de vider la file pour ne pas bloquer le lecteur du CSV
+         */
+        private void drain() {
+            try {
+                while (chunks.take() != END) {
+                    // ignoré
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static final class Job {
+        private final String id;
+        private final String source;
+        private final Instant startedAt = Instant.now();
+        private volatile Instant finishedAt;
+        private volatile Status status = Status.RUNNING;
+        private volatile String phase = "réception";
+        private volatile String error;
+        private volatile long copyStartedAt;
+        private volatile long endedAt;
+        private volatile int patientsCreated;
+        private volatile int patientsResolved;
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rowsRejected = new AtomicLong();
+        private final Map<String, TableCopy> tables = new LinkedHashMap<>();
+        private final List<String> warnings = new ArrayList<>();
+
+        Job(String id, String source) {
+            this.id = id;
+            this.source = source;
+        }
+
+        void complete() {
+            endedAt = System.nanoTime();
+            finishedAt = Instant.now();
+            phase = "terminé";
+            status = Status.DONE;
+        }
+
+        void fail(String message) {
+            endedAt = System.nanoTime();
+            error = message;
+            finishedAt = Instant.now();
+            status = Status.FAILED;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("job_id", id);
+            map.put("source", source);
+            map.put("status", status.name());
+            map.put("phase", phase);
+            map.put("started_at", startedAt);
+            map.put("finished_at", finishedAt);
+            map.put("patients_resolved", patientsResolved);
+            map.put("patients_created", patientsCreated);
+            map.put("rows_read", rowsRead.get());
+            map.put("rows_rejected", rowsRejected.get());
+            long copied = 0;
+            Map<String, Long> perTable = new LinkedHashMap<>();
+            for (Map.Entry<String, TableCopy> entry : tables.entrySet()) {
+                long rows = entry.getValue().rows.get();
+                perTable.put(entry.getKey(), rows);
+                copied += rows;
+            }
+            map.put("rows_copied", perTable);
+            if (copyStartedAt > 0) {
+                long end = endedAt > 0 ? endedAt : System.nanoTime();
+                double seconds = Math.max(1e-3, (end - copyStartedAt) / 1e9);
+                map.put("rows_per_second", Math.round(rowsRead.get() / seconds));
+                map.put("copied_per_second", Math.round(copied / seconds));
+            }
+            map.put("warnings", warnings);
+            map.put("error", error);
+            return map;
+        }
+    }
+}
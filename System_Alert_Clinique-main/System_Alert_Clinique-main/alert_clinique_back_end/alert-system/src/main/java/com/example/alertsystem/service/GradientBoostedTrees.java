@@ -0,0 +1,208 @@
+package com.example.alertsystem.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Modèle HistGradientBoosting exporté par AI/src/export_model.py (format "alert-gbdt" v1),
+ * avec son preprocessing (StandardScaler + OneHotEncoder).
+ *
+ * Tous les arbres sont aplatis dans des tableaux primitifs partagés: un noeud est un index,
+ * ses enfants sont des index absolus et une feuille a feature = -1.
+ * score() n'alloue rien: l'appelant fournit le tampon des features transformées.
+ */
+public final class GradientBoostedTrees {
+    public static final String FORMAT = "alert-gbdt";
+    public static final int VERSION = 1;
+
+    private final String[] numFeatures;
+    private final String[] catFeatures;
+    private final double[] mean;
+    private final double[] scale;
+    private final int[] categoryOffset;
+    private final double[] categoryValues;
+    private final int transformedWidth;
+
+    private final int[] treeRoot;
+    private final int[] feature;
+    private final double[] threshold;
+    private final int[] left;
+    private final int[] right;
+    private final boolean[] missingLeft;
+    private final double[] value;
+    private final double baseline;
+    private final double decisionThreshold;
+
+    private GradientBoostedTrees(ModelFile file) {
+        if (!FORMAT.equals(file.getFormat()) || file.getVersion() == null || file.getVersion() != VERSION) {
+            throw new IllegalArgumentException("Format de modèle non supporté: " + file.getFormat() + " v" + file.getVersion());
+        }
+        numFeatures = file.getNum_features().toArray(new String[0]);
+        catFeatures = file.getCat_features().toArray(new String[0]);
+        mean = toArray(file.getScaler_mean());
+        scale = toArray(file.getScaler_scale());
+        if (mean.length != numFeatures.length || scale.length != numFeatures.length) {
+            throw new IllegalArgumentException("Scaler incohérent avec " + numFeatures.length + " features numériques");
+        }
+        if (file.getCategories().size() != catFeatures.length) {
+            throw new IllegalArgumentException("Catégories incohérentes avec " + catFeatures.length + " features catégorielles");
+        }
+
+        categoryOffset = new int[catFeatures.length + 1];
+        int categoryCount = 0;
+        for (int i = 0; i < catFeatures.length; i++) {
+            categoryOffset[i] = categoryCount;
+            categoryCount += file.getCategories().get(i).size();
+        }
+        categoryOffset[catFeatures.length] = categoryCount;
+        categoryValues = new double[categoryCount];
+        for (int i = 0, k = 0; i < catFeatures.length; i++) {
+            for (Double category : file.getCategories().get(i)) {
+                categoryValues[k++] = category;
+            }
+        }
+        transformedWidth = numFeatures.length + categoryCount;
+
+        List<TreeFile> trees = file.getTrees();
+        int nodeCount = 0;
+        for (TreeFile tree : trees) {
+            nodeCount += tree.getFeature().size();
+        }
+        treeRoot = new int[trees.size()];
+        feature = new int[nodeCount];
+        threshold = new double[nodeCount];
+        left = new int[nodeCount];
+        right = new int[nodeCount];
+        missingLeft = new boolean[nodeCount];
+        value = new double[nodeCount];
+
+        int offset = 0;
+        for (int t = 0; t < trees.size(); t++) {
+            TreeFile tree = trees.get(t);
+            int size = tree.getFeature().size();
+            treeRoot[t] = offset;
+            for (int n = 0; n < size; n++) {
+                int node = offset + n;
+                feature[node] = tree.getFeature().get(n);
+                threshold[node] = tree.getThreshold().get(n);
+                left[node] = offset + tree.getLeft().get(n);
+                right[node] = offset + tree.getRight().get(n);
+                missingLeft[node] = tree.getMissing_left().get(n);
+                value[node] = tree.getValue().get(n);
+                if (feature[node] >= transformedWidth) {
+                    throw new IllegalArgumentException("Arbre " + t + ": feature " + feature[node] + " hors limites");
+                }
+            }
+            offset += size;
+        }
+        baseline = file.getBaseline();
+        decisionThreshold = file.getThreshold();
+    }
+
+    public static GradientBoostedTrees fromFile(ModelFile file) {
+        return new GradientBoostedTrees(file);
+    }
+
+    /**
+     * Probabilité d'alerte pour un vecteur brut (features numériques puis catégorielles,
+     * dans l'ordre de getNumFeatures()/getCatFeatures()). NaN = valeur manquante.
+     *
+     * @param raw         numFeatures.length + catFeatures.length valeurs
+     * @param transformed tampon d'au moins getTransformedWidth() valeurs, écrasé
+     */
+    public double score(double[] raw, double[] transformed) {
+        int numCount = numFeatures.length;
+        for (int i = 0; i < numCount; i++) {
+            transformed[i] = (raw[i] - mean[i]) / scale[i];
+        }
+        // One-hot: catégorie inconnue = que des zéros (handle_unknown="ignore")
+        for (int c = 0; c < catFeatures.length; c++) {
+            double v = raw[numCount + c];
+            for (int k = categoryOffset[c]; k < categoryOffset[c + 1]; k++) {
+                transformed[numCount + k] = categoryValues[k] == v ? 1.0 : 0.0;
+            }
+        }
+
+        double rawPrediction = baseline;
+        for (int root : treeRoot) {
+            int node = root;
+            while (feature[node] >= 0) {
+                double x = transformed[feature[node]];
+                if (Double.isNaN(x)) {
+                    node = missingLeft[node] ? left[node] : right[node];
+                } else {
+                    node = x <= threshold[node] ? left[node] : right[node];
+                }
+            }
+            rawPrediction += value[node];
+        }
+        return 1.0 / (1.0 + Math.exp(-rawPrediction));
+    }
+
+    public String[] getNumFeatures() {
+        return numFeatures.clone();
+    }
+
+    public String[] getCatFeatures() {
+        return catFeatures.clone();
+    }
+
+    public int getRawWidth() {
+        return numFeatures.length + catFeatures.length;
+    }
+
+    public int getTransformedWidth() {
+        return transformedWidth;
+    }
+
+    public int getTreeCount() {
+        return treeRoot.length;
+    }
+
+    public int getNodeCount() {
+        return feature.length;
+    }
+
+    public double getThreshold() {
+        return decisionThreshold;
+    }
+
+    private static double[] toArray(List<Double> values) {
+        double[] array = new double[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Contenu JSON de supervised_model.json
+     */
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ModelFile {
+        private String format;
+        private Integer version;
+        private Double threshold;
+        private List<String> num_features;
+        private List<Double> scaler_mean;
+        private List<Double> scaler_scale;
+        private List<String> cat_features;
+        private List<List<Double>> categories;
+        private Double baseline;
+        private List<TreeFile> trees;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class TreeFile {
+        private List<Integer> feature;
+        private List<Double> threshold;
+        private List<Integer> left;
+        private List<Integer> right;
+        private List<Boolean> missing_left;
+        private List<Double> value;
+    }
+}
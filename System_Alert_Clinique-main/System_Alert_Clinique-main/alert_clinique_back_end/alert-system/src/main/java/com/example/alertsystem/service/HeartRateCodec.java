@@ -0,0 +1,170 @@
+package com.example.alertsystem.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Format binaire compact des séries de rythme cardiaque (export / synchro mobile).
+ *
+ * En-tête: "HRD" + version (1 octet), puis patient id en varint.
+ * Corps: blocs "nombre de mesures (varint) + mesures", terminés par un bloc vide (0);
+ * un flux sans ce 0 final est tronqué. Chaque mesure = timestamp puis valeur, en varints
+ * zig-zag: timestamp en epoch millis (1re mesure), delta (2e), puis delta de delta;
+ * valeur brute (1re) puis delta avec la précédente. Pour des mesures régulières une
+ * mesure tient en 2 octets. Les timestamps sont ramenés à la milliseconde.
+ */
+public final class HeartRateCodec {
+    public static final String CONTENT_TYPE = "application/x-hr-delta";
+    static final byte[] MAGIC = {'H', 'R', 'D'};
+    static final int VERSION = 1;
+    private static final int BLOCK_SIZE = 1024;
+
+    private HeartRateCodec() {
+    }
+
+    /**
+     * Série décodée (colonnes triées comme à l'encodage)
+     */
+    public record Series(long patientId, long[] timestamps, int[] values) {
+    }
+
+    /**
+     * Encodeur en flux: les mesures sont écrites par blocs de BLOCK_SIZE au fil de add()
+     */
+    public static final class Encoder {
+        private final OutputStream out;
+        private final byte[] block = new byte[BLOCK_SIZE * 2 * 10];
+        private int blockLength;
+        private int blockCount;
+        private long count;
+        private long previousTs;
+        private long previousDelta;
+        private int previousValue;
+
+        public Encoder(OutputStream out, long patientId) throws IOException {
+            this.out = out;
+            out.write(MAGIC);
+            out.write(VERSION);
+            byte[] header = new byte[10];
+            out.write(header, 0, putVarint(header, 0, patientId));
+        }
+
+        public void add(long epochMillis, int value) throws IOException {
+            if (count == 0) {
+                blockLength = putVarint(block, blockLength, zigzag(epochMillis));
+                blockLength = putVarint(block, blockLength, zigzag(value));
+            } else {
+                long delta = epochMillis - previousTs;
+                blockLength = putVarint(block, blockLength, zigzag(count == 1 ? delta : delta - previousDelta));
+                blockLength = putVarint(block, blockLength, zigzag((long) value - previousValue));
+                previousDelta = delta;
+            }
+            previousTs = epochMillis;
+            previousValue = value;
+            count++;
+            if (++blockCount == BLOCK_SIZE) {
+                writeBlock();
+            }
+        }
+
+        /**
+         * Ecrit le dernier bloc et le terminateur (ne ferme pas le flux)
+         */
+        public void finish() throws IOException {
+            if (blockCount > 0) {
+                writeBlock();
+            }
+            out.write(0);
+            out.flush();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        private void writeBlock() throws IOException {
+            byte[] header = new byte[10];
+            out.write(header, 0, putVarint(header, 0, blockCount));
+            out.write(block, 0, blockLength);
+            blockLength = 0;
+            blockCount = 0;
+        }
+    }
+
+    public static Series decode(InputStream in) throws IOException {
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Format inconnu (en-tête HRD attendu)");
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Version non supportée: " + version);
+        }
+        long patientId = readVarint(in);
+
+        long[] timestamps = new long[BLOCK_SIZE];
+        int[] values = new int[BLOCK_SIZE];
+        int n = 0;
+        long ts = 0;
+        long delta = 0;
+        int value = 0;
+        long blockCount;
+        while ((blockCount = readVarint(in)) > 0) {
+            for (long i = 0; i < blockCount; i++) {
+                long t = unzigzag(readVarint(in));
+                long v = unzigzag(readVarint(in));
+                if (n == 0) {
+                    ts = t;
+                    value = (int) v;
+                } else {
+                    delta = n == 1 ? t : delta + t;
+                    ts += delta;
+                    value += (int) v;
+                }
+                if (n == timestamps.length) {
+                    timestamps = Arrays.copyOf(timestamps, n * 2);
+                    values = Arrays.copyOf(values, n * 2);
+                }
+                timestamps[n] = ts;
+                values[n] = value;
+                n++;
+            }
+        }
+        return new Series(patientId, Arrays.copyOf(timestamps, n), Arrays.copyOf(values, n));
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int putVarint(byte[] buf, int pos, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+        return pos;
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Flux tronqué");
+            }
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Varint invalide");
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.RecentRythmes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fenêtre chaude en mémoire des derniers rythmes cardiaques de chaque patient.
+ *
+ * Chaque patient a un anneau trié par timestamp sur deux tableaux primitifs
+ * (long[] epoch millis, int[] valeurs): pas d'objet par mesure. L'anneau garde les mesures
+ * des window-minutes précédant la plus récente, dans la limite de max-samples-per-patient,
+ * et grandit par doublement. Alimentée à l'enregistrement des mesures, préchargée depuis
+ * PostgreSQL au démarrage; tant que le préchargement n'est pas fini isReady() est faux
+ * et l'appelant lit en base.
+ */
+@Component
+public class HeartRateHotWindow {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxSamples;
+    private final int maxPatients;
+    private final ConcurrentHashMap<Long, SampleRing> patients = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public HeartRateHotWindow(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${hotwindow.enabled:true}") boolean enabled,
+                              @Value("${hotwindow.window-minutes:60}") long windowMinutes,
+                              @Value("${hotwindow.max-samples-per-patient:4096}") int maxSamples,
+                              @Value("${hotwindow.max-patients:50000}") int maxPatients) {
+        // JdbcTemplate dédié: le fetch size ne doit pas s'appliquer aux autres requêtes
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(5000);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.windowMillis = TimeUnit.MINUTES.toMillis(Math.max(1, windowMinutes));
+        this.maxSamples = Integer.highestOneBit(Math.max(INITIAL_CAPACITY, maxSamples));
+        this.maxPatients = Math.max(1, maxPatients);
+    }
+
+    /**
+     * Préchargement des window-minutes dernières minutes, sans entités. Dans une transaction
+     * pour que le driver PostgreSQL lise par paquets de fetch size au lieu de tout charger.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        Timestamp since = new Timestamp(System.currentTimeMillis() - windowMillis);
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(
+            "SELECT patient_id, valeur, timestamp FROM rythme_cardiaque "
+                + "WHERE timestamp >= ? AND patient_id IS NOT NULL ORDER BY patient_id, timestamp",
+            (RowCallbackHandler) rs -> record(rs.getLong(1), rs.getInt(2), rs.getTimestamp(3).getTime()),
+            since));
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public void record(Long patientId, int value, OffsetDateTime timestamp) {
+        if (patientId != null) {
+            record(patientId.longValue(), value,
+                timestamp != null ? timestamp.toInstant().toEpochMilli() : System.currentTimeMillis());
+        }
+    }
+
+    public void record(long patientId, int value, long epochMillis) {
+        if (!enabled) {
+            return;
+        }
+        SampleRing ring = patients.get(patientId);
+        if (ring == null) {
+            if (patients.size() >= maxPatients) {
+                return;
+            }
+            ring = patients.computeIfAbsent(patientId, id -> new SampleRing());
+        }
+        synchronized (ring) {
+            ring.add(epochMillis, value, windowMillis, maxSamples);
+        }
+    }
+
+    /**
+     * Mesures du patient depuis sinceMillis, en colonnes
+     */
+    public RecentRythmes recent(long patientId, long sinceMillis) {
+        RecentRythmes recent = new RecentRythmes();
+        recent.setPatient_id(patientId);
+        recent.setFrom(sinceMillis);
+        recent.setSource("memory");
+        SampleRing ring = patients.get(patientId);
+        if (ring == null) {
+            recent.setTimestamps(new long[0]);
+            recent.setValues(new int[0]);
+            return recent;
+        }
+        synchronized (ring) {
+            ring.copySince(sinceMillis, recent);
+        }
+        return recent;
+    }
+
+    /**
+     * Libère les patients sans mesure depuis plus d'une fenêtre
+     */
+    @Scheduled(fixedDelayString = "${hotwindow.sweep-interval-ms:60000}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - windowMillis;
+        patients.values().removeIf(ring -> {
+            synchronized (ring) {
+                return ring.newest() < cutoff;
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        long samples = 0;
+        for (SampleRing ring : patients.values()) {
+            synchronized (ring) {
+                samples += ring.size;
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("patients", patients.size());
+        stats.put("samples", samples);
+        stats.put("windowMinutes", TimeUnit.MILLISECONDS.toMinutes(windowMillis));
+        return stats;
+    }
+
+    /**
+     * Anneau trié par timestamp. Index logique i (0 = plus ancien) -> case (start + i) & mask.
+     * Non thread-safe: l'appelant synchronise sur l'anneau.
+     */
+    static final class SampleRing {
+        long[] timestamps = new long[INITIAL_CAPACITY];
+        int[] values = new int[INITIAL_CAPACITY];
+        int start;
+        int size;
+
+        long newest() {
+            return size == 0 ? Long.MIN_VALUE : timestamps[slot(size - 1)];
+        }
+
+        void add(long ts, int value, long windowMillis, int maxSamples) {
+            long cutoff = Math.max(ts, newest()) - windowMillis;
+            if (ts < cutoff) {
+                return;
+            }
+            // Position d'insertion: après les mesures de même timestamp (cas courant: à la fin)
+            int pos = size;
+            while (pos > 0 && timestamps[slot(pos - 1)] > ts) {
+                pos--;
+            }
+            if (pos > 0 && timestamps[slot(pos - 1)] == ts && values[slot(pos - 1)] == value) {
+                // Doublon (mesure vue par le préchargement et par l'enregistrement)
+                return;
+            }
+            if (size == timestamps.length) {
+                if (timestamps.length < maxSamples) {
+                    grow();
+                } else if (pos == 0) {
+                    return; // plus ancienne que tout l'anneau plein
+                } else {
+                    dropOldest();
+                    pos--;
+                }
+            }
+            for (int i = size; i > pos; i--) {
+                timestamps[slot(i)] = timestamps[slot(i - 1)];
+                values[slot(i)] = values[slot(i - 1)];
+            }
+            timestamps[slot(pos)] = ts;
+            values[slot(pos)] = value;
+            size++;
+            while (size > 0 && timestamps[start] < cutoff) {
+                dropOldest();
+            }
+        }
+
+        void copySince(long sinceMillis, RecentRythmes out) {
+            // Première mesure >= sinceMillis (recherche dichotomique)
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (timestamps[slot(mid)] < sinceMillis) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            int n = size - lo;
+            long[] ts = new long[n];
+            int[] vals = new int[n];
+            for (int i = 0; i < n; i++) {
+                ts[i] = timestamps[slot(lo + i)];
+                vals[i] = values[slot(lo + i)];
+            }
+            out.setTimestamps(ts);
+            out.setValues(vals);
+        }
+
+        private void dropOldest() {
+            start = (start + 1) & (timestamps.length - 1);
+            size--;
+        }
+
+        private void grow() {
+            int capacity = timestamps.length * 2;
+            long[] newTimestamps = new long[capacity];
+            int[] newValues = new int[capacity];
+            for (int i = 0; i < size; i++) {
+                newTimestamps[i] = timestamps[slot(i)];
+                newValues[i] = values[slot(i)];
+            }
+            timestamps = newTimestamps;
+            values = newValues;
+            start = 0;
+        }
+
+        private int slot(int logical) {
+            return (start + logical) & (timestamps.length - 1);
+        }
+    }
+}
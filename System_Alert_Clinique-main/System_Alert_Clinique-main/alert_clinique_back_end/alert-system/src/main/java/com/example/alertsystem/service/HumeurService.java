@@ -2,23 +2,63 @@ package com.example.alertsystem.service;
 
 
 
+import com.example.alertsystem.dto.VitalSample;
 import org.springframework.stereotype.Service;
 import com.example.alertsystem.repository.HumeurRepository;
 import com.example.alertsystem.entities.Humeur;
+import com.example.alertsystem.entities.SeuilAlerte;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class HumeurService {
     private final HumeurRepository repository;
+    private final PatientFeatureWindow featureWindow;
+    private final ThresholdRuleEngine ruleEngine;
+    private final VitalsWriteBehindLog writeBehindLog;
 
-    public HumeurService(HumeurRepository repository) {
+    public HumeurService(HumeurRepository repository, PatientFeatureWindow featureWindow,
+                         ThresholdRuleEngine ruleEngine, VitalsWriteBehindLog writeBehindLog) {
         this.repository = repository;
+        this.featureWindow = featureWindow;
+        this.ruleEngine = ruleEngine;
+        this.writeBehindLog = writeBehindLog;
     }
 
     public List<Humeur> getAll() { return repository.findAll(); }
     public Optional<Humeur> getById(Long id) { return repository.findById(id); }
-    public Humeur save(Humeur h) { return repository.save(h); }
+
+    public Humeur save(Humeur h) {
+        Humeur saved = repository.save(h);
+        Double mood = PatientFeatureWindow.moodScore(saved.getEtat());
+        if (saved.getPatient() != null && mood != null) {
+            featureWindow.record(saved.getPatient().getId(), PatientFeatureWindow.Metric.MOOD,
+                mood, saved.getTimestamp());
+            ruleEngine.submit(saved.getPatient().getId(), SeuilAlerte.Metrique.MOOD_SCORE,
+                mood, saved.getTimestamp());
+        }
+        return saved;
+    }
+
+    /**
+     * Humeur ajoutée au journal write-behind (VitalsWriteBehindLog); false: passer par save()
+     */
+    public boolean appendWriteBehind(Humeur h) {
+        if (!writeBehindLog.isEnabled()) {
+            return false;
+        }
+        VitalSample sample = new VitalSample();
+        sample.setType("mood");
+        sample.setPatient_id(h.getPatient() != null ? h.getPatient().getId() : null);
+        sample.setEtat(h.getEtat());
+        sample.setTimestamp(h.getTimestamp() != null ? h.getTimestamp() : OffsetDateTime.now());
+        if (!VitalsStreamIngestionService.isValid(sample)) {
+            throw new IllegalArgumentException("patient.id et etat sont obligatoires");
+        }
+        return writeBehindLog.append(sample);
+    }
+
     public void delete(Long id) { repository.deleteById(id); }
 }
 
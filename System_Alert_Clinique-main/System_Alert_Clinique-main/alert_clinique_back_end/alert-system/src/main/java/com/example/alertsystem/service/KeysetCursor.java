@@ -0,0 +1,36 @@
+package com.example.alertsystem.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Curseur opaque de pagination par clé: position (timestamp, id) de la dernière ligne renvoyée.
+ * Encodé en base64url pour que le client le renvoie sans l'interpréter.
+ */
+public record KeysetCursor(OffsetDateTime timestamp, long id) {
+
+    public String encode() {
+        Instant instant = timestamp.toInstant();
+        String raw = instant.getEpochSecond() + "." + instant.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Décode un curseur reçu du client; IllegalArgumentException (400) s'il est invalide
+     */
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int dot = raw.indexOf('.');
+            int colon = raw.indexOf(':');
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(raw.substring(0, dot)),
+                Long.parseLong(raw.substring(dot + 1, colon)));
+            return new KeysetCursor(instant.atOffset(ZoneOffset.UTC), Long.parseLong(raw.substring(colon + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide: " + cursor);
+        }
+    }
+}
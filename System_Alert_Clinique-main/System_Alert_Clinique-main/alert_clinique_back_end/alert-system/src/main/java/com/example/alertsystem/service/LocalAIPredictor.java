@@ -0,0 +1,245 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.AIPredictionRequest;
+import com.example.alertsystem.dto.AIPredictionResponse;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluation du modèle dans la JVM (ai.service.mode=local), sans appel HTTP au service Flask.
+ *
+ * Les features sont construites comme /predict pour un échantillon isolé
+ * (build_fallback_features de app.py): deltas et z-scores pris dans rolling_features
+ * s'ils sont fournis (PatientFeatureWindow), sinon à 0; features dérivées calculées
+ * à partir des valeurs brutes.
+ */
+@Component
+public class LocalAIPredictor {
+    public static final String SOURCE = "model";
+
+    // Codes des features brutes, résolus une fois au chargement du modèle
+    private static final int ROLLING = 0;
+    private static final int STEPS_LOG1P = 1;
+    private static final int AWAKENINGS_PER_HOUR = 2;
+    private static final int HR_HRV_RATIO = 3;
+    private static final int SLEEP_DEBT = 4;
+    private static final int AGE = 5;
+    private static final int DOW_SIN = 6;
+    private static final int DOW_COS = 7;
+    private static final int WEEKEND = 8;
+    private static final int MEDICATION_TAKEN = 9;
+    private static final int IS_FEMALE = 10;
+
+    private final JsonMapper jsonMapper;
+    private final boolean enabled;
+    private final String modelPath;
+
+    private volatile LoadedModel loaded;
+
+    public LocalAIPredictor(JsonMapper jsonMapper,
+                            @Value("${ai.service.mode:remote}") String mode,
+                            @Value("${ai.local.model-path:../../../../artifacts/supervised_model.json}") String modelPath) {
+        this.jsonMapper = jsonMapper;
+        this.enabled = "local".equalsIgnoreCase(mode);
+        this.modelPath = modelPath;
+    }
+
+    /**
+     * En mode local le modèle est obligatoire; en mode remote il est chargé s'il existe,
+     * pour servir de relais quand la sonde de santé signale le service Flask indisponible.
+     */
+    @PostConstruct
+    void loadAtStartup() {
+        if (enabled) {
+            reload();
+        } else if (Files.exists(Path.of(modelPath))) {
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                loaded = null;
+            }
+        }
+    }
+
+    /**
+     * (Re)charge le modèle depuis ai.local.model-path
+     */
+    public void reload() {
+        Path path = Path.of(modelPath);
+        if (!Files.exists(path)) {
+            throw new IllegalStateException("Modèle local introuvable: " + path.toAbsolutePath()
+                + " (générer avec AI/src/export_model.py)");
+        }
+        GradientBoostedTrees.ModelFile file = jsonMapper.readValue(path.toFile(), GradientBoostedTrees.ModelFile.class);
+        loaded = new LoadedModel(GradientBoostedTrees.fromFile(file));
+    }
+
+    public boolean isEnabled() {
+        return enabled && loaded != null;
+    }
+
+    /**
+     * Modèle chargé et utilisable (mode local ou relais du mode remote)
+     */
+    public boolean isAvailable() {
+        return loaded != null;
+    }
+
+    public Map<String, Object> getModelInfo() {
+        Map<String, Object> info = new HashMap<>();
+        LoadedModel current = loaded;
+        info.put("enabled", enabled);
+        info.put("path", modelPath);
+        info.put("loaded", current != null);
+        if (current != null) {
+            info.put("trees", current.model.getTreeCount());
+            info.put("nodes", current.model.getNodeCount());
+            info.put("threshold", current.model.getThreshold());
+        }
+        return info;
+    }
+
+    public AIPredictionResponse predict(AIPredictionRequest request) {
+        AIPredictionResponse response = new AIPredictionResponse();
+        LoadedModel current = loaded;
+        if (current == null) {
+            response.setSuccess(false);
+            response.setError("Modèle local non chargé");
+            return response;
+        }
+
+        List<String> missing = missingFields(request);
+        if (!missing.isEmpty()) {
+            response.setSuccess(false);
+            response.setError("Champs manquants: " + String.join(", ", missing));
+            return response;
+        }
+
+        double[][] buffers = current.buffers.get();
+        double[] raw = buffers[0];
+        int[] codes = current.rawCodes;
+        Map<String, Double> rolling = request.getRolling_features();
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] == ROLLING) {
+                Double value = rolling != null ? rolling.get(current.featureNames[i]) : null;
+                raw[i] = value != null ? value : 0.0;
+            } else {
+                raw[i] = rawFeature(codes[i], request);
+            }
+        }
+        double score = current.model.score(raw, buffers[1]);
+        double threshold = current.model.getThreshold();
+
+        AIPredictionResponse.PredictionData prediction = new AIPredictionResponse.PredictionData();
+        prediction.setAnomaly_score(score);
+        prediction.setThreshold_used(threshold);
+        prediction.setAlert_flag(score >= threshold);
+        prediction.setConfidence(Math.abs(score - threshold));
+        prediction.setSource(SOURCE);
+
+        response.setSuccess(true);
+        response.setPrediction(prediction);
+        return response;
+    }
+
+    private static double rawFeature(int code, AIPredictionRequest r) {
+        switch (code) {
+            case STEPS_LOG1P:
+                return Math.log1p(r.getSteps());
+            case AWAKENINGS_PER_HOUR:
+                return r.getNum_awakenings() / Math.max(r.getSleep_duration_hours(), 0.5);
+            case HR_HRV_RATIO:
+                return r.getHeart_rate() / Math.max(r.getHr_variability(), 1e-3);
+            case SLEEP_DEBT:
+                return Math.max(0.0, 7.5 - r.getSleep_duration_hours());
+            case AGE:
+                return r.getAge();
+            case DOW_SIN:
+                return Math.sin(2 * Math.PI * r.getDay_of_week() / 7);
+            case DOW_COS:
+                return Math.cos(2 * Math.PI * r.getDay_of_week() / 7);
+            case WEEKEND:
+                return r.getWeekend() ? 1.0 : 0.0;
+            case MEDICATION_TAKEN:
+                return r.getMedication_taken() ? 1.0 : 0.0;
+            case IS_FEMALE:
+                return r.getIs_female() ? 1.0 : 0.0;
+            default:
+                return 0.0;
+        }
+    }
+
+    private static int codeFor(String feature) {
+        if (feature.endsWith("_delta") || feature.endsWith("_z")) {
+            return ROLLING;
+        }
+        switch (feature) {
+            case "steps_log1p": return STEPS_LOG1P;
+            case "awakenings_per_hour": return AWAKENINGS_PER_HOUR;
+            case "hr_hrv_ratio": return HR_HRV_RATIO;
+            case "sleep_debt": return SLEEP_DEBT;
+            case "age": return AGE;
+            case "dow_sin": return DOW_SIN;
+            case "dow_cos": return DOW_COS;
+            case "weekend": return WEEKEND;
+            case "medication_taken": return MEDICATION_TAKEN;
+            case "is_female": return IS_FEMALE;
+            default:
+                throw new IllegalStateException("Feature inconnue dans le modèle exporté: " + feature);
+        }
+    }
+
+    /**
+     * Mêmes champs obligatoires que /predict côté Flask
+     */
+    private static List<String> missingFields(AIPredictionRequest r) {
+        List<String> missing = new ArrayList<>();
+        if (r.getPatient_id() == null) missing.add("patient_id");
+        if (r.getHeart_rate() == null) missing.add("heart_rate");
+        if (r.getHr_variability() == null) missing.add("hr_variability");
+        if (r.getSteps() == null) missing.add("steps");
+        if (r.getMood_score() == null) missing.add("mood_score");
+        if (r.getSleep_duration_hours() == null) missing.add("sleep_duration_hours");
+        if (r.getSleep_efficiency() == null) missing.add("sleep_efficiency");
+        if (r.getNum_awakenings() == null) missing.add("num_awakenings");
+        if (r.getAge() == null) missing.add("age");
+        if (r.getDay_of_week() == null) missing.add("day_of_week");
+        if (r.getWeekend() == null) missing.add("weekend");
+        if (r.getMedication_taken() == null) missing.add("medication_taken");
+        if (r.getIs_female() == null) missing.add("is_female");
+        if (r.getDate() == null) missing.add("date");
+        return missing;
+    }
+
+    private static final class LoadedModel {
+        final GradientBoostedTrees model;
+        final int[] rawCodes;
+        final String[] featureNames;
+        // Tampons par thread: [0] features brutes, [1] features transformées
+        final ThreadLocal<double[][]> buffers;
+
+        LoadedModel(GradientBoostedTrees model) {
+            this.model = model;
+            String[] num = model.getNumFeatures();
+            String[] cat = model.getCatFeatures();
+            featureNames = new String[num.length + cat.length];
+            System.arraycopy(num, 0, featureNames, 0, num.length);
+            System.arraycopy(cat, 0, featureNames, num.length, cat.length);
+            rawCodes = new int[featureNames.length];
+            for (int i = 0; i < featureNames.length; i++) {
+                rawCodes[i] = codeFor(featureNames[i]);
+            }
+            buffers = ThreadLocal.withInitial(() ->
+                new double[][] { new double[model.getRawWidth()], new double[model.getTransformedWidth()] });
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.KeysetPage;
+import com.example.alertsystem.entities.Alerte;
+import com.example.alertsystem.entities.InboxCounter;
+import com.example.alertsystem.entities.InboxEntry;
+import com.example.alertsystem.repository.InboxCounterRepository;
+import com.example.alertsystem.repository.InboxEntryRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Boîte de réception des médecins: chaque alerte rattachée à un médecin y crée une entrée
+ * non lue (alerte_inbox, listée par l'index (medecin_id, state, timestamp, id)).
+ *
+ * Le nombre de non lues (badge) est servi depuis des compteurs mémoire par médecin, sans
+ * requête SQL. Ils sont sauvegardés dans medecin_inbox_counter toutes les
+ * counter-flush-interval-ms, rechargés au démarrage, et recalculés depuis alerte_inbox
+ * selon reconcile-cron pour corriger une éventuelle dérive (arrêt brutal, suppressions).
+ */
+@Service
+public class MedecinInboxService {
+    private static final OffsetDateTime MAX_TIMESTAMP = OffsetDateTime.parse("9999-12-31T23:59:59Z");
+
+    private final InboxEntryRepository entryRepository;
+    private final InboxCounterRepository counterRepository;
+    private final int defaultPageLimit;
+    private final int maxPageLimit;
+    private final Map<Long, LongAdder> unread = new ConcurrentHashMap<>();
+    // Médecins dont le compteur a changé depuis la dernière sauvegarde
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    public MedecinInboxService(InboxEntryRepository entryRepository,
+                               InboxCounterRepository counterRepository,
+                               @Value("${inbox.page.default-limit:50}") int defaultPageLimit,
+                               @Value("${inbox.page.max-limit:500}") int maxPageLimit) {
+        this.entryRepository = entryRepository;
+        this.counterRepository = counterRepository;
+        this.defaultPageLimit = Math.max(1, defaultPageLimit);
+        this.maxPageLimit = Math.max(this.defaultPageLimit, maxPageLimit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        List<InboxCounter> saved = counterRepository.findAll();
+        if (saved.isEmpty()) {
+            // Première utilisation: compteurs calculés depuis les entrées existantes
+            reconcile();
+            return;
+        }
+        for (InboxCounter counter : saved) {
+            counter(counter.getMedecinId()).add(counter.getUnread());
+        }
+    }
+
+    /**
+     * Crée l'entrée non lue de l'alerte dans la boîte de son médecin (sans médecin: rien);
+     * le compteur n'est incrémenté qu'au commit
+     */
+    public void deliver(Alerte alerte) {
+        if (alerte.getMedecin() == null || alerte.getMedecin().getId() == null) {
+            return;
+        }
+        InboxEntry entry = new InboxEntry();
+        entry.setMedecinId(alerte.getMedecin().getId());
+        entry.setAlerteId(alerte.getId());
+        entry.setTimestamp(alerte.getTimestamp());
+        entry.setType(alerte.getType());
+        entry.setMessage(alerte.getMessage());
+        if (alerte.getPatient() != null) {
+            entry.setPatientId(alerte.getPatient().getId());
+            entry.setPatientName(alerte.getPatient().getName());
+        }
+        entryRepository.save(entry);
+        adjustAfterCommit(entry.getMedecinId(), 1);
+    }
+
+    /**
+     * Retire les entrées d'une alerte supprimée
+     */
+    @Transactional
+    public void removeForAlerte(Long alerteId) {
+        for (InboxEntry entry : entryRepository.findByAlerteId(alerteId)) {
+            if (entry.getState() == InboxEntry.State.UNREAD) {
+                adjustAfterCommit(entry.getMedecinId(), -1);
+            }
+            entryRepository.delete(entry);
+        }
+    }
+
+    /**
+     * Entrées d'un médecin dans l'état demandé (non lues par défaut), des plus récentes
+     * aux plus anciennes, à partir du curseur "after"
+     */
+    public KeysetPage<InboxEntry> getPage(Long medecinId, String state, String after, Integer limit) {
+        InboxEntry.State inboxState = state == null || state.isBlank()
+            ? InboxEntry.State.UNREAD : InboxEntry.State.valueOf(state.trim().toUpperCase());
+        int pageSize = limit == null ? defaultPageLimit : Math.min(Math.max(1, limit), maxPageLimit);
+        OffsetDateTime beforeTs = MAX_TIMESTAMP;
+        long beforeId = Long.MAX_VALUE;
+        if (after != null && !after.isBlank()) {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            beforeTs = cursor.timestamp();
+            beforeId = cursor.id();
+        }
+
+        List<InboxEntry> rows = entryRepository.findPage(medecinId, inboxState, beforeTs, beforeId,
+            Limit.of(pageSize + 1));
+
+        KeysetPage<InboxEntry> page = new KeysetPage<>();
+        page.setLimit(pageSize);
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            InboxEntry last = rows.get(pageSize - 1);
+            page.setNext_cursor(new KeysetCursor(last.getTimestamp(), last.getId()).encode());
+        }
+        page.setItems(rows);
+        return page;
+    }
+
+    /**
+     * Marque une entrée comme lue; false si elle n'existe pas pour ce médecin ou était déjà lue
+     */
+    @Transactional
+    public boolean markRead(Long medecinId, Long entryId) {
+        int updated = entryRepository.markRead(medecinId, entryId, OffsetDateTime.now(),
+            InboxEntry.State.READ, InboxEntry.State.UNREAD);
+        if (updated > 0) {
+            adjustAfterCommit(medecinId, -updated);
+        }
+        return updated > 0;
+    }
+
+    /**
+     * Marque toutes les entrées non lues du médecin comme lues; renvoie leur nombre
+     */
+    @Transactional
+    public int markAllRead(Long medecinId) {
+        int updated = entryRepository.markAllRead(medecinId, OffsetDateTime.now(),
+            InboxEntry.State.READ, InboxEntry.State.UNREAD);
+        if (updated > 0) {
+            adjustAfterCommit(medecinId, -updated);
+        }
+        return updated;
+    }
+
+    /**
+     * Badge: nombre d'alertes non lues, lu en mémoire
+     */
+    public long getUnreadCount(Long medecinId) {
+        LongAdder counter = unread.get(medecinId);
+        return counter == null ? 0 : Math.max(0, counter.sum());
+    }
+
+    private void adjustAfterCommit(Long medecinId, long delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    adjust(medecinId, delta);
+                }
+            });
+        } else {
+            adjust(medecinId, delta);
+        }
+    }
+
+    private void adjust(Long medecinId, long delta) {
+        counter(medecinId).add(delta);
+        dirty.add(medecinId);
+    }
+
+    private LongAdder counter(Long medecinId) {
+        return unread.computeIfAbsent(medecinId, id -> new LongAdder());
+    }
+
+    /**
+     * Sauvegarde les compteurs modifiés depuis le dernier passage
+     */
+    @Scheduled(fixedDelayString = "${inbox.counter-flush-interval-ms:10000}")
+    public void flushCounters() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Long> medecinIds = new ArrayList<>(dirty);
+        dirty.removeAll(medecinIds);
+        List<InboxCounter> counters = new ArrayList<>(medecinIds.size());
+        for (Long medecinId : medecinIds) {
+            counters.add(new InboxCounter(medecinId, getUnreadCount(medecinId)));
+        }
+        try {
+            counterRepository.saveAll(counters);
+        } catch (RuntimeException e) {
+            // Réessayé au prochain passage
+            dirty.addAll(medecinIds);
+        }
+    }
+
+    /**
+     * Recalcule les compteurs depuis alerte_inbox. Une entrée livrée pendant le calcul peut
+     * être comptée deux fois ou pas du tout jusqu'au passage suivant.
+     */
+    @Scheduled(cron = "${inbox.reconcile-cron:0 15 * * * *}")
+    public void reconcile() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : entryRepository.countByMedecin(InboxEntry.State.UNREAD)) {
+            counts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        Set<Long> medecinIds = new HashSet<>(unread.keySet());
+        medecinIds.addAll(counts.keySet());
+        for (Long medecinId : medecinIds) {
+            long expected = counts.getOrDefault(medecinId, 0L);
+            LongAdder counter = counter(medecinId);
+            long current = counter.sum();
+            if (current != expected) {
+                counter.add(expected - current);
+                dirty.add(medecinId);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flushCounters();
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.repository.PatientRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Cache lecture seule id patient -> (âge, sexe) pour l'enrichissement des prédictions IA.
+ *
+ * Table à adressage ouvert (sondage linéaire) sur des tableaux long[] / int[]: pas d'objet
+ * par entrée ni d'autoboxing. La valeur est un int compacté (voir pack()); les lectures
+ * passent par une lecture optimiste du StampedLock. Chargement à la demande par une
+ * projection (age, gender) au lieu de l'entité Patient complète; PatientService invalide
+ * l'entrée à la modification et à la suppression.
+ */
+@Component
+public class PatientDemographicsCache {
+    /** Patient absent de la base */
+    public static final int MISSING = -1;
+
+    private static final int AGE_MASK = 0xFFFF;
+    private static final int HAS_GENDER = 1 << 16;
+    private static final int FEMALE = 1 << 17;
+    private static final long EMPTY = 0L;
+
+    private final PatientRepository patientRepository;
+    private final boolean enabled;
+    private final int maxSize;
+    private final StampedLock lock = new StampedLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Tableaux clés / valeurs regroupés: une lecture optimiste voit toujours une paire de même taille
+    private volatile Table table = new Table(64);
+    private int size;
+
+    public PatientDemographicsCache(PatientRepository patientRepository,
+                                    @Value("${ai.demographics.enabled:true}") boolean enabled,
+                                    @Value("${ai.demographics.max-size:100000}") int maxSize) {
+        this.patientRepository = patientRepository;
+        this.enabled = enabled;
+        this.maxSize = Math.max(16, maxSize);
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final int[] values;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+        }
+    }
+
+    /**
+     * Démographie compactée du patient (lecture en base au premier accès), ou MISSING
+     */
+    public int lookup(long patientId) {
+        if (!enabled || patientId == EMPTY) {
+            return load(patientId);
+        }
+        int cached = get(patientId);
+        if (cached != MISSING) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        int packed = load(patientId);
+        if (packed != MISSING) {
+            put(patientId, packed);
+        }
+        return packed;
+    }
+
+    private int load(long patientId) {
+        return patientRepository.findDemographicsById(patientId)
+            .map(d -> pack(d.getAge(), d.getGender()))
+            .orElse(MISSING);
+    }
+
+    /**
+     * Retire le patient du cache; dans une transaction, retire-le aussi après le commit
+     * pour qu'une lecture concurrente ne remette pas l'ancienne valeur.
+     */
+    public void invalidate(long patientId) {
+        remove(patientId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(patientId);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(64);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long stamp = lock.readLock();
+        try {
+            stats.put("size", size);
+            stats.put("capacity", table.keys.length);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        stats.put("enabled", enabled);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+
+    public static int pack(Integer age, String gender) {
+        int packed = age == null ? 0 : Math.min(AGE_MASK - 1, Math.max(0, age)) + 1;
+        if (gender != null && !gender.isBlank()) {
+            packed |= HAS_GENDER;
+            if ("F".equalsIgnoreCase(gender.trim())) {
+                packed |= FEMALE;
+            }
+        }
+        return packed;
+    }
+
+    /** Age, ou null si inconnu */
+    public static Integer age(int packed) {
+        int age = packed & AGE_MASK;
+        return packed == MISSING || age == 0 ? null : age - 1;
+    }
+
+    /** 'F' / 'M', ou null si inconnu */
+    public static String gender(int packed) {
+        if (packed == MISSING || (packed & HAS_GENDER) == 0) {
+            return null;
+        }
+        return (packed & FEMALE) != 0 ? "F" : "M";
+    }
+
+    private int get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        int result = probe(table, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = probe(table, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    private static int probe(Table t, long key) {
+        long[] keys = t.keys;
+        int[] values = t.values;
+        int mask = keys.length - 1;
+        for (int i = index(key, mask), n = 0; n <= mask; i = (i + 1) & mask, n++) {
+            long k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == EMPTY) {
+                return MISSING;
+            }
+        }
+        return MISSING;
+    }
+
+    private void put(long key, int value) {
+        long stamp = lock.writeLock();
+        try {
+            if (size >= maxSize) {
+                // Cache plein: on repart de zéro plutôt que de gérer une politique d'éviction
+                table = new Table(64);
+                size = 0;
+            }
+            if ((size + 1) * 2 > table.keys.length) {
+                resize(table.keys.length * 2);
+            }
+            long[] keys = table.keys;
+            int[] values = table.values;
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void remove(long key) {
+        long stamp = lock.writeLock();
+        try {
+            long[] keys = table.keys;
+            int[] values = table.values;
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (keys[i] != key) {
+                if (keys[i] == EMPTY) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            // Suppression par décalage arrière: pas de marqueur de suppression
+            int hole = i;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (keys[j] == EMPTY) {
+                    break;
+                }
+                int home = index(keys[j], mask);
+                boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+                if (movable) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = EMPTY;
+            values[hole] = 0;
+            size--;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = table.keys;
+        int[] oldValues = table.values;
+        Table resized = new Table(capacity);
+        long[] newKeys = resized.keys;
+        int[] newValues = resized.values;
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k != EMPTY) {
+                int j = index(k, mask);
+                while (newKeys[j] != EMPTY) {
+                    j = (j + 1) & mask;
+                }
+                newKeys[j] = k;
+                newValues[j] = oldValues[i];
+            }
+        }
+        table = resized;
+    }
+
+    private static int index(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
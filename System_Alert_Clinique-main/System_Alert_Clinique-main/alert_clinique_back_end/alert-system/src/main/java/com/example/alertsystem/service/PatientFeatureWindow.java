@@ -0,0 +1,271 @@
+package com.example.alertsystem.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fenêtre glissante par patient des dernières mesures (rythme cardiaque, sommeil, humeur),
+ * alimentée à l'enregistrement des mesures.
+ *
+ * Reproduit les rolling statistics de build_features_patient_centric (fenêtre de 7 jours
+ * de mesure, min_periods = 3, écart-type ddof = 1): chaque métrique garde un anneau de
+ * 7 moyennes journalières avec somme et somme des carrés, donc l'ajout d'une mesure
+ * et le calcul de delta / z-score sont en O(1), sans requête d'historique en base.
+ */
+@Component
+public class PatientFeatureWindow {
+    static final int WINDOW = 7;
+    static final int MIN_PERIODS = 3;
+
+    public enum Metric {
+        HEART_RATE("heart_rate"),
+        SLEEP_DURATION("sleep_duration_hours"),
+        MOOD("mood_score");
+
+        private final String feature;
+
+        Metric(String feature) {
+            this.feature = feature;
+        }
+
+        public String getFeature() {
+            return feature;
+        }
+    }
+
+    private final boolean enabled;
+    private final int maxPatients;
+    private final ConcurrentHashMap<Long, PatientSeries> patients = new ConcurrentHashMap<>();
+
+    public PatientFeatureWindow(@Value("${ai.window.enabled:true}") boolean enabled,
+                                @Value("${ai.window.max-patients:50000}") int maxPatients) {
+        this.enabled = enabled;
+        this.maxPatients = Math.max(1, maxPatients);
+    }
+
+    /**
+     * Ajoute une mesure à la fenêtre du patient (jour = date locale du timestamp)
+     */
+    public void record(Long patientId, Metric metric, double value, OffsetDateTime timestamp) {
+        if (!enabled || patientId == null || Double.isNaN(value)) {
+            return;
+        }
+        PatientSeries series = patients.get(patientId);
+        if (series == null) {
+            if (patients.size() >= maxPatients) {
+                return;
+            }
+            series = patients.computeIfAbsent(patientId, id -> new PatientSeries());
+        }
+        long day = (timestamp != null ? timestamp.toLocalDate() : LocalDate.now()).toEpochDay();
+        synchronized (series) {
+            series.rings[metric.ordinal()].add(day, value);
+        }
+    }
+
+    /**
+     * Rolling features ({feature}_delta, {feature}_z) pour les valeurs courantes fournies,
+     * calculées sur les jours précédents de la fenêtre + la valeur courante.
+     * Les métriques avec moins de MIN_PERIODS points sont omises.
+     *
+     * @param values valeur courante par métrique (null = métrique absente)
+     * @return null si aucune métrique n'a assez d'historique
+     */
+    public Map<String, Double> rollingFeatures(Long patientId, LocalDate date, Map<Metric, Double> values) {
+        if (!enabled || patientId == null) {
+            return null;
+        }
+        PatientSeries series = patients.get(patientId);
+        if (series == null) {
+            return null;
+        }
+        long day = (date != null ? date : LocalDate.now()).toEpochDay();
+        Map<String, Double> features = null;
+        double[] out = new double[2];
+        synchronized (series) {
+            for (Map.Entry<Metric, Double> entry : values.entrySet()) {
+                Double value = entry.getValue();
+                if (value == null || !series.rings[entry.getKey().ordinal()].features(day, value, out)) {
+                    continue;
+                }
+                if (features == null) {
+                    features = new HashMap<>();
+                }
+                String feature = entry.getKey().getFeature();
+                features.put(feature + "_delta", out[0]);
+                features.put(feature + "_z", out[1]);
+            }
+        }
+        return features;
+    }
+
+    /**
+     * Dernière moyenne journalière connue d'une métrique, ou null
+     */
+    public Double latest(Long patientId, Metric metric) {
+        if (!enabled || patientId == null) {
+            return null;
+        }
+        PatientSeries series = patients.get(patientId);
+        if (series == null) {
+            return null;
+        }
+        synchronized (series) {
+            return series.rings[metric.ordinal()].latest();
+        }
+    }
+
+    public void forget(Long patientId) {
+        if (patientId != null) {
+            patients.remove(patientId);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("patients", patients.size());
+        stats.put("maxPatients", maxPatients);
+        stats.put("window", WINDOW);
+        return stats;
+    }
+
+    /**
+     * Score d'humeur (0-10, comme mood_score) à partir de l'état saisi:
+     * nombre direct ("6.5") ou libellé connu ("heureux", "fatigué", ...). null si inconnu.
+     */
+    public static Double moodScore(String etat) {
+        if (etat == null || etat.isBlank()) {
+            return null;
+        }
+        String normalized = Normalizer.normalize(etat.trim().toLowerCase(), Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "");
+        try {
+            double score = Double.parseDouble(normalized.replace(',', '.'));
+            return Math.max(0.0, Math.min(10.0, score));
+        } catch (NumberFormatException e) {
+            // libellé
+        }
+        switch (normalized) {
+            case "tres heureux": case "excellent": return 9.0;
+            case "heureux": case "joyeux": case "bien": return 8.0;
+            case "content": case "serein": return 7.0;
+            case "calme": case "normal": return 6.0;
+            case "neutre": case "moyen": return 5.0;
+            case "fatigue": case "irrite": return 4.0;
+            case "stresse": case "anxieux": case "inquiet": return 3.0;
+            case "triste": case "mal": return 2.0;
+            case "deprime": case "tres triste": return 1.0;
+            default: return null;
+        }
+    }
+
+    private static final class PatientSeries {
+        final DailyRing[] rings = new DailyRing[Metric.values().length];
+
+        PatientSeries() {
+            for (int i = 0; i < rings.length; i++) {
+                rings[i] = new DailyRing();
+            }
+        }
+    }
+
+    /**
+     * Anneau des WINDOW derniers jours de mesure d'une métrique.
+     * Chaque case garde la somme et le nombre de mesures du jour (moyenne journalière);
+     * windowSum / windowSumSq portent sur les moyennes journalières de toutes les cases.
+     */
+    static final class DailyRing {
+        private final long[] day = new long[WINDOW];
+        private final double[] sum = new double[WINDOW];
+        private final int[] count = new int[WINDOW];
+        private int head = -1;
+        private int size;
+        private double windowSum;
+        private double windowSumSq;
+
+        void add(long epochDay, double value) {
+            if (size > 0) {
+                // Mesure d'un jour déjà présent (le plus souvent aujourd'hui)
+                for (int i = 0; i < size; i++) {
+                    int slot = Math.floorMod(head - i, WINDOW);
+                    if (day[slot] == epochDay) {
+                        double before = sum[slot] / count[slot];
+                        sum[slot] += value;
+                        count[slot]++;
+                        double after = sum[slot] / count[slot];
+                        windowSum += after - before;
+                        windowSumSq += after * after - before * before;
+                        return;
+                    }
+                }
+                if (epochDay < day[head]) {
+                    // Mesure en retard pour un jour absent de la fenêtre: ignorée
+                    return;
+                }
+            }
+            head = (head + 1) % WINDOW;
+            day[head] = epochDay;
+            sum[head] = value;
+            count[head] = 1;
+            size = Math.min(WINDOW, size + 1);
+            // Recalcul exact à chaque nouveau jour (au plus WINDOW cases) pour éviter la dérive
+            windowSum = 0.0;
+            windowSumSq = 0.0;
+            for (int i = 0; i < size; i++) {
+                int slot = Math.floorMod(head - i, WINDOW);
+                double mean = sum[slot] / count[slot];
+                windowSum += mean;
+                windowSumSq += mean * mean;
+            }
+        }
+
+        /**
+         * out[0] = delta, out[1] = z-score de value pour le jour epochDay.
+         * La fenêtre = au plus WINDOW - 1 jours précédents + value (la journée en cours
+         * stockée est remplacée par value). false si moins de MIN_PERIODS points.
+         */
+        boolean features(long epochDay, double value, double[] out) {
+            int n = size;
+            double s = windowSum;
+            double q = windowSumSq;
+            int newest = head;
+            if (n > 0 && day[newest] >= epochDay) {
+                double mean = sum[newest] / count[newest];
+                s -= mean;
+                q -= mean * mean;
+                n--;
+            }
+            if (n > WINDOW - 1) {
+                int oldest = Math.floorMod(head - (size - 1), WINDOW);
+                double mean = sum[oldest] / count[oldest];
+                s -= mean;
+                q -= mean * mean;
+                n--;
+            }
+            n++;
+            s += value;
+            q += value * value;
+            if (n < MIN_PERIODS) {
+                return false;
+            }
+            double mean = s / n;
+            double variance = Math.max(0.0, (q - s * s / n) / (n - 1));
+            double delta = value - mean;
+            out[0] = delta;
+            out[1] = delta / (Math.sqrt(variance) + 1e-6);
+            return true;
+        }
+
+        Double latest() {
+            return size == 0 ? null : sum[head] / count[head];
+        }
+    }
+}
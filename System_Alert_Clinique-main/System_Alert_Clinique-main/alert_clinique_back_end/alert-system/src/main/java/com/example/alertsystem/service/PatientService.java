@@ -15,11 +15,14 @@ import java.util.Optional;
 public class PatientService {
     private final PatientRepository patientRepository;
     private final UserRepository userRepository;
+    private final PatientDemographicsCache demographicsCache;
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
-    public PatientService(PatientRepository patientRepository, UserRepository userRepository) {
+    public PatientService(PatientRepository patientRepository, UserRepository userRepository,
+                          PatientDemographicsCache demographicsCache) {
         this.patientRepository = patientRepository;
         this.userRepository = userRepository;
+        this.demographicsCache = demographicsCache;
     }
 
     public List<Patient> getAllPatients() {
@@ -82,6 +85,7 @@ public class PatientService {
             }
             
             Patient savedPatient = patientRepository.save(patient);
+            demographicsCache.invalidate(id);
             
             // Mettre à jour aussi l'utilisateur dans la table users si l'email a changé ou le mot de passe
             final String finalEncodedPassword = encodedPassword;
@@ -101,5 +105,6 @@ public class PatientService {
 
     public void deletePatient(Long id) {
         patientRepository.deleteById(id);
+        demographicsCache.invalidate(id);
     }
 }
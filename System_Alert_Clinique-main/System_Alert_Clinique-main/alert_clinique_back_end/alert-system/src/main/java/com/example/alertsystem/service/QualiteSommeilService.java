@@ -2,23 +2,72 @@ package com.example.alertsystem.service;
 
 
 
+import com.example.alertsystem.dto.VitalSample;
 import org.springframework.stereotype.Service;
 import com.example.alertsystem.repository.QualiteSommeilRepository;
 import com.example.alertsystem.entities.QualiteSommeil;
+import com.example.alertsystem.entities.SeuilAlerte;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class QualiteSommeilService {
     private final QualiteSommeilRepository repository;
+    private final PatientFeatureWindow featureWindow;
+    private final ThresholdRuleEngine ruleEngine;
+    private final VitalsWriteBehindLog writeBehindLog;
 
-    public QualiteSommeilService(QualiteSommeilRepository repository) {
+    public QualiteSommeilService(QualiteSommeilRepository repository, PatientFeatureWindow featureWindow,
+                                 ThresholdRuleEngine ruleEngine, VitalsWriteBehindLog writeBehindLog) {
         this.repository = repository;
+        this.featureWindow = featureWindow;
+        this.ruleEngine = ruleEngine;
+        this.writeBehindLog = writeBehindLog;
     }
 
     public List<QualiteSommeil> getAll() { return repository.findAll(); }
     public Optional<QualiteSommeil> getById(Long id) { return repository.findById(id); }
-    public QualiteSommeil save(QualiteSommeil qs) { return repository.save(qs); }
+
+    public QualiteSommeil save(QualiteSommeil qs) {
+        QualiteSommeil saved = repository.save(qs);
+        if (saved.getPatient() != null) {
+            featureWindow.record(saved.getPatient().getId(), PatientFeatureWindow.Metric.SLEEP_DURATION,
+                sleepHours(saved.getDuree()), saved.getTimestamp());
+            ruleEngine.submit(saved.getPatient().getId(), SeuilAlerte.Metrique.SLEEP_HOURS,
+                sleepHours(saved.getDuree()), saved.getTimestamp());
+        }
+        return saved;
+    }
+
+    /**
+     * Mode write-behind: la mesure est acquittée une fois dans le journal local et écrite en
+     * base plus tard par group commit. false si le mode est désactivé ou le journal en
+     * erreur: l'appelant utilise alors save().
+     */
+    public boolean appendWriteBehind(QualiteSommeil qs) {
+        if (!writeBehindLog.isEnabled()) {
+            return false;
+        }
+        VitalSample sample = new VitalSample();
+        sample.setType("sleep");
+        sample.setPatient_id(qs.getPatient() != null ? qs.getPatient().getId() : null);
+        sample.setDuree(qs.getDuree());
+        sample.setTimestamp(qs.getTimestamp() != null ? qs.getTimestamp() : OffsetDateTime.now());
+        if (!VitalsStreamIngestionService.isValid(sample)) {
+            throw new IllegalArgumentException("patient.id et duree sont obligatoires");
+        }
+        return writeBehindLog.append(sample);
+    }
+
     public void delete(Long id) { repository.deleteById(id); }
+
+    /**
+     * duree est toujours en minutes (comme l'import CSV et les agrégats vital_rollup); les
+     * anciennes valeurs en heures se migrent avec migrate_sommeil_minutes.sql
+     */
+    static double sleepHours(int duree) {
+        return duree / 60.0;
+    }
 }
 
@@ -0,0 +1,92 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.AIPredictionRequest;
+import com.example.alertsystem.dto.AIPredictionResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Score de repli déterministe utilisé quand le service IA est indisponible.
+ * Additionne des pénalités sur les mêmes champs que le modèle (rythme cardiaque,
+ * variabilité, sommeil, humeur, âge) et compare le total au seuil ai.rules.threshold.
+ * Les prédictions produites sont marquées source = "rules".
+ */
+@Component
+public class RuleBasedScorer {
+    public static final String SOURCE = "rules";
+
+    private final double threshold;
+
+    public RuleBasedScorer(@Value("${ai.rules.threshold:0.5}") double threshold) {
+        this.threshold = threshold;
+    }
+
+    public AIPredictionResponse.PredictionData score(AIPredictionRequest request) {
+        double score = 0.0;
+
+        Double heartRate = request.getHeart_rate();
+        if (heartRate != null) {
+            if (heartRate >= 120) {
+                score += 0.5;
+            } else if (heartRate >= 100) {
+                score += 0.3;
+            } else if (heartRate < 45) {
+                score += 0.4;
+            } else if (heartRate < 50) {
+                score += 0.2;
+            }
+        }
+
+        Double hrv = request.getHr_variability();
+        if (hrv != null && hrv < 20) {
+            score += 0.2;
+        }
+
+        Double sleep = request.getSleep_duration_hours();
+        if (sleep != null) {
+            if (sleep < 4) {
+                score += 0.25;
+            } else if (sleep < 5.5) {
+                score += 0.1;
+            }
+        }
+
+        Double efficiency = request.getSleep_efficiency();
+        if (efficiency != null) {
+            // Accepte une efficacité en fraction (0.85) ou en pourcentage (85)
+            double ratio = efficiency > 1.0 ? efficiency / 100.0 : efficiency;
+            if (ratio < 0.7) {
+                score += 0.1;
+            }
+        }
+
+        Integer awakenings = request.getNum_awakenings();
+        if (awakenings != null && awakenings >= 4) {
+            score += 0.1;
+        }
+
+        Double mood = request.getMood_score();
+        if (mood != null) {
+            if (mood < 3) {
+                score += 0.2;
+            } else if (mood < 4) {
+                score += 0.1;
+            }
+        }
+
+        Integer age = request.getAge();
+        if (age != null && age >= 75) {
+            score += 0.05;
+        }
+
+        score = Math.min(1.0, score);
+
+        AIPredictionResponse.PredictionData prediction = new AIPredictionResponse.PredictionData();
+        prediction.setAnomaly_score(score);
+        prediction.setThreshold_used(threshold);
+        prediction.setAlert_flag(score >= threshold);
+        prediction.setConfidence(Math.abs(score - threshold));
+        prediction.setSource(SOURCE);
+        return prediction;
+    }
+}
@@ -1,22 +1,226 @@
 package com.example.alertsystem.service;
 
 
+import com.example.alertsystem.dto.KeysetPage;
+import com.example.alertsystem.dto.RecentRythmes;
+import com.example.alertsystem.dto.RythmeCardiaqueSample;
+import com.example.alertsystem.dto.RythmePoint;
+import com.example.alertsystem.entities.Patient;
+import com.example.alertsystem.entities.SeuilAlerte;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.example.alertsystem.repository.PatientRepository;
 import com.example.alertsystem.repository.RythmeCardiaqueRepository;
 import com.example.alertsystem.entities.RythmeCardiaque;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class RythmeCardiaqueService {
+    // Bornes par défaut de la plage de temps (timestamptz PostgreSQL)
+    private static final OffsetDateTime MIN_TIMESTAMP = Instant.EPOCH.atOffset(ZoneOffset.UTC);
+    private static final OffsetDateTime MAX_TIMESTAMP = OffsetDateTime.parse("9999-12-31T23:59:59Z");
+
     private final RythmeCardiaqueRepository repository;
+    private final PatientRepository patientRepository;
+    private final PatientFeatureWindow featureWindow;
+    private final HeartRateHotWindow hotWindow;
+    private final ThresholdRuleEngine ruleEngine;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Doit correspondre à spring.jpa.properties.hibernate.jdbc.batch_size
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
 
-    public RythmeCardiaqueService(RythmeCardiaqueRepository repository) {
+    @Value("${rythmes.page.default-limit:500}")
+    private int defaultPageLimit;
+
+    @Value("${rythmes.page.max-limit:5000}")
+    private int maxPageLimit;
+
+    public RythmeCardiaqueService(RythmeCardiaqueRepository repository, PatientRepository patientRepository,
+                                  PatientFeatureWindow featureWindow, HeartRateHotWindow hotWindow,
+                                  ThresholdRuleEngine ruleEngine) {
         this.repository = repository;
+        this.patientRepository = patientRepository;
+        this.featureWindow = featureWindow;
+        this.hotWindow = hotWindow;
+        this.ruleEngine = ruleEngine;
     }
 
     public List<RythmeCardiaque> getAll() { return repository.findAll(); }
     public Optional<RythmeCardiaque> getById(Long id) { return repository.findById(id); }
-    public RythmeCardiaque save(RythmeCardiaque rc) { return repository.save(rc); }
+
+    /**
+     * Mesures d'un patient sur [from, to), par ordre chronologique, limit lignes à partir du
+     * curseur "after" (next_cursor de la page précédente). Une ligne de plus est lue pour
+     * savoir s'il reste des résultats.
+     */
+    public KeysetPage<RythmePoint> getPageByPatient(Long patientId, OffsetDateTime from, OffsetDateTime to,
+                                                    String after, Integer limit) {
+        int pageSize = limit == null ? defaultPageLimit : Math.min(Math.max(1, limit), maxPageLimit);
+        OffsetDateTime lowerTs = from != null ? from : MIN_TIMESTAMP;
+        long lowerId = 0;
+        if (after != null && !after.isBlank()) {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            if (!cursor.timestamp().isBefore(lowerTs)) {
+                lowerTs = cursor.timestamp();
+                lowerId = cursor.id();
+            }
+        }
+
+        List<RythmePoint> rows = repository.findPageByPatient(patientId, lowerTs, lowerId,
+            to != null ? to : MAX_TIMESTAMP, Limit.of(pageSize + 1));
+
+        KeysetPage<RythmePoint> page = new KeysetPage<>();
+        page.setLimit(pageSize);
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            RythmePoint last = rows.get(pageSize - 1);
+            page.setNext_cursor(new KeysetCursor(last.getTimestamp(), last.getId()).encode());
+        }
+        page.setItems(rows);
+        return page;
+    }
+
+    /**
+     * Rythmes des "minutes" dernières minutes depuis la fenêtre chaude en mémoire (aucune
+     * requête SQL); lecture en base si la fenêtre n'est pas prête ou si la durée la dépasse.
+     * En base, au plus rythmes.page.max-limit mesures: les plus récentes.
+     */
+    public RecentRythmes getRecent(Long patientId, long minutes) {
+        long since = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(Math.max(1, minutes));
+        if (hotWindow.isReady() && TimeUnit.MINUTES.toMillis(minutes) <= hotWindow.getWindowMillis()) {
+            return hotWindow.recent(patientId, since);
+        }
+        List<RythmePoint> rows = repository.findLatestByPatient(patientId,
+            Instant.ofEpochMilli(since).atOffset(ZoneOffset.UTC), Limit.of(maxPageLimit));
+        RecentRythmes recent = new RecentRythmes();
+        recent.setPatient_id(patientId);
+        recent.setFrom(since);
+        recent.setSource("database");
+        // Lues de la plus récente à la plus ancienne: remises dans l'ordre chronologique
+        int n = rows.size();
+        long[] timestamps = new long[n];
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            RythmePoint row = rows.get(n - 1 - i);
+            timestamps[i] = row.getTimestamp().toInstant().toEpochMilli();
+            values[i] = row.getValeur();
+        }
+        recent.setTimestamps(timestamps);
+        recent.setValues(values);
+        return recent;
+    }
+
+    public RythmeCardiaque save(RythmeCardiaque rc) {
+        RythmeCardiaque saved = repository.save(rc);
+        if (saved.getPatient() != null) {
+            Recorded recorded = new Recorded(saved.getPatient().getId(), saved.getValeur(), saved.getTimestamp());
+            afterCommit(() -> record(List.of(recorded)));
+            ruleEngine.submit(saved.getPatient().getId(), SeuilAlerte.Metrique.HEART_RATE,
+                saved.getValeur(), saved.getTimestamp());
+        }
+        return saved;
+    }
+
+    /**
+     * Insère un lot de mesures dans une seule transaction.
+     * Les patients sont vérifiés en une requête puis référencés sans être chargés; le contexte
+     * de persistance est vidé tous les jdbcBatchSize INSERT pour que Hibernate les envoie
+     * en batch JDBC et que la mémoire reste bornée. Les mesures sans valeur ou dont le patient
+     * n'existe pas sont ignorées et comptées dans "rejected". Les fenêtres mémoire (features,
+     * fenêtre chaude) ne reçoivent le lot qu'après le commit.
+     */
+    @Transactional
+    public Map<String, Object> saveBatch(List<RythmeCardiaqueSample> samples) {
+        Set<Long> patientIds = new HashSet<>();
+        for (RythmeCardiaqueSample sample : samples) {
+            if (sample != null && sample.getPatient_id() != null) {
+                patientIds.add(sample.getPatient_id());
+            }
+        }
+        Set<Long> existing = patientIds.isEmpty() ? Set.of() : new HashSet<>(patientRepository.findExistingIds(patientIds));
+        Map<Long, Patient> references = new HashMap<>();
+        List<Recorded> recorded = new ArrayList<>();
+
+        int inserted = 0;
+        int rejected = 0;
+        int batchSize = Math.max(1, jdbcBatchSize);
+        OffsetDateTime now = OffsetDateTime.now();
+        for (RythmeCardiaqueSample sample : samples) {
+            if (sample == null || sample.getValeur() == null || !existing.contains(sample.getPatient_id())) {
+                rejected++;
+                continue;
+            }
+            RythmeCardiaque rc = new RythmeCardiaque();
+            rc.setValeur(sample.getValeur());
+            rc.setTimestamp(sample.getTimestamp() != null ? sample.getTimestamp() : now);
+            rc.setPatient(references.computeIfAbsent(sample.getPatient_id(),
+                id -> entityManager.getReference(Patient.class, id)));
+            entityManager.persist(rc);
+            recorded.add(new Recorded(sample.getPatient_id(), rc.getValeur(), rc.getTimestamp()));
+            ruleEngine.submit(sample.getPatient_id(), SeuilAlerte.Metrique.HEART_RATE, rc.getValeur(), rc.getTimestamp());
+            if (++inserted % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                references.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        afterCommit(() -> record(recorded));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("received", samples.size());
+        result.put("inserted", inserted);
+        result.put("rejected", rejected);
+        return result;
+    }
+
     public void delete(Long id) { repository.deleteById(id); }
+
+    private record Recorded(Long patientId, int valeur, OffsetDateTime timestamp) {
+    }
+
+    private void record(List<Recorded> samples) {
+        for (Recorded sample : samples) {
+            featureWindow.record(sample.patientId(), PatientFeatureWindow.Metric.HEART_RATE,
+                sample.valeur(), sample.timestamp());
+            hotWindow.record(sample.patientId(), sample.valeur(), sample.timestamp());
+        }
+    }
+
+    /**
+     * Une mesure annulée par rollback ne doit pas rester dans les fenêtres mémoire
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package com.example.alertsystem.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+
+/**
+ * Export de l'historique de rythme cardiaque d'un patient au format HeartRateCodec.
+ * Lu par curseur JDBC (fetch size, transaction lecture seule) et encodé directement dans
+ * la réponse: ni entité ni liste en mémoire, quelle que soit la durée exportée.
+ */
+@Service
+public class RythmeExportService {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public RythmeExportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        // JdbcTemplate dédié: le fetch size ne doit pas s'appliquer aux autres requêtes
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(5000);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Ecrit les mesures de [from, to) dans out; renvoie le nombre de mesures exportées
+     */
+    public long export(long patientId, OffsetDateTime from, OffsetDateTime to, OutputStream out) throws IOException {
+        HeartRateCodec.Encoder encoder = new HeartRateCodec.Encoder(out, patientId);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(
+                "SELECT timestamp, valeur FROM rythme_cardiaque "
+                    + "WHERE patient_id = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp, id",
+                (RowCallbackHandler) rs -> {
+                    try {
+                        encoder.add(rs.getTimestamp(1).getTime(), rs.getInt(2));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                },
+                patientId, Timestamp.from(from.toInstant()), Timestamp.from(to.toInstant())));
+        } catch (UncheckedIOException e) {
+            // Client déconnecté pendant l'export
+            throw e.getCause();
+        }
+        encoder.finish();
+        return encoder.getCount();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.entities.SeuilAlerte;
+import com.example.alertsystem.repository.SeuilAlerteRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * CRUD des seuils d'alerte; chaque modification recompile la table du ThresholdRuleEngine
+ */
+@Service
+public class SeuilAlerteService {
+    private final SeuilAlerteRepository repository;
+    private final ThresholdRuleEngine ruleEngine;
+
+    public SeuilAlerteService(SeuilAlerteRepository repository, ThresholdRuleEngine ruleEngine) {
+        this.repository = repository;
+        this.ruleEngine = ruleEngine;
+    }
+
+    public List<SeuilAlerte> getAll() { return repository.findAll(); }
+    public Optional<SeuilAlerte> getById(Long id) { return repository.findById(id); }
+
+    public SeuilAlerte save(SeuilAlerte seuil) {
+        validate(seuil);
+        SeuilAlerte saved = repository.save(seuil);
+        ruleEngine.reload();
+        return saved;
+    }
+
+    public Optional<SeuilAlerte> update(Long id, SeuilAlerte details) {
+        validate(details);
+        return repository.findById(id).map(seuil -> {
+            seuil.setMetrique(details.getMetrique());
+            seuil.setPatientId(details.getPatientId());
+            seuil.setCondition(details.getCondition());
+            seuil.setMin(details.getMin());
+            seuil.setMax(details.getMax());
+            seuil.setType(details.getType());
+            seuil.setActif(details.isActif());
+            SeuilAlerte saved = repository.save(seuil);
+            ruleEngine.reload();
+            return saved;
+        });
+    }
+
+    public void delete(Long id) {
+        repository.deleteById(id);
+        ruleEngine.reload();
+    }
+
+    private static void validate(SeuilAlerte seuil) {
+        if (seuil.getMetrique() == null) {
+            throw new IllegalArgumentException("metrique est obligatoire (HEART_RATE, SLEEP_HOURS, MOOD_SCORE)");
+        }
+        if (seuil.getMin() == null && seuil.getMax() == null) {
+            throw new IllegalArgumentException("Au moins une borne (min ou max) est obligatoire");
+        }
+        if (seuil.getMin() != null && seuil.getMax() != null && seuil.getMin() > seuil.getMax()) {
+            throw new IllegalArgumentException("min doit être inférieur ou égal à max");
+        }
+    }
+}
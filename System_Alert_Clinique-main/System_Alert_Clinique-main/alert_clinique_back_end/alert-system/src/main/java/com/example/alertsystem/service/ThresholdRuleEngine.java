@@ -0,0 +1,442 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.AlerteDto;
+import com.example.alertsystem.entities.Alerte;
+import com.example.alertsystem.entities.HistoriqueAlerte;
+import com.example.alertsystem.entities.Patient;
+import com.example.alertsystem.entities.SeuilAlerte;
+import com.example.alertsystem.repository.PatientRepository;
+import com.example.alertsystem.repository.SeuilAlerteRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moteur de seuils: chaque mesure enregistrée (rythme cardiaque, sommeil, humeur) est
+ * comparée aux seuils actifs du patient; un dépassement crée une Alerte et son
+ * HistoriqueAlerte.
+ *
+ * Les SeuilAlerte sont compilés en une table immuable patient -> règles par mesure
+ * (bornes en double, NaN = pas de borne), republiée à chaque modification des seuils et
+ * toutes les refresh-interval-ms (pathologies des patients). Les mesures sont déposées
+ * après le commit dans une file bornée; un thread dédié les évalue et écrit les alertes
+ * par lots: l'enregistrement des mesures n'attend jamais l'évaluation.
+ * Les dépassements d'un patient supprimé depuis la mesure sont ignorés. Base indisponible,
+ * le lot d'alertes est retenté toutes les retry-delay-ms; lot refusé pour une autre raison,
+ * chaque alerte est réécrite seule et seules celles qui échouent encore sont perdues.
+ */
+@Component
+public class ThresholdRuleEngine {
+    private static final SeuilAlerte.Metrique[] METRIQUES = SeuilAlerte.Metrique.values();
+
+    /**
+     * Seuil compilé
+     */
+    record Rule(long seuilId, SeuilAlerte.Metrique metrique, double min, double max, String type) {
+        boolean breached(double value) {
+            return value < min || value > max;
+        }
+    }
+
+    /**
+     * Règles par patient et par mesure; un patient absent de byPatient (ou une mesure sans
+     * règle spécifique) utilise les règles globales.
+     */
+    static final class RuleTable {
+        static final RuleTable EMPTY = new RuleTable(Map.of(), new Rule[METRIQUES.length][], 0);
+
+        private final Map<Long, Rule[][]> byPatient;
+        private final Rule[][] global;
+        private final int size;
+
+        RuleTable(Map<Long, Rule[][]> byPatient, Rule[][] global, int size) {
+            this.byPatient = byPatient;
+            this.global = global;
+            this.size = size;
+        }
+
+        Rule[] rules(long patientId, SeuilAlerte.Metrique metrique) {
+            Rule[][] own = byPatient.get(patientId);
+            Rule[] rules = own != null ? own[metrique.ordinal()] : null;
+            return rules != null ? rules : global[metrique.ordinal()];
+        }
+    }
+
+    record Sample(long patientId, SeuilAlerte.Metrique metrique, double value, OffsetDateTime timestamp) {
+    }
+
+    record Breach(Sample sample, Rule rule) {
+    }
+
+    private final SeuilAlerteRepository seuilRepository;
+    private final PatientRepository patientRepository;
+    private final AlerteStreamService alerteStreamService;
+    private final AlerteDedupIndex dedupIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final BlockingQueue<Sample> queue;
+    private volatile RuleTable table = RuleTable.EMPTY;
+    private volatile boolean running = true;
+    private Thread evaluator;
+
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder alertsCreated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder unknownPatient = new LongAdder();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${rules.retry-delay-ms:1000}")
+    private long retryDelayMs = 1000;
+
+    public ThresholdRuleEngine(SeuilAlerteRepository seuilRepository,
+                               PatientRepository patientRepository,
+                               AlerteStreamService alerteStreamService,
+                               AlerteDedupIndex dedupIndex,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${rules.enabled:true}") boolean enabled,
+                               @Value("${rules.queue-capacity:50000}") int queueCapacity,
+                               @Value("${rules.batch-size:500}") int batchSize) {
+        this.seuilRepository = seuilRepository;
+        this.patientRepository = patientRepository;
+        this.alerteStreamService = alerteStreamService;
+        this.dedupIndex = dedupIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    @PostConstruct
+    void startEvaluator() {
+        evaluator = new Thread(this::evaluateLoop, "rule-evaluator");
+        evaluator.setDaemon(true);
+        evaluator.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        evaluator.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Recompile les seuils actifs (au démarrage, après modification d'un seuil, et
+     * périodiquement pour suivre les changements de pathologie des patients)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${rules.refresh-interval-ms:60000}", initialDelayString = "${rules.refresh-interval-ms:60000}")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        List<SeuilAlerte> seuils = seuilRepository.findByActifTrue();
+        Set<String> conditions = new HashSet<>();
+        for (SeuilAlerte seuil : seuils) {
+            if (seuil.getPatientId() == null && normalize(seuil.getCondition()) != null) {
+                conditions.add(normalize(seuil.getCondition()));
+            }
+        }
+        Map<Long, String> conditionByPatient = new HashMap<>();
+        if (!conditions.isEmpty()) {
+            for (PatientRepository.PatientCondition pc : patientRepository.findByNormalizedConditionIn(conditions)) {
+                conditionByPatient.put(pc.getId(), pc.getCondition());
+            }
+        }
+        table = compile(seuils, conditionByPatient);
+    }
+
+    /**
+     * Table de règles: pour chaque mesure, les seuils du patient s'ils existent, sinon ceux
+     * de sa pathologie, sinon les seuils globaux
+     */
+    static RuleTable compile(List<SeuilAlerte> seuils, Map<Long, String> conditionByPatient) {
+        Map<Long, Rule[][]> patientRules = new HashMap<>();
+        Map<String, Rule[][]> conditionRules = new HashMap<>();
+        Rule[][] global = new Rule[METRIQUES.length][];
+        int size = 0;
+        for (SeuilAlerte seuil : seuils) {
+            if (!seuil.isActif() || seuil.getMetrique() == null || (seuil.getMin() == null && seuil.getMax() == null)) {
+                continue;
+            }
+            Rule rule = new Rule(seuil.getId() != null ? seuil.getId() : 0, seuil.getMetrique(),
+                seuil.getMin() != null ? seuil.getMin() : Double.NaN,
+                seuil.getMax() != null ? seuil.getMax() : Double.NaN,
+                seuil.getType() != null && !seuil.getType().isBlank() ? seuil.getType() : seuil.getMetrique().getTypeAlerte());
+            String condition = normalize(seuil.getCondition());
+            Rule[][] level;
+            if (seuil.getPatientId() != null) {
+                level = patientRules.computeIfAbsent(seuil.getPatientId(), id -> new Rule[METRIQUES.length][]);
+            } else if (condition != null) {
+                level = conditionRules.computeIfAbsent(condition, c -> new Rule[METRIQUES.length][]);
+            } else {
+                level = global;
+            }
+            int m = rule.metrique().ordinal();
+            level[m] = append(level[m], rule);
+            size++;
+        }
+
+        Map<Long, Rule[][]> byPatient = new HashMap<>();
+        for (Map.Entry<Long, String> entry : conditionByPatient.entrySet()) {
+            Rule[][] rules = conditionRules.get(entry.getValue());
+            if (rules != null) {
+                byPatient.put(entry.getKey(), rules.clone());
+            }
+        }
+        for (Map.Entry<Long, Rule[][]> entry : patientRules.entrySet()) {
+            Rule[][] merged = byPatient.computeIfAbsent(entry.getKey(), id -> new Rule[METRIQUES.length][]);
+            for (int m = 0; m < METRIQUES.length; m++) {
+                if (entry.getValue()[m] != null) {
+                    merged[m] = entry.getValue()[m];
+                }
+            }
+        }
+        return new RuleTable(byPatient, global, size);
+    }
+
+    private static Rule[] append(Rule[] rules, Rule rule) {
+        if (rules == null) {
+            return new Rule[] {rule};
+        }
+        Rule[] grown = Arrays.copyOf(rules, rules.length + 1);
+        grown[rules.length] = rule;
+        return grown;
+    }
+
+    static String normalize(String condition) {
+        return condition == null || condition.isBlank() ? null : condition.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Soumet une mesure enregistrée; dans une transaction, elle n'est évaluée qu'après le
+     * commit. Sans règle applicable la mesure n'est pas mise en file.
+     */
+    public void submit(Long patientId, SeuilAlerte.Metrique metrique, double value, OffsetDateTime timestamp) {
+        if (!enabled || patientId == null || Double.isNaN(value) || table.rules(patientId, metrique) == null) {
+            return;
+        }
+        Sample sample = new Sample(patientId, metrique, value, timestamp != null ? timestamp : OffsetDateTime.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(sample);
+                }
+            });
+        } else {
+            enqueue(sample);
+        }
+    }
+
+    private void enqueue(Sample sample) {
+        if (!queue.offer(sample)) {
+            // File pleine: l'ingestion passe avant l'évaluation
+            dropped.increment();
+        }
+    }
+
+    private void evaluateLoop() {
+        List<Sample> batch = new ArrayList<>(batchSize);
+        List<Breach> breaches = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Sample first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                RuleTable current = table;
+                for (Sample sample : batch) {
+                    Rule[] rules = current.rules(sample.patientId(), sample.metrique());
+                    if (rules != null) {
+                        for (Rule rule : rules) {
+                            if (rule.breached(sample.value())) {
+                                breaches.add(new Breach(sample, rule));
+                            }
+                        }
+                    }
+                }
+                evaluated.add(batch.size());
+                if (!breaches.isEmpty()) {
+                    write(breaches);
+                }
+            } catch (InterruptedException e) {
+                failed.add(breaches.size());
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+                breaches.clear();
+            }
+        }
+    }
+
+    /**
+     * Écrit les alertes du lot: base indisponible, le lot est gardé et retenté (jusqu'à
+     * l'arrêt du moteur); lot refusé, réécriture alerte par alerte
+     */
+    private void write(List<Breach> breaches) throws InterruptedException {
+        while (!breaches.isEmpty()) {
+            try {
+                writeAlerts(breaches);
+                breaches.clear();
+                return;
+            } catch (RuntimeException e) {
+                if (!VitalsWriteBehindLog.isTransient(e)) {
+                    writeOneByOne(breaches);
+                    if (breaches.isEmpty()) {
+                        return;
+                    }
+                }
+            }
+            if (!running) {
+                failed.add(breaches.size());
+                breaches.clear();
+                return;
+            }
+            retries.increment();
+            Thread.sleep(Math.max(1, retryDelayMs));
+        }
+    }
+
+    /**
+     * Chaque alerte écrite dans sa propre transaction; celles qui échouent encore sont
+     * perdues. Base devenue indisponible: le lot garde les alertes pas encore écrites.
+     */
+    private void writeOneByOne(List<Breach> breaches) {
+        int done = 0;
+        for (Breach breach : breaches) {
+            try {
+                writeAlerts(List.of(breach));
+            } catch (RuntimeException e) {
+                if (VitalsWriteBehindLog.isTransient(e)) {
+                    break;
+                }
+                failed.increment();
+            }
+            done++;
+        }
+        breaches.subList(0, done).clear();
+    }
+
+    void writeAlerts(List<Breach> breaches) {
+        Set<Long> patientIds = new HashSet<>();
+        for (Breach breach : breaches) {
+            patientIds.add(breach.sample().patientId());
+        }
+        int[] created = new int[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            // Patients supprimés depuis la mesure: leurs alertes violeraient la clé étrangère
+            Set<Long> existing = new HashSet<>(patientRepository.findExistingIds(patientIds));
+            // Alertes créées par ce lot: pas encore dans l'index de déduplication avant le commit
+            Map<AlerteDedupIndex.Key, Alerte> openedInBatch = new HashMap<>();
+            for (Breach breach : breaches) {
+                long patientId = breach.sample().patientId();
+                if (!existing.contains(patientId)) {
+                    unknownPatient.increment();
+                    continue;
+                }
+                AlerteDedupIndex.Key key = new AlerteDedupIndex.Key(patientId, null, breach.rule().type());
+                OffsetDateTime timestamp = breach.sample().timestamp();
+                // Occurrence comptée au commit du lot seulement
+                if (dedupIndex.fold(key, timestamp) != null) {
+                    continue;
+                }
+                Alerte opened = openedInBatch.get(key);
+                if (opened != null && dedupIndex.isEnabled() && timestamp.isBefore(opened.getTimestamp().plus(dedupIndex.getWindow()))) {
+                    opened.setOccurrences(opened.getOccurrences() + 1);
+                    if (opened.getLastSeen() == null || timestamp.isAfter(opened.getLastSeen())) {
+                        opened.setLastSeen(timestamp);
+                    }
+                    continue;
+                }
+
+                Patient patient = entityManager.getReference(Patient.class, patientId);
+                String message = message(breach.rule(), breach.sample().value());
+
+                Alerte alerte = new Alerte();
+                alerte.setType(breach.rule().type());
+                alerte.setMessage(message);
+                alerte.setTimestamp(breach.sample().timestamp());
+                alerte.setPatient(patient);
+                entityManager.persist(alerte);
+
+                HistoriqueAlerte historique = new HistoriqueAlerte();
+                historique.setDescription(message);
+                historique.setPatient(patient);
+                historique.setAlerte(alerte);
+                entityManager.persist(historique);
+
+                // Diffusé au commit du lot (le patient est chargé une fois par lot pour son nom)
+                alerteStreamService.publish(AlerteDto.fromEntity(alerte));
+                dedupIndex.open(key, alerte.getId(), timestamp);
+                openedInBatch.put(key, alerte);
+                created[0]++;
+            }
+        });
+        alertsCreated.add(created[0]);
+    }
+
+    static String message(Rule rule, double value) {
+        String bounds;
+        if (Double.isNaN(rule.min())) {
+            bounds = "max " + format(rule.max());
+        } else if (Double.isNaN(rule.max())) {
+            bounds = "min " + format(rule.min());
+        } else {
+            bounds = "[" + format(rule.min()) + " - " + format(rule.max()) + "]";
+        }
+        return rule.metrique().getLibelle() + " " + format(value) + " hors seuil " + bounds
+            + " (seuil #" + rule.seuilId() + ")";
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    public Map<String, Object> getStats() {
+        RuleTable current = table;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("rules", current.size);
+        stats.put("patientsWithRules", current.byPatient.size());
+        stats.put("queued", queue.size());
+        stats.put("evaluated", evaluated.sum());
+        stats.put("alertsCreated", alertsCreated.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("failed", failed.sum());
+        stats.put("retries", retries.sum());
+        stats.put("unknownPatient", unknownPatient.sum());
+        return stats;
+    }
+}
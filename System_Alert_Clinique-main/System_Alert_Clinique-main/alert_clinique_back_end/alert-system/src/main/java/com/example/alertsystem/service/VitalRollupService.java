@@ -0,0 +1,266 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.RollupSeries;
+import com.example.alertsystem.entities.RollupWatermark;
+import com.example.alertsystem.entities.VitalRollup.Metric;
+import com.example.alertsystem.entities.VitalRollup.Resolution;
+import com.example.alertsystem.repository.VitalRollupRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Agrégats minute / heure / jour (min, max, somme, nombre, dernière valeur) des rythmes
+ * cardiaques et des durées de sommeil, maintenus par rattrapage incrémental.
+ *
+ * Les lignes brutes sont parcourues dans l'ordre (ingest_xid, id), ingest_xid étant la
+ * transaction qui les a insérées (valeur par défaut de la colonne, donc renseignée par toutes
+ * les voies d'écriture: unitaire, batch, flux NDJSON, COPY). Les ids ne suivent pas l'ordre
+ * des commits (séquence allouée par blocs de 50, imports longs): un passage ne prend que les
+ * transactions antérieures à la plus ancienne encore en cours (xmin du snapshot), aucune ligne
+ * ne peut donc plus apparaître derrière le high-water mark (rollup_watermark). L'intégration
+ * se fait en SQL (GROUP BY + INSERT ... ON CONFLICT) et le high-water mark avance dans la même
+ * transaction: une ligne n'est jamais comptée deux fois.
+ *
+ * La colonne ingest_xid et son index sont créés par create_tables.sql, ou sur une base
+ * antérieure par migrate_rollup_ingest_xid.sql: au premier passage, sa présence est seulement
+ * vérifiée et la mesure n'est pas agrégée tant qu'elle manque. Les suppressions de lignes
+ * brutes ne sont pas répercutées. PostgreSQL 13+.
+ */
+@Service
+public class VitalRollupService {
+
+    private final VitalRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long chunkSize;
+    private final int defaultPoints;
+    private final int maxPoints;
+    private final AtomicBoolean running = new AtomicBoolean();
+    // Mesures dont la colonne ingest_xid a été vérifiée (thread du @Scheduled uniquement)
+    private final Set<Metric> ingestColumnChecked = EnumSet.noneOf(Metric.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public VitalRollupService(VitalRollupRepository rollupRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${rollups.enabled:true}") boolean enabled,
+                              @Value("${rollups.chunk-size:50000}") long chunkSize,
+                              @Value("${rollups.query.default-points:300}") int defaultPoints,
+                              @Value("${rollups.query.max-points:2000}") int maxPoints) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.defaultPoints = Math.max(1, defaultPoints);
+        this.maxPoints = Math.max(this.defaultPoints, maxPoints);
+    }
+
+    /**
+     * Série agrégée d'un patient sur [from, to): résolution la plus grossière qui donne
+     * au moins "points" intervalles (minute si même l'heure n'en donne pas assez).
+     */
+    public RollupSeries getSeries(Long patientId, Metric metric, OffsetDateTime from, OffsetDateTime to, Integer points) {
+        OffsetDateTime end = to != null ? to : OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime start = from != null ? from : end.minusDays(7);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from doit être antérieur à to");
+        }
+        int wanted = points == null ? defaultPoints : Math.min(Math.max(1, points), maxPoints);
+        Resolution resolution = chooseResolution(Duration.between(start, end), wanted);
+
+        RollupSeries series = new RollupSeries();
+        series.setMetric(metric.name());
+        series.setResolution(resolution.name());
+        series.setFrom(start);
+        series.setTo(end);
+        series.setPoints(rollupRepository.findSeries(metric, patientId, resolution, start, end));
+        return series;
+    }
+
+    static Resolution chooseResolution(Duration range, int points) {
+        long seconds = range.getSeconds();
+        for (Resolution resolution : new Resolution[]{Resolution.DAY, Resolution.HOUR}) {
+            if (seconds / resolution.getSeconds() >= points) {
+                return resolution;
+            }
+        }
+        return Resolution.MINUTE;
+    }
+
+    @Scheduled(fixedDelayString = "${rollups.interval-ms:30000}", initialDelayString = "${rollups.initial-delay-ms:10000}")
+    public void catchUp() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        RuntimeException failure = null;
+        try {
+            for (Metric metric : Metric.values()) {
+                try {
+                    catchUp(metric);
+                } catch (RuntimeException e) {
+                    // Les autres mesures sont quand même rattrapées
+                    failure = failure == null ? e : failure;
+                }
+            }
+        } finally {
+            running.set(false);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** Position (transaction d'insertion, id) d'une ligne brute dans l'ordre de rattrapage */
+    record Position(long xid, long id) {
+        boolean isAfter(Position other) {
+            return xid > other.xid || (xid == other.xid && id > other.id);
+        }
+    }
+
+    private void catchUp(Metric metric) {
+        if (!ingestColumnChecked.contains(metric)) {
+            checkIngestColumn(metric);
+            ingestColumnChecked.add(metric);
+        }
+        long horizon = snapshotHorizon();
+        Position lo = watermark(metric);
+        while (true) {
+            Position hi = chunkEnd(metric, lo, horizon);
+            boolean last = hi == null;
+            if (last) {
+                // Dernière tranche: jusqu'à l'horizon, qu'aucune ligne ne peut plus précéder
+                hi = new Position(horizon - 1, Long.MAX_VALUE);
+                if (!hi.isAfter(lo)) {
+                    return;
+                }
+            }
+            integrate(metric, lo, hi);
+            if (last) {
+                return;
+            }
+            lo = hi;
+        }
+    }
+
+    /** Toute transaction d'xid inférieur est terminée: ses lignes sont visibles, ou ne le seront jamais */
+    long snapshotHorizon() {
+        return ((Number) entityManager.createNativeQuery(
+            "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint").getSingleResult()).longValue();
+    }
+
+    /** High-water mark de la mesure; origine si aucun, ou s'il date d'avant ingest_xid */
+    Position watermark(Metric metric) {
+        RollupWatermark mark = entityManager.find(RollupWatermark.class, metric);
+        return mark != null && mark.getLastXid() != null
+            ? new Position(mark.getLastXid(), mark.getLastId()) : new Position(0L, 0L);
+    }
+
+    /** Dernière ligne d'une tranche pleine après lo et avant l'horizon; null s'il en reste moins */
+    Position chunkEnd(Metric metric, Position lo, long horizon) {
+        List<?> bound = entityManager.createNativeQuery("SELECT ingest_xid, id FROM " + rawTable(metric)
+                + " WHERE (ingest_xid, id) > (:xid, :id) AND ingest_xid < :horizon "
+                + "ORDER BY ingest_xid, id OFFSET :skip LIMIT 1")
+            .setParameter("xid", lo.xid())
+            .setParameter("id", lo.id())
+            .setParameter("horizon", horizon)
+            .setParameter("skip", chunkSize - 1)
+            .getResultList();
+        if (bound.isEmpty()) {
+            return null;
+        }
+        Object[] row = (Object[]) bound.get(0);
+        return new Position(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+    }
+
+    /** Intègre la tranche ]lo, hi] dans chaque résolution et avance le high-water mark, en une transaction */
+    void integrate(Metric metric, Position lo, Position hi) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Resolution resolution : Resolution.values()) {
+                entityManager.createNativeQuery(upsertSql(metric, resolution))
+                    .setParameter("loXid", lo.xid())
+                    .setParameter("loId", lo.id())
+                    .setParameter("hiXid", hi.xid())
+                    .setParameter("hiId", hi.id())
+                    .executeUpdate();
+            }
+            RollupWatermark current = entityManager.find(RollupWatermark.class, metric);
+            if (current == null) {
+                entityManager.persist(new RollupWatermark(metric, hi.xid(), hi.id()));
+            } else {
+                current.setLastXid(hi.xid());
+                current.setLastId(hi.id());
+            }
+        });
+    }
+
+    /**
+     * Vérifie que la table brute a la colonne ingest_xid (aucun DDL à l'exécution); sinon
+     * la mesure est revérifiée au passage suivant
+     */
+    void checkIngestColumn(Metric metric) {
+        String table = rawTable(metric);
+        Number present = (Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE table_schema = current_schema() AND table_name = :table AND column_name = 'ingest_xid'")
+            .setParameter("table", table)
+            .getSingleResult();
+        if (present.longValue() == 0) {
+            throw new IllegalStateException("Colonne ingest_xid absente de " + table
+                + ": lancer migrate_rollup_ingest_xid.sql avant le rattrapage des agrégats");
+        }
+    }
+
+    private static String rawTable(Metric metric) {
+        return switch (metric) {
+            case HEART_RATE -> "rythme_cardiaque";
+            case SLEEP -> "qualite_sommeil";
+        };
+    }
+
+    private static String rawColumn(Metric metric) {
+        return switch (metric) {
+            case HEART_RATE -> "valeur";
+            case SLEEP -> "duree";
+        };
+    }
+
+    /**
+     * Agrège la tranche ](loXid, loId), (hiXid, hiId)] par patient et intervalle UTC puis fusionne avec
+     * l'existant: min/max par LEAST/GREATEST, somme et nombre additionnés, dernière valeur
+     * gardée selon le timestamp le plus récent.
+     */
+    private static String upsertSql(Metric metric, Resolution resolution) {
+        String v = rawColumn(metric);
+        String unit = resolution.name().toLowerCase();
+        return "INSERT INTO vital_rollup (metric, patient_id, resolution, bucket_start, min_value, max_value, "
+            + "sum_value, count_value, last_value, last_timestamp) "
+            + "SELECT '" + metric.name() + "', patient_id, '" + resolution.name() + "', "
+            + "date_trunc('" + unit + "', timestamp, 'UTC'), MIN(" + v + "), MAX(" + v + "), SUM(" + v + "), COUNT(*), "
+            + "(ARRAY_AGG(" + v + " ORDER BY timestamp DESC, id DESC))[1], MAX(timestamp) "
+            + "FROM " + rawTable(metric) + " "
+            + "WHERE (ingest_xid, id) > (:loXid, :loId) AND (ingest_xid, id) <= (:hiXid, :hiId) AND patient_id IS NOT NULL AND timestamp IS NOT NULL "
+            + "GROUP BY 2, 4 "
+            + "ON CONFLICT (metric, patient_id, resolution, bucket_start) DO UPDATE SET "
+            + "min_value = LEAST(vital_rollup.min_value, EXCLUDED.min_value), "
+            + "max_value = GREATEST(vital_rollup.max_value, EXCLUDED.max_value), "
+            + "sum_value = vital_rollup.sum_value + EXCLUDED.sum_value, "
+            + "count_value = vital_rollup.count_value + EXCLUDED.count_value, "
+            + "last_value = CASE WHEN EXCLUDED.last_timestamp >= vital_rollup.last_timestamp "
+            + "THEN EXCLUDED.last_value ELSE vital_rollup.last_value END, "
+            + "last_timestamp = GREATEST(vital_rollup.last_timestamp, EXCLUDED.last_timestamp)";
+    }
+
+}
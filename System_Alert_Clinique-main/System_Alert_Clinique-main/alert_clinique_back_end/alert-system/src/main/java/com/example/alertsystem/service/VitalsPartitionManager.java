@@ -0,0 +1,190 @@
+package com.example.alertsystem.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gestion des partitions mensuelles de rythme_cardiaque, qualite_sommeil et humeur
+ * (tables converties par migrate_partition_vitals.sql).
+ *
+ * Au démarrage puis chaque nuit: crée les partitions <table>_pAAAA_MM du mois courant et des
+ * months-ahead mois suivants, et détache (ou supprime) celles entièrement plus anciennes
+ * que retention-months. Une table non partitionnée est ignorée.
+ */
+@Component
+public class VitalsPartitionManager {
+    static final List<String> TABLES = List.of("rythme_cardiaque", "qualite_sommeil", "humeur");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final Pattern PARTITION_NAME = Pattern.compile("_p(\\d{4})_(\\d{2})$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean dropExpired;
+    private volatile Map<String, Object> lastReport = Map.of();
+
+    public VitalsPartitionManager(JdbcTemplate jdbcTemplate,
+                                  @Value("${partitions.enabled:true}") boolean enabled,
+                                  @Value("${partitions.months-ahead:3}") int monthsAhead,
+                                  @Value("${partitions.retention-months:0}") int retentionMonths,
+                                  @Value("${partitions.expired-action:detach}") String expiredAction) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.retentionMonths = Math.max(0, retentionMonths);
+        this.dropExpired = "drop".equalsIgnoreCase(expiredAction);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${partitions.cron:0 30 2 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        Map<String, Object> report = new HashMap<>();
+        for (String table : TABLES) {
+            report.put(table, maintain(table, current));
+        }
+        lastReport = report;
+    }
+
+    private Map<String, Object> maintain(String table, YearMonth current) {
+        Map<String, Object> result = new HashMap<>();
+        if (!isPartitioned(table)) {
+            result.put("partitioned", false);
+            return result;
+        }
+        result.put("partitioned", true);
+
+        List<String> created = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = partitionName(table, month);
+            try {
+                if (createPartition(table, name, month)) {
+                    created.add(name);
+                }
+            } catch (RuntimeException e) {
+                // Typiquement: la partition DEFAULT contient déjà des lignes de ce mois
+                errors.add(name + ": " + e.getMessage());
+            }
+        }
+
+        List<String> expired = new ArrayList<>();
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(retentionMonths);
+            for (String partition : listPartitions(table)) {
+                YearMonth month = monthOf(partition);
+                if (month != null && month.isBefore(oldestKept)) {
+                    try {
+                        expire(table, partition);
+                        expired.add(partition);
+                    } catch (RuntimeException e) {
+                        errors.add(partition + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        result.put("created", created);
+        result.put(dropExpired ? "dropped" : "detached", expired);
+        result.put("errors", errors);
+        return result;
+    }
+
+    /**
+     * Crée les partitions des mois [from, to] (ex: avant un import d'historique) pour que les
+     * lignes n'aillent pas dans la partition DEFAULT; renvoie les erreurs rencontrées
+     */
+    public List<String> ensureMonths(YearMonth from, YearMonth to) {
+        List<String> errors = new ArrayList<>();
+        for (String table : TABLES) {
+            if (!isPartitioned(table)) {
+                continue;
+            }
+            for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+                String name = partitionName(table, month);
+                try {
+                    createPartition(table, name, month);
+                } catch (RuntimeException e) {
+                    errors.add(name + ": " + e.getMessage());
+                }
+            }
+        }
+        return errors;
+    }
+
+    private boolean isPartitioned(String table) {
+        List<String> kinds = jdbcTemplate.queryForList(
+            "SELECT relkind::text FROM pg_class WHERE relname = ? AND relnamespace = current_schema()::regnamespace",
+            String.class, table);
+        return !kinds.isEmpty() && "p".equals(kinds.get(0));
+    }
+
+    private boolean createPartition(String table, String name, YearMonth month) {
+        if (!listPartitions(table).contains(name)) {
+            LocalDate start = month.atDay(1);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + table
+                + " FOR VALUES FROM ('" + start + " 00:00:00+00') TO ('" + start.plusMonths(1) + " 00:00:00+00')");
+            return true;
+        }
+        return false;
+    }
+
+    private void expire(String table, String partition) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+        if (dropExpired) {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        }
+    }
+
+    private List<String> listPartitions(String table) {
+        return jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                + "WHERE p.relname = ? AND p.relnamespace = current_schema()::regnamespace",
+            String.class, table);
+    }
+
+    static String partitionName(String table, YearMonth month) {
+        return table + "_p" + month.format(SUFFIX);
+    }
+
+    /**
+     * Mois d'une partition d'après son nom, ou null (partition DEFAULT, nom inconnu)
+     */
+    static YearMonth monthOf(String partition) {
+        Matcher m = PARTITION_NAME.matcher(partition);
+        return m.find() ? YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))) : null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(lastReport);
+        stats.put("enabled", enabled);
+        stats.put("monthsAhead", monthsAhead);
+        stats.put("retentionMonths", retentionMonths);
+        stats.put("expiredAction", dropExpired ? "drop" : "detach");
+        return stats;
+    }
+}
@@ -0,0 +1,381 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.VitalSample;
+import com.example.alertsystem.entities.Humeur;
+import com.example.alertsystem.entities.Patient;
+import com.example.alertsystem.entities.QualiteSommeil;
+import com.example.alertsystem.entities.RythmeCardiaque;
+import com.example.alertsystem.entities.SeuilAlerte;
+import com.example.alertsystem.repository.PatientRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.exc.StreamReadException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ingestion en flux NDJSON des constantes (rythme cardiaque, sommeil, humeur).
+ *
+ * Le thread HTTP lit le corps ligne par ligne (MappingIterator, jamais le corps entier en
+ * mémoire) et dépose chaque mesure dans une file bornée. Des threads d'écriture vident la
+ * file par lots de batch-size mesures, chaque lot dans sa propre transaction.
+ * Si la file est pleine, la lecture attend jusqu'à offer-timeout-ms (le client est ralenti
+ * par TCP); au-delà, la lecture s'arrête et le contrôleur répond 429 avec le nombre de
+ * lignes déjà acceptées pour que le client reprenne à la suite.
+ * Une mesure acceptée n'est pas abandonnée sur une erreur d'écriture: base indisponible, le
+ * lot est retenté toutes les retry-delay-ms; lot refusé (etat trop long, patient supprimé
+ * entre-temps...), chaque mesure est réécrite seule et seules celles qui échouent encore
+ * sont rejetées (compteur failed). À l'arrêt, la file est vidée en base (au plus
+ * shutdown-timeout-ms).
+ */
+@Service
+public class VitalsStreamIngestionService {
+
+    /**
+     * Bilan de lecture d'un flux: lines lues, accepted mises en file, rejected invalides.
+     * throttled = arrêt sur file pleine, error = JSON illisible (lecture arrêtée).
+     */
+    public record StreamResult(long lines, long accepted, long rejected, boolean throttled, String error) {
+    }
+
+    private final PatientRepository patientRepository;
+    private final PatientFeatureWindow featureWindow;
+    private final HeartRateHotWindow hotWindow;
+    private final ThresholdRuleEngine ruleEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader sampleReader;
+    private final BlockingQueue<VitalSample> queue;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+    private final int writerThreads;
+    private final long retryDelayMs;
+    private final long shutdownTimeoutMs;
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder unknownPatient = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder throttledStreams = new LongAdder();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Doit correspondre à spring.jpa.properties.hibernate.jdbc.batch_size
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+
+    public VitalsStreamIngestionService(PatientRepository patientRepository,
+                                        PatientFeatureWindow featureWindow,
+                                        HeartRateHotWindow hotWindow,
+                                        ThresholdRuleEngine ruleEngine,
+                                        PlatformTransactionManager transactionManager,
+                                        JsonMapper jsonMapper,
+                                        @Value("${vitals.stream.queue-capacity:20000}") int queueCapacity,
+                                        @Value("${vitals.stream.batch-size:500}") int batchSize,
+                                        @Value("${vitals.stream.offer-timeout-ms:2000}") long offerTimeoutMs,
+                                        @Value("${vitals.stream.writer-threads:2}") int writerThreads,
+                                        @Value("${vitals.stream.retry-delay-ms:1000}") long retryDelayMs,
+                                        @Value("${vitals.stream.shutdown-timeout-ms:30000}") long shutdownTimeoutMs) {
+        this.patientRepository = patientRepository;
+        this.featureWindow = featureWindow;
+        this.hotWindow = hotWindow;
+        this.ruleEngine = ruleEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sampleReader = jsonMapper.readerFor(VitalSample.class);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.offerTimeoutMs = Math.max(0, offerTimeoutMs);
+        this.writerThreads = Math.max(1, writerThreads);
+        this.retryDelayMs = Math.max(1, retryDelayMs);
+        this.shutdownTimeoutMs = Math.max(0, shutdownTimeoutMs);
+    }
+
+    @PostConstruct
+    void startWriters() {
+        for (int i = 1; i <= writerThreads; i++) {
+            Thread writer = new Thread(this::writeLoop, "vitals-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // Plus de nouvelle mesure acceptée; les writers vident la file avant de s'arrêter
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+        for (Thread writer : writers) {
+            writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        // Délai dépassé (base toujours indisponible): les mesures restantes sont comptées perdues
+        for (Thread writer : writers) {
+            writer.interrupt();
+        }
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(1));
+        }
+        failed.add(queue.size());
+        queue.clear();
+    }
+
+    /**
+     * Lit un flux NDJSON jusqu'au bout, ou jusqu'à ce que la file reste pleine trop longtemps
+     */
+    public StreamResult ingest(InputStream body) {
+        long lines = 0;
+        long accepted = 0;
+        long rejected = 0;
+        try (MappingIterator<VitalSample> it = sampleReader.readValues(body)) {
+            while (true) {
+                VitalSample sample;
+                try {
+                    if (!it.hasNextValue()) {
+                        break;
+                    }
+                    lines++;
+                    sample = it.nextValue();
+                } catch (StreamReadException e) {
+                    // JSON illisible: impossible de retrouver la ligne suivante de façon fiable
+                    return new StreamResult(lines, accepted, rejected, false,
+                        "JSON invalide ligne " + lines + ": " + e.getOriginalMessage());
+                } catch (JacksonException e) {
+                    // Ligne bien formée mais champ du mauvais type: on passe à la suivante
+                    rejected++;
+                    continue;
+                }
+                if (!isValid(sample)) {
+                    rejected++;
+                    continue;
+                }
+                if (!running || !queue.offer(sample, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    throttledStreams.increment();
+                    // La ligne courante n'est pas acceptée: le client la renverra
+                    return new StreamResult(lines - 1, accepted, rejected, true, null);
+                }
+                accepted++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new StreamResult(lines, accepted, rejected, false, "Lecture interrompue");
+        } catch (JacksonException e) {
+            return new StreamResult(lines, accepted, rejected, false, "Lecture du flux impossible: " + e.getOriginalMessage());
+        }
+        return new StreamResult(lines, accepted, rejected, false, null);
+    }
+
+    static boolean isValid(VitalSample sample) {
+        if (sample == null || sample.getPatient_id() == null || sample.getType() == null) {
+            return false;
+        }
+        return switch (sample.getType()) {
+            case "heart_rate" -> sample.getValeur() != null;
+            case "sleep" -> sample.getDuree() != null;
+            case "mood" -> sample.getEtat() != null && !sample.getEtat().isBlank();
+            default -> false;
+        };
+    }
+
+    private void writeLoop() {
+        List<VitalSample> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                VitalSample first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // Arrêt forcé: le lot en cours n'est pas écrit
+                failed.add(batch.size());
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Écrit le lot jusqu'au bout: base indisponible, il est gardé et retenté; lot refusé,
+     * réécriture mesure par mesure. Le lot ne contient plus que les mesures non écrites.
+     */
+    private void write(List<VitalSample> batch) throws InterruptedException {
+        while (!batch.isEmpty()) {
+            try {
+                recordWritten(writeBatch(batch));
+                batch.clear();
+                return;
+            } catch (RuntimeException e) {
+                if (!VitalsWriteBehindLog.isTransient(e)) {
+                    writeOneByOne(batch);
+                    if (batch.isEmpty()) {
+                        return;
+                    }
+                }
+            }
+            retries.increment();
+            Thread.sleep(retryDelayMs);
+        }
+    }
+
+    /**
+     * Chaque mesure réécrite seule; celles qui échouent encore sont rejetées. Si la base
+     * devient indisponible en cours de route, le lot garde les mesures pas encore écrites.
+     */
+    private void writeOneByOne(List<VitalSample> batch) {
+        int done = 0;
+        for (VitalSample sample : batch) {
+            try {
+                recordWritten(writeBatch(List.of(sample)));
+            } catch (RuntimeException e) {
+                if (VitalsWriteBehindLog.isTransient(e)) {
+                    break;
+                }
+                failed.increment();
+            }
+            done++;
+        }
+        batch.subList(0, done).clear();
+    }
+
+    private void recordWritten(List<VitalSample> saved) {
+        if (saved == null) {
+            return;
+        }
+        written.add(saved.size());
+        // Fenêtre glissante mise à jour après le commit seulement
+        for (VitalSample sample : saved) {
+            recordInWindow(sample);
+        }
+    }
+
+    /**
+     * Insère le lot dans une transaction (patients inconnus ignorés); renvoie les mesures écrites
+     */
+    List<VitalSample> writeBatch(List<VitalSample> batch) {
+        Set<Long> patientIds = new HashSet<>();
+        for (VitalSample sample : batch) {
+            patientIds.add(sample.getPatient_id());
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        return transactionTemplate.execute(status -> {
+            Set<Long> existing = new HashSet<>(patientRepository.findExistingIds(patientIds));
+            Map<Long, Patient> references = new HashMap<>();
+            List<VitalSample> saved = new ArrayList<>(batch.size());
+            int flushEvery = Math.max(1, jdbcBatchSize);
+            for (VitalSample sample : batch) {
+                if (!existing.contains(sample.getPatient_id())) {
+                    unknownPatient.increment();
+                    continue;
+                }
+                if (sample.getTimestamp() == null) {
+                    sample.setTimestamp(now);
+                }
+                Patient patient = references.computeIfAbsent(sample.getPatient_id(),
+                    id -> entityManager.getReference(Patient.class, id));
+                entityManager.persist(toEntity(sample, patient));
+                saved.add(sample);
+                if (saved.size() % flushEvery == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    references.clear();
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return saved;
+        });
+    }
+
+    private static Object toEntity(VitalSample sample, Patient patient) {
+        switch (sample.getType()) {
+            case "heart_rate" -> {
+                RythmeCardiaque rc = new RythmeCardiaque();
+                rc.setValeur(sample.getValeur());
+                rc.setTimestamp(sample.getTimestamp());
+                rc.setPatient(patient);
+                return rc;
+            }
+            case "sleep" -> {
+                QualiteSommeil qs = new QualiteSommeil();
+                qs.setDuree(sample.getDuree());
+                qs.setTimestamp(sample.getTimestamp());
+                qs.setPatient(patient);
+                return qs;
+            }
+            default -> {
+                Humeur h = new Humeur();
+                h.setEtat(sample.getEtat());
+                h.setTimestamp(sample.getTimestamp());
+                h.setPatient(patient);
+                return h;
+            }
+        }
+    }
+
+    private void recordInWindow(VitalSample sample) {
+        switch (sample.getType()) {
+            case "heart_rate" -> {
+                featureWindow.record(sample.getPatient_id(), PatientFeatureWindow.Metric.HEART_RATE,
+                    sample.getValeur(), sample.getTimestamp());
+                hotWindow.record(sample.getPatient_id(), sample.getValeur(), sample.getTimestamp());
+                ruleEngine.submit(sample.getPatient_id(), SeuilAlerte.Metrique.HEART_RATE,
+                    sample.getValeur(), sample.getTimestamp());
+            }
+            case "sleep" -> {
+                double hours = QualiteSommeilService.sleepHours(sample.getDuree());
+                featureWindow.record(sample.getPatient_id(), PatientFeatureWindow.Metric.SLEEP_DURATION,
+                    hours, sample.getTimestamp());
+                ruleEngine.submit(sample.getPatient_id(), SeuilAlerte.Metrique.SLEEP_HOURS,
+                    hours, sample.getTimestamp());
+            }
+            default -> {
+                Double mood = PatientFeatureWindow.moodScore(sample.getEtat());
+                if (mood != null) {
+                    featureWindow.record(sample.getPatient_id(), PatientFeatureWindow.Metric.MOOD,
+                        mood, sample.getTimestamp());
+                    ruleEngine.submit(sample.getPatient_id(), SeuilAlerte.Metrique.MOOD_SCORE,
+                        mood, sample.getTimestamp());
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("remainingCapacity", queue.remainingCapacity());
+        stats.put("written", written.sum());
+        stats.put("unknownPatient", unknownPatient.sum());
+        stats.put("failed", failed.sum());
+        stats.put("retries", retries.sum());
+        stats.put("throttledStreams", throttledStreams.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,543 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.VitalSample;
+import com.example.alertsystem.entities.Humeur;
+import com.example.alertsystem.entities.Patient;
+import com.example.alertsystem.entities.QualiteSommeil;
+import com.example.alertsystem.entities.SeuilAlerte;
+import com.example.alertsystem.repository.PatientRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Mode write-behind (optionnel) pour l'humeur et la qualité de sommeil.
+ *
+ * Une mesure acceptée est ajoutée en NDJSON au segment courant du journal local
+ * (dir/wal-N.log) et acquittée une fois le fsync fait; les requêtes concurrentes
+ * partagent le même fsync. Un thread écrit ensuite les mesures en attente dans PostgreSQL
+ * en une seule transaction dès batch-size mesures ou toutes les flush-interval-ms:
+ * le segment est fermé, son contenu inséré, puis le fichier supprimé après le commit.
+ * Au démarrage les segments restants (arrêt brutal) sont rejoués. Garantie "au moins une
+ * fois": un arrêt entre le commit et la suppression du segment rejoue ses mesures.
+ * Un lot refusé par la base (hors indisponibilité) est réécrit mesure par mesure; celles qui
+ * échouent encore vont dans dir/quarantine.log au lieu de bloquer le journal.
+ */
+@Component
+public class VitalsWriteBehindLog {
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    static final String QUARANTINE = "quarantine.log";
+
+    private final PatientRepository patientRepository;
+    private final PatientFeatureWindow featureWindow;
+    private final ThresholdRuleEngine ruleEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader sampleReader;
+    private final ObjectWriter sampleWriter;
+    private final boolean enabled;
+    private final Path dir;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final boolean fsync;
+
+    // Journal courant et mesures en attente: protégés par appendLock
+    private final Object appendLock = new Object();
+    private FileChannel channel;
+    private Path segment;
+    private long nextSegment;
+    private long appendedBytes;
+    private List<VitalSample> pending = new ArrayList<>();
+
+    // fsync groupé: protégé par syncLock (pris avant appendLock)
+    private final Object syncLock = new Object();
+    private long syncedBytes;
+
+    // Segments fermés et leurs mesures pas encore en base: thread d'écriture uniquement
+    private final List<Path> closedSegments = new ArrayList<>();
+    private final List<VitalSample> inflight = new ArrayList<>();
+
+    private Thread flusher;
+    private volatile boolean running = true;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder corrupt = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder unknownPatient = new LongAdder();
+    private final LongAdder groupCommits = new LongAdder();
+    private final LongAdder failedCommits = new LongAdder();
+    private final LongAdder quarantined = new LongAdder();
+    private final LongAdder fsyncs = new LongAdder();
+    private final LongAdder logErrors = new LongAdder();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Doit correspondre à spring.jpa.properties.hibernate.jdbc.batch_size
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+
+    public VitalsWriteBehindLog(PatientRepository patientRepository,
+                                PatientFeatureWindow featureWindow,
+                                ThresholdRuleEngine ruleEngine,
+                                PlatformTransactionManager transactionManager,
+                                JsonMapper jsonMapper,
+                                @Value("${writebehind.enabled:false}") boolean enabled,
+                                @Value("${writebehind.dir:data/write-behind}") String dir,
+                                @Value("${writebehind.batch-size:1000}") int batchSize,
+                                @Value("${writebehind.flush-interval-ms:1000}") long flushIntervalMs,
+                                @Value("${writebehind.fsync:true}") boolean fsync) {
+        this.patientRepository = patientRepository;
+        this.featureWindow = featureWindow;
+        this.ruleEngine = ruleEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sampleReader = jsonMapper.readerFor(VitalSample.class);
+        this.sampleWriter = jsonMapper.writerFor(VitalSample.class);
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(10, flushIntervalMs);
+        this.fsync = fsync;
+    }
+
+    /**
+     * Rejoue les segments laissés par l'exécution précédente puis ouvre un nouveau segment
+     */
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(dir);
+        for (Path leftover : listSegments()) {
+            try (BufferedReader reader = Files.newBufferedReader(leftover, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        inflight.add(sampleReader.readValue(line));
+                        replayed.increment();
+                    } catch (JacksonException e) {
+                        // Typiquement la dernière ligne, coupée par l'arrêt brutal
+                        corrupt.increment();
+                    }
+                }
+            }
+            closedSegments.add(leftover);
+            nextSegment = Math.max(nextSegment, segmentNumber(leftover) + 1);
+        }
+        synchronized (appendLock) {
+            openSegment();
+        }
+        flusher = new Thread(this::flushLoop, "write-behind-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException, IOException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        synchronized (appendLock) {
+            appendLock.notifyAll();
+        }
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        synchronized (appendLock) {
+            channel.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ajoute la mesure au journal; true une fois qu'elle est durable sur disque.
+     * false si le journal est désactivé ou en erreur: l'appelant enregistre alors en direct.
+     */
+    public boolean append(VitalSample sample) {
+        if (!enabled || !running) {
+            return false;
+        }
+        try {
+            ByteBuffer line = ByteBuffer.wrap((sampleWriter.writeValueAsString(sample) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+            long end;
+            synchronized (appendLock) {
+                while (line.hasRemaining()) {
+                    channel.write(line);
+                }
+                appendedBytes += line.capacity();
+                end = appendedBytes;
+                pending.add(sample);
+                if (pending.size() >= batchSize) {
+                    appendLock.notifyAll();
+                }
+            }
+            if (fsync) {
+                syncTo(end);
+            }
+            accepted.increment();
+            return true;
+        } catch (IOException | JacksonException e) {
+            logErrors.increment();
+            return false;
+        }
+    }
+
+    /**
+     * fsync jusqu'à l'octet end: le premier arrivé synchronise tout ce qui a été écrit,
+     * les suivants trouvent souvent leur ligne déjà couverte
+     */
+    private void syncTo(long end) throws IOException {
+        synchronized (syncLock) {
+            if (syncedBytes >= end) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (appendLock) {
+                target = appendedBytes;
+                current = channel;
+            }
+            current.force(false);
+            fsyncs.increment();
+            syncedBytes = target;
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (appendLock) {
+                if (running && pending.size() < batchSize) {
+                    try {
+                        appendLock.wait(flushIntervalMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            flush();
+            if (!running) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ferme le segment courant et écrit en base tout ce qui est en attente (group commit).
+     * Base indisponible: les mesures et les segments sont gardés pour la tentative suivante.
+     */
+    private void flush() {
+        try {
+            rotate();
+        } catch (IOException e) {
+            logErrors.increment();
+            return;
+        }
+        if (inflight.isEmpty()) {
+            deleteClosedSegments();
+            return;
+        }
+        try {
+            List<VitalSample> saved = writeBatch(inflight);
+            groupCommits.increment();
+            completed(saved);
+        } catch (RuntimeException e) {
+            failedCommits.increment();
+            if (!isTransient(e)) {
+                writeOneByOne();
+            }
+        }
+    }
+
+    /**
+     * Lot refusé pour une mesure invalide (etat trop long, patient supprimé entre-temps...):
+     * chaque mesure est réécrite seule, celles qui échouent encore sont mises en quarantaine.
+     * Si la base devient indisponible en cours de route, le reste est retenté plus tard.
+     */
+    private void writeOneByOne() {
+        List<VitalSample> saved = new ArrayList<>();
+        List<VitalSample> poison = new ArrayList<>();
+        int done = 0;
+        boolean unavailable = false;
+        for (VitalSample sample : inflight) {
+            try {
+                List<VitalSample> one = writeBatch(List.of(sample));
+                if (one != null) {
+                    saved.addAll(one);
+                }
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    unavailable = true;
+                    break;
+                }
+                poison.add(sample);
+            }
+            done++;
+        }
+        if (!unavailable && (poison.isEmpty() || quarantine(poison))) {
+            completed(saved);
+            return;
+        }
+        // Segments gardés: seules les mesures pas encore écrites restent en attente
+        List<VitalSample> remaining = new ArrayList<>(poison);
+        remaining.addAll(inflight.subList(done, inflight.size()));
+        inflight.clear();
+        inflight.addAll(remaining);
+        recordWritten(saved);
+    }
+
+    /**
+     * Toutes les mesures en cours sont en base ou en quarantaine: les segments peuvent partir
+     */
+    private void completed(List<VitalSample> saved) {
+        deleteClosedSegments();
+        inflight.clear();
+        recordWritten(saved);
+    }
+
+    private void recordWritten(List<VitalSample> saved) {
+        if (saved != null) {
+            written.add(saved.size());
+            for (VitalSample sample : saved) {
+                recordInWindow(sample);
+            }
+        }
+    }
+
+    private boolean quarantine(List<VitalSample> samples) {
+        Path file = dir.resolve(QUARANTINE);
+        try {
+            boolean created = !Files.exists(file);
+            StringBuilder lines = new StringBuilder();
+            for (VitalSample sample : samples) {
+                lines.append(sampleWriter.writeValueAsString(sample)).append('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                if (fsync) {
+                    out.force(false);
+                }
+            }
+            if (created) {
+                syncDirectory();
+            }
+        } catch (IOException | JacksonException e) {
+            logErrors.increment();
+            return false;
+        }
+        quarantined.add(samples.size());
+        return true;
+    }
+
+    /**
+     * Erreur d'accès à la base (connexion, délai, verrou) plutôt que mesure refusée
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof TransientDataAccessException || t instanceof DataAccessResourceFailureException
+                || t instanceof RecoverableDataAccessException || t instanceof CannotCreateTransactionException
+                || t instanceof SQLTransientException || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            // Classe SQLSTATE 08: connexion
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                channel.force(false);
+                channel.close();
+                syncedBytes = appendedBytes;
+                closedSegments.add(segment);
+                inflight.addAll(pending);
+                pending = new ArrayList<>();
+                openSegment();
+            }
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segment = dir.resolve(PREFIX + nextSegment++ + SUFFIX);
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+        // Sans fsync du répertoire, le nouveau fichier peut disparaître à la coupure malgré force()
+        syncDirectory();
+    }
+
+    private void syncDirectory() {
+        if (!fsync) {
+            return;
+        }
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Non supporté par certains systèmes (Windows)
+            logErrors.increment();
+        }
+    }
+
+    private void deleteClosedSegments() {
+        for (Path closed : closedSegments) {
+            try {
+                Files.deleteIfExists(closed);
+            } catch (IOException e) {
+                logErrors.increment();
+            }
+        }
+        closedSegments.clear();
+    }
+
+    List<VitalSample> writeBatch(List<VitalSample> batch) {
+        Set<Long> patientIds = new HashSet<>();
+        for (VitalSample sample : batch) {
+            patientIds.add(sample.getPatient_id());
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        return transactionTemplate.execute(status -> {
+            Set<Long> existing = new HashSet<>(patientRepository.findExistingIds(patientIds));
+            Map<Long, Patient> references = new HashMap<>();
+            List<VitalSample> saved = new ArrayList<>(batch.size());
+            int flushEvery = Math.max(1, jdbcBatchSize);
+            for (VitalSample sample : batch) {
+                if (!existing.contains(sample.getPatient_id())) {
+                    unknownPatient.increment();
+                    continue;
+                }
+                Patient patient = references.computeIfAbsent(sample.getPatient_id(),
+                    id -> entityManager.getReference(Patient.class, id));
+                OffsetDateTime timestamp = sample.getTimestamp() != null ? sample.getTimestamp() : now;
+                if ("sleep".equals(sample.getType())) {
+                    QualiteSommeil qs = new QualiteSommeil();
+                    qs.setDuree(sample.getDuree());
+                    qs.setTimestamp(timestamp);
+                    qs.setPatient(patient);
+                    entityManager.persist(qs);
+                } else {
+                    Humeur h = new Humeur();
+                    h.setEtat(sample.getEtat());
+                    h.setTimestamp(timestamp);
+                    h.setPatient(patient);
+                    entityManager.persist(h);
+                }
+                saved.add(sample);
+                if (saved.size() % flushEvery == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    references.clear();
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return saved;
+        });
+    }
+
+    private void recordInWindow(VitalSample sample) {
+        if ("sleep".equals(sample.getType())) {
+            double hours = QualiteSommeilService.sleepHours(sample.getDuree());
+            featureWindow.record(sample.getPatient_id(), PatientFeatureWindow.Metric.SLEEP_DURATION,
+                hours, sample.getTimestamp());
+            ruleEngine.submit(sample.getPatient_id(), SeuilAlerte.Metrique.SLEEP_HOURS, hours, sample.getTimestamp());
+        } else {
+            Double mood = PatientFeatureWindow.moodScore(sample.getEtat());
+            if (mood != null) {
+                featureWindow.record(sample.getPatient_id(), PatientFeatureWindow.Metric.MOOD,
+                    mood, sample.getTimestamp());
+                ruleEngine.submit(sample.getPatient_id(), SeuilAlerte.Metrique.MOOD_SCORE, mood, sample.getTimestamp());
+            }
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                .filter(p -> p.getFileName().toString().startsWith(PREFIX) && p.getFileName().toString().endsWith(SUFFIX))
+                .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                .toList();
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        synchronized (appendLock) {
+            stats.put("pending", pending.size());
+        }
+        stats.put("accepted", accepted.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("corrupt", corrupt.sum());
+        stats.put("written", written.sum());
+        stats.put("unknownPatient", unknownPatient.sum());
+        stats.put("groupCommits", groupCommits.sum());
+        stats.put("failedCommits", failedCommits.sum());
+        stats.put("quarantined", quarantined.sum());
+        stats.put("fsyncs", fsyncs.sum());
+        stats.put("logErrors", logErrors.sum());
+        return stats;
+    }
+}
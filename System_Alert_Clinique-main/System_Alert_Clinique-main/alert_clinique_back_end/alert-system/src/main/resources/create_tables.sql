@@ -4,11 +4,17 @@
 -- ============================================
 
 -- Supprimer les tables existantes (ATTENTION: supprime toutes les données)
+DROP TABLE IF EXISTS medecin_inbox_counter CASCADE;
+DROP TABLE IF EXISTS alerte_inbox CASCADE;
+DROP TABLE IF EXISTS rollup_watermark CASCADE;
+DROP TABLE IF EXISTS vital_rollup CASCADE;
+DROP TABLE IF EXISTS seuil_alerte CASCADE;
 DROP TABLE IF EXISTS historique_alerte CASCADE;
 DROP TABLE IF EXISTS alerte CASCADE;
 DROP TABLE IF EXISTS humeur CASCADE;
 DROP TABLE IF EXISTS qualite_sommeil CASCADE;
 DROP TABLE IF EXISTS rythme_cardiaque CASCADE;
+DROP SEQUENCE IF EXISTS rythme_cardiaque_seq;
 DROP TABLE IF EXISTS patient CASCADE;
 DROP TABLE IF EXISTS medecin CASCADE;
 DROP TABLE IF EXISTS admin CASCADE;
@@ -81,35 +87,56 @@ CREATE TABLE patient (
 -- ============================================
 -- Table: rythme_cardiaque
 -- ============================================
+-- Identifiants tirés d'une séquence par blocs de 50 (allocationSize de l'entité) pour le batch JDBC
+CREATE SEQUENCE rythme_cardiaque_seq START WITH 1 INCREMENT BY 50;
+
+-- Tables de mesures partitionnées par mois sur timestamp (clé primaire (id, timestamp)).
+-- Les partitions mensuelles sont créées et purgées par VitalsPartitionManager;
+-- la partition DEFAULT reçoit les timestamps hors des mois créés.
 CREATE TABLE rythme_cardiaque (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT NOT NULL DEFAULT nextval('rythme_cardiaque_seq'),
     valeur INTEGER NOT NULL,
-    timestamp TIMESTAMP(6) WITH TIME ZONE,
+    timestamp TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
     patient_id BIGINT,
+    -- Transaction d'insertion, ordre de rattrapage des agrégats (VitalRollupService)
+    ingest_xid BIGINT NOT NULL DEFAULT (pg_current_xact_id()::text::bigint),
+    PRIMARY KEY (id, timestamp),
     CONSTRAINT fk_rythme_patient FOREIGN KEY (patient_id) REFERENCES patient(id) ON DELETE CASCADE
-);
+) PARTITION BY RANGE (timestamp);
+CREATE TABLE rythme_cardiaque_default PARTITION OF rythme_cardiaque DEFAULT;
+
+-- Lecture par patient et plage de temps (pagination par curseur sur (timestamp, id)).
+-- Sur une base existante volumineuse, préférer CREATE INDEX CONCURRENTLY.
+CREATE INDEX idx_rythme_patient_ts ON rythme_cardiaque (patient_id, timestamp, id);
+CREATE INDEX idx_rythme_cardiaque_ingest ON rythme_cardiaque (ingest_xid, id);
 
 -- ============================================
 -- Table: qualite_sommeil
 -- ============================================
 CREATE TABLE qualite_sommeil (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     duree INTEGER NOT NULL,
-    timestamp TIMESTAMP(6) WITH TIME ZONE,
+    timestamp TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
     patient_id BIGINT,
+    ingest_xid BIGINT NOT NULL DEFAULT (pg_current_xact_id()::text::bigint),
+    PRIMARY KEY (id, timestamp),
     CONSTRAINT fk_sommeil_patient FOREIGN KEY (patient_id) REFERENCES patient(id) ON DELETE CASCADE
-);
+) PARTITION BY RANGE (timestamp);
+CREATE TABLE qualite_sommeil_default PARTITION OF qualite_sommeil DEFAULT;
+CREATE INDEX idx_qualite_sommeil_ingest ON qualite_sommeil (ingest_xid, id);
 
 -- ============================================
 -- Table: humeur
 -- ============================================
 CREATE TABLE humeur (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     etat VARCHAR(255),
-    timestamp TIMESTAMP(6) WITH TIME ZONE,
+    timestamp TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
     patient_id BIGINT,
+    PRIMARY KEY (id, timestamp),
     CONSTRAINT fk_humeur_patient FOREIGN KEY (patient_id) REFERENCES patient(id) ON DELETE CASCADE
-);
+) PARTITION BY RANGE (timestamp);
+CREATE TABLE humeur_default PARTITION OF humeur DEFAULT;
 
 -- ============================================
 -- Table: alerte
@@ -119,6 +146,8 @@ CREATE TABLE alerte (
     type VARCHAR(255),
     message VARCHAR(255),
     timestamp TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    occurrences INTEGER DEFAULT 1,
+    last_seen TIMESTAMP(6) WITH TIME ZONE,
     patient_id BIGINT,
     medecin_id BIGINT,
     CONSTRAINT fk_alerte_patient FOREIGN KEY (patient_id) REFERENCES patient(id) ON DELETE CASCADE,
@@ -138,17 +167,90 @@ CREATE TABLE historique_alerte (
     CONSTRAINT fk_historique_patient FOREIGN KEY (patient_id) REFERENCES patient(id) ON DELETE CASCADE
 );
 
+-- ============================================
+-- Table: seuil_alerte (seuils évalués par ThresholdRuleEngine à l'ingestion)
+-- patient_id renseigné: seuil du patient; sinon condition: seuil de la pathologie; sinon global
+-- ============================================
+CREATE TABLE seuil_alerte (
+    id BIGSERIAL PRIMARY KEY,
+    metrique VARCHAR(20) NOT NULL,
+    patient_id BIGINT,
+    "condition" VARCHAR(255),
+    min DOUBLE PRECISION,
+    max DOUBLE PRECISION,
+    type VARCHAR(255),
+    actif BOOLEAN NOT NULL DEFAULT TRUE,
+    CONSTRAINT fk_seuil_patient FOREIGN KEY (patient_id) REFERENCES patient(id) ON DELETE CASCADE
+);
+
+-- ============================================
+-- Table: vital_rollup (agrégats minute/heure/jour, alimentés par VitalRollupService)
+-- ============================================
+CREATE TABLE vital_rollup (
+    metric VARCHAR(20) NOT NULL,
+    patient_id BIGINT NOT NULL,
+    resolution VARCHAR(10) NOT NULL,
+    bucket_start TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    min_value INTEGER NOT NULL,
+    max_value INTEGER NOT NULL,
+    sum_value BIGINT NOT NULL,
+    count_value BIGINT NOT NULL,
+    last_value INTEGER NOT NULL,
+    last_timestamp TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (metric, patient_id, resolution, bucket_start)
+);
+
+-- ============================================
+-- Table: rollup_watermark (dernière ligne brute (ingest_xid, id) intégrée dans vital_rollup)
+-- ============================================
+CREATE TABLE rollup_watermark (
+    metric VARCHAR(20) PRIMARY KEY,
+    last_xid BIGINT,
+    last_id BIGINT NOT NULL
+);
+
+-- ============================================
+-- Table: alerte_inbox (boîte de réception des médecins, colonnes de l'alerte recopiées)
+-- ============================================
+CREATE TABLE alerte_inbox (
+    id BIGSERIAL PRIMARY KEY,
+    medecin_id BIGINT NOT NULL,
+    alerte_id BIGINT NOT NULL,
+    state VARCHAR(10) NOT NULL DEFAULT 'UNREAD',
+    timestamp TIMESTAMP(6) WITH TIME ZONE,
+    type VARCHAR(255),
+    message VARCHAR(255),
+    patient_id BIGINT,
+    patient_name VARCHAR(255),
+    read_at TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT uk_inbox_medecin_alerte UNIQUE (medecin_id, alerte_id),
+    CONSTRAINT fk_inbox_medecin FOREIGN KEY (medecin_id) REFERENCES medecin(id) ON DELETE CASCADE,
+    CONSTRAINT fk_inbox_alerte FOREIGN KEY (alerte_id) REFERENCES alerte(id) ON DELETE CASCADE
+);
+
+-- ============================================
+-- Table: medecin_inbox_counter (nombre de non lues, sauvegardé depuis la mémoire)
+-- ============================================
+CREATE TABLE medecin_inbox_counter (
+    medecin_id BIGINT PRIMARY KEY,
+    unread BIGINT NOT NULL
+);
+
 -- ============================================
 -- Index pour améliorer les performances
 -- ============================================
 CREATE INDEX idx_patient_email ON patient(email);
 CREATE INDEX idx_patient_status ON patient(status);
 CREATE INDEX idx_medecin_email ON medecin(email);
-CREATE INDEX idx_alerte_patient ON alerte(patient_id);
+-- Listing paginé de /api/alertes (ORDER BY timestamp DESC, id DESC), avec ou sans filtre patient
+CREATE INDEX idx_alerte_ts ON alerte(timestamp, id);
+CREATE INDEX idx_alerte_patient_ts ON alerte(patient_id, timestamp, id);
 CREATE INDEX idx_alerte_medecin ON alerte(medecin_id);
+-- Boîte de réception d'un médecin par état (ORDER BY timestamp DESC, id DESC)
+CREATE INDEX idx_inbox_medecin_state_ts ON alerte_inbox(medecin_id, state, timestamp, id);
 CREATE INDEX idx_rythme_patient ON rythme_cardiaque(patient_id);
-CREATE INDEX idx_sommeil_patient ON qualite_sommeil(patient_id);
-CREATE INDEX idx_humeur_patient ON humeur(patient_id);
+CREATE INDEX idx_sommeil_patient ON qualite_sommeil(patient_id, timestamp);
+CREATE INDEX idx_humeur_patient ON humeur(patient_id, timestamp);
 
 -- ============================================
 -- Données de test (optionnel)
@@ -0,0 +1,156 @@
+-- ============================================
+-- Migration: partitionnement mensuel de rythme_cardiaque, qualite_sommeil et humeur
+-- (partitionnement déclaratif PostgreSQL par RANGE sur timestamp, PostgreSQL 12+)
+--
+-- À lancer backend arrêté, après migrate_rythme_sequence.sql.
+-- Chaque table est renommée en <table>_old, recréée partitionnée, puis les lignes sont recopiées.
+-- Les mois futurs et la rétention sont ensuite gérés par VitalsPartitionManager au démarrage
+-- puis chaque nuit (propriétés partitions.*).
+-- ============================================
+
+-- ÉTAPE 1 : Fonctions utilitaires
+-- Partition <table>_pAAAA_MM pour chaque mois de premier à dernier (inclus)
+CREATE OR REPLACE FUNCTION create_monthly_partitions(parent TEXT, premier DATE, dernier DATE)
+RETURNS VOID AS $$
+DECLARE
+    debut DATE := date_trunc('month', premier)::DATE;
+BEGIN
+    WHILE debut <= dernier LOOP
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            parent || '_p' || to_char(debut, 'YYYY_MM'), parent,
+            -- Bornes à minuit UTC, comme VitalsPartitionManager (indépendant du TimeZone de la session)
+            (debut::timestamp AT TIME ZONE 'UTC'), ((debut + INTERVAL '1 month')::timestamp AT TIME ZONE 'UTC'));
+        debut := (debut + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Renomme la table existante en <table>_old avec sa clé primaire (dont le nom doit se libérer)
+CREATE OR REPLACE FUNCTION rename_to_old(nom TEXT)
+RETURNS VOID AS $$
+DECLARE
+    pk TEXT;
+BEGIN
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', nom, nom || '_old');
+    SELECT conname INTO pk FROM pg_constraint
+    WHERE conrelid = (nom || '_old')::regclass AND contype = 'p';
+    IF pk IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE %I RENAME CONSTRAINT %I TO %I', nom || '_old', pk, nom || '_old_pkey');
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Garantit ingest_xid sur <table>_old pour la recopie (ordre de rattrapage de VitalRollupService).
+-- Colonne déjà là: les valeurs sont recopiées telles quelles et les agrégats restent valables.
+-- Colonne absente: 0 pour les lignes existantes et agrégats de la mesure reconstruits.
+CREATE OR REPLACE FUNCTION ensure_old_ingest_xid(nom TEXT, mesure TEXT)
+RETURNS VOID AS $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = nom || '_old' AND column_name = 'ingest_xid') THEN
+        RETURN;
+    END IF;
+    EXECUTE format('ALTER TABLE %I ADD COLUMN ingest_xid BIGINT NOT NULL DEFAULT 0', nom || '_old');
+    IF to_regclass('vital_rollup') IS NOT NULL THEN
+        DELETE FROM vital_rollup WHERE metric = mesure;
+    END IF;
+    IF to_regclass('rollup_watermark') IS NOT NULL THEN
+        DELETE FROM rollup_watermark WHERE metric = mesure;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+BEGIN;
+
+-- ÉTAPE 2 : rythme_cardiaque (séquence rythme_cardiaque_seq déjà en place)
+SELECT rename_to_old('rythme_cardiaque');
+ALTER INDEX IF EXISTS idx_rythme_patient_ts RENAME TO idx_rythme_patient_ts_old;
+ALTER INDEX IF EXISTS idx_rythme_cardiaque_ingest RENAME TO idx_rythme_cardiaque_ingest_old;
+SELECT ensure_old_ingest_xid('rythme_cardiaque', 'HEART_RATE');
+
+CREATE TABLE rythme_cardiaque (
+    id BIGINT NOT NULL DEFAULT nextval('rythme_cardiaque_seq'),
+    valeur INTEGER NOT NULL,
+    timestamp TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
+    patient_id BIGINT,
+    -- Transaction d'insertion, ordre de rattrapage des agrégats (VitalRollupService)
+    ingest_xid BIGINT NOT NULL DEFAULT (pg_current_xact_id()::text::bigint),
+    PRIMARY KEY (id, timestamp),
+    CONSTRAINT fk_rythme_patient FOREIGN KEY (patient_id) REFERENCES patient(id) ON DELETE CASCADE
+) PARTITION BY RANGE (timestamp);
+CREATE TABLE rythme_cardiaque_default PARTITION OF rythme_cardiaque DEFAULT;
+CREATE INDEX idx_rythme_patient_ts ON rythme_cardiaque (patient_id, timestamp, id);
+CREATE INDEX idx_rythme_cardiaque_ingest ON rythme_cardiaque (ingest_xid, id);
+
+SELECT create_monthly_partitions('rythme_cardiaque',
+    COALESCE((SELECT MIN(timestamp) FROM rythme_cardiaque_old), now())::DATE,
+    (now() + INTERVAL '3 months')::DATE);
+
+INSERT INTO rythme_cardiaque (id, valeur, timestamp, patient_id, ingest_xid)
+SELECT id, valeur, COALESCE(timestamp, now()), patient_id, ingest_xid FROM rythme_cardiaque_old;
+
+-- ÉTAPE 3 : qualite_sommeil
+-- Nouvelle séquence (une colonne IDENTITY n'est pas possible sur une table partitionnée avant PostgreSQL 17)
+SELECT rename_to_old('qualite_sommeil');
+ALTER INDEX IF EXISTS idx_qualite_sommeil_ingest RENAME TO idx_qualite_sommeil_ingest_old;
+SELECT ensure_old_ingest_xid('qualite_sommeil', 'SLEEP');
+CREATE SEQUENCE IF NOT EXISTS qualite_sommeil_seq;
+SELECT setval('qualite_sommeil_seq', COALESCE((SELECT MAX(id) FROM qualite_sommeil_old), 0) + 1, false);
+
+CREATE TABLE qualite_sommeil (
+    id BIGINT NOT NULL DEFAULT nextval('qualite_sommeil_seq'),
+    duree INTEGER NOT NULL,
+    timestamp TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
+    patient_id BIGINT,
+    ingest_xid BIGINT NOT NULL DEFAULT (pg_current_xact_id()::text::bigint),
+    PRIMARY KEY (id, timestamp),
+    CONSTRAINT fk_sommeil_patient FOREIGN KEY (patient_id) REFERENCES patient(id) ON DELETE CASCADE
+) PARTITION BY RANGE (timestamp);
+CREATE TABLE qualite_sommeil_default PARTITION OF qualite_sommeil DEFAULT;
+CREATE INDEX idx_sommeil_patient_ts ON qualite_sommeil (patient_id, timestamp);
+CREATE INDEX idx_qualite_sommeil_ingest ON qualite_sommeil (ingest_xid, id);
+
+SELECT create_monthly_partitions('qualite_sommeil',
+    COALESCE((SELECT MIN(timestamp) FROM qualite_sommeil_old), now())::DATE,
+    (now() + INTERVAL '3 months')::DATE);
+
+INSERT INTO qualite_sommeil (id, duree, timestamp, patient_id, ingest_xid)
+SELECT id, duree, COALESCE(timestamp, now()), patient_id, ingest_xid FROM qualite_sommeil_old;
+
+-- ÉTAPE 4 : humeur
+SELECT rename_to_old('humeur');
+CREATE SEQUENCE IF NOT EXISTS humeur_seq;
+SELECT setval('humeur_seq', COALESCE((SELECT MAX(id) FROM humeur_old), 0) + 1, false);
+
+CREATE TABLE humeur (
+    id BIGINT NOT NULL DEFAULT nextval('humeur_seq'),
+    etat VARCHAR(255),
+    timestamp TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
+    patient_id BIGINT,
+    PRIMARY KEY (id, timestamp),
+    CONSTRAINT fk_humeur_patient FOREIGN KEY (patient_id) REFERENCES patient(id) ON DELETE CASCADE
+) PARTITION BY RANGE (timestamp);
+CREATE TABLE humeur_default PARTITION OF humeur DEFAULT;
+CREATE INDEX idx_humeur_patient_ts ON humeur (patient_id, timestamp);
+
+SELECT create_monthly_partitions('humeur',
+    COALESCE((SELECT MIN(timestamp) FROM humeur_old), now())::DATE,
+    (now() + INTERVAL '3 months')::DATE);
+
+INSERT INTO humeur (id, etat, timestamp, patient_id)
+SELECT id, etat, COALESCE(timestamp, now()), patient_id FROM humeur_old;
+
+COMMIT;
+
+-- ÉTAPE 5 : Vérification (les comptes doivent être égaux deux à deux)
+SELECT 'rythme_cardiaque' AS table_name, (SELECT COUNT(*) FROM rythme_cardiaque) AS nouvelle, (SELECT COUNT(*) FROM rythme_cardiaque_old) AS ancienne
+UNION ALL
+SELECT 'qualite_sommeil', (SELECT COUNT(*) FROM qualite_sommeil), (SELECT COUNT(*) FROM qualite_sommeil_old)
+UNION ALL
+SELECT 'humeur', (SELECT COUNT(*) FROM humeur), (SELECT COUNT(*) FROM humeur_old);
+
+-- ÉTAPE 6 : Après vérification seulement
+-- DROP TABLE rythme_cardiaque_old;
+-- DROP TABLE qualite_sommeil_old;
+-- DROP TABLE humeur_old;
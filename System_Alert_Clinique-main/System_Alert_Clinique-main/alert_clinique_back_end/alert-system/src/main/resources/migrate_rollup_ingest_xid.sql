@@ -0,0 +1,47 @@
+-- ============================================
+-- Migration: colonne ingest_xid des tables brutes agrégées par VitalRollupService
+-- (rattrapage des agrégats dans l'ordre des commits, PostgreSQL 13+)
+--
+-- À lancer une fois sur une base créée avant ingest_xid, avant de démarrer le backend:
+-- le rattrapage des agrégats refuse de tourner tant que la colonne manque.
+-- Inutile après create_tables.sql ou migrate_partition_vitals.sql (colonne et index déjà créés).
+-- ============================================
+
+-- ÉTAPE 1 : Colonne et remise à zéro des agrégats (transaction, sans réécriture des tables)
+-- Les lignes existantes prennent 0; les nouvelles, la transaction qui les insère.
+-- Les agrégats de la mesure sont reconstruits: l'ancien high-water mark par id a pu laisser passer des lignes.
+CREATE OR REPLACE FUNCTION add_ingest_xid(nom TEXT, mesure TEXT)
+RETURNS VOID AS $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = nom AND column_name = 'ingest_xid') THEN
+        RETURN;
+    END IF;
+    EXECUTE format('ALTER TABLE %I ADD COLUMN ingest_xid BIGINT NOT NULL DEFAULT 0', nom);
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN ingest_xid SET DEFAULT (pg_current_xact_id()::text::bigint)', nom);
+    IF to_regclass('vital_rollup') IS NOT NULL THEN
+        DELETE FROM vital_rollup WHERE metric = mesure;
+    END IF;
+    IF to_regclass('rollup_watermark') IS NOT NULL THEN
+        DELETE FROM rollup_watermark WHERE metric = mesure;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+BEGIN;
+SELECT add_ingest_xid('rythme_cardiaque', 'HEART_RATE');
+SELECT add_ingest_xid('qualite_sommeil', 'SLEEP');
+COMMIT;
+
+DROP FUNCTION add_ingest_xid(TEXT, TEXT);
+
+-- ÉTAPE 2 : Index du parcours (ingest_xid, id), sans bloquer les écritures (hors transaction)
+-- Tables non partitionnées uniquement: une table partitionnée passe par migrate_partition_vitals.sql,
+-- ou par CREATE INDEX ... ON ONLY sur la table mère puis CONCURRENTLY et ATTACH PARTITION par partition.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_rythme_cardiaque_ingest ON rythme_cardiaque (ingest_xid, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_qualite_sommeil_ingest ON qualite_sommeil (ingest_xid, id);
+
+-- Vérification (deux lignes attendues)
+SELECT table_name, column_default FROM information_schema.columns
+WHERE table_schema = current_schema() AND column_name = 'ingest_xid'
+  AND table_name IN ('rythme_cardiaque', 'qualite_sommeil');
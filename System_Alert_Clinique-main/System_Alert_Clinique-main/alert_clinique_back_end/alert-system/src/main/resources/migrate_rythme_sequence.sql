@@ -0,0 +1,19 @@
+-- ============================================
+-- Migration: identifiants de rythme_cardiaque par séquence (batch JDBC)
+-- À lancer une fois sur une base existante créée avec id BIGSERIAL,
+-- avant de démarrer le backend avec l'entité RythmeCardiaque en SEQUENCE.
+-- ============================================
+
+-- ÉTAPE 1 : Créer la séquence utilisée par Hibernate (INCREMENT BY = allocationSize = 50)
+CREATE SEQUENCE IF NOT EXISTS rythme_cardiaque_seq START WITH 1 INCREMENT BY 50;
+
+-- ÉTAPE 2 : Placer la séquence après les identifiants déjà utilisés
+-- (Hibernate réserve les ids [valeur - 49, valeur] à chaque appel)
+SELECT setval('rythme_cardiaque_seq', COALESCE((SELECT MAX(id) FROM rythme_cardiaque), 0) + 50, true);
+
+-- ÉTAPE 3 : Les INSERT SQL manuels utilisent aussi la nouvelle séquence
+ALTER TABLE rythme_cardiaque ALTER COLUMN id SET DEFAULT nextval('rythme_cardiaque_seq');
+DROP SEQUENCE IF EXISTS rythme_cardiaque_id_seq;
+
+-- Vérification
+SELECT last_value, increment_by FROM pg_sequences WHERE sequencename = 'rythme_cardiaque_seq';
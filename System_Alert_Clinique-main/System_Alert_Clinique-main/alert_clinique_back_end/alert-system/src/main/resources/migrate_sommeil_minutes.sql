@@ -0,0 +1,23 @@
+-- ============================================
+-- Migration: qualite_sommeil.duree en minutes
+-- Le backend lit toujours duree en minutes (import CSV, agrégats vital_rollup, moteur de seuils).
+-- Les anciens clients qui saisissaient la durée en heures ont laissé des valeurs de 1 à 24:
+-- à lancer une fois, seulement si de tels clients ont existé (une sieste de 20 minutes
+-- déjà saisie en minutes serait aussi convertie).
+-- ============================================
+
+-- ÉTAPE 1 : Lignes concernées (à contrôler avant la conversion)
+SELECT COUNT(*) AS lignes_en_heures, MIN(timestamp) AS premiere, MAX(timestamp) AS derniere
+FROM qualite_sommeil WHERE duree BETWEEN 1 AND 24;
+
+BEGIN;
+
+-- ÉTAPE 2 : Conversion heures -> minutes
+UPDATE qualite_sommeil SET duree = duree * 60 WHERE duree BETWEEN 1 AND 24;
+
+-- ÉTAPE 3 : Agrégats de sommeil reconstruits par VitalRollupService au prochain passage
+-- (une mise à jour de ligne brute n'est pas répercutée par le rattrapage incrémental)
+DELETE FROM vital_rollup WHERE metric = 'SLEEP';
+DELETE FROM rollup_watermark WHERE metric = 'SLEEP';
+
+COMMIT;
@@ -0,0 +1,103 @@
+package com.example.alertsystem.benchmark;
+
+import com.example.alertsystem.dto.AIPredictionResponse;
+import com.example.alertsystem.dto.AIServiceResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare l'ancien parsing des réponses IA (corps -> String -> Map -> instanceof)
+ * avec la désérialisation typée dans AIServiceResponse.
+ *
+ * Lancement (après mvn test-compile):
+ *   java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *        com.example.alertsystem.benchmark.AIResponseParsingBenchmark
+ * Ajouter "-prof gc" via les options JMH pour comparer les allocations par opération.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AIResponseParsingBenchmark {
+
+    private static final String NESTED = "{\"success\": true, \"prediction\": {\"alert_flag\": true, "
+        + "\"anomaly_score\": 0.8312, \"threshold_used\": 0.4125, \"confidence\": 0.4187}}";
+    private static final String FLAT = "{\"alert_flag\": false, \"anomaly_score\": 0.1204, "
+        + "\"threshold_used\": 0.4125, \"confidence\": 0.2921}";
+
+    private JsonMapper mapper;
+    private byte[] nestedBody;
+    private byte[] flatBody;
+
+    @Setup
+    public void setup() {
+        mapper = JsonMapper.builder().build();
+        nestedBody = NESTED.getBytes(StandardCharsets.UTF_8);
+        flatBody = FLAT.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public AIPredictionResponse.PredictionData mapWalkNested() {
+        return parseWithMap(nestedBody);
+    }
+
+    @Benchmark
+    public AIPredictionResponse.PredictionData typedNested() {
+        return mapper.readValue(nestedBody, AIServiceResponse.class).predictionData();
+    }
+
+    @Benchmark
+    public AIPredictionResponse.PredictionData mapWalkFlat() {
+        return parseWithMap(flatBody);
+    }
+
+    @Benchmark
+    public AIPredictionResponse.PredictionData typedFlat() {
+        return mapper.readValue(flatBody, AIServiceResponse.class).predictionData();
+    }
+
+    /**
+     * Ancien chemin de AIService.predict: le corps est d'abord décodé en String
+     * (StringHttpMessageConverter), puis relu en Map et parcouru avec des instanceof.
+     */
+    @SuppressWarnings("unchecked")
+    private AIPredictionResponse.PredictionData parseWithMap(byte[] body) {
+        String json = new String(body, StandardCharsets.UTF_8);
+        Map<String, Object> responseMap = mapper.readValue(json, Map.class);
+        Map<String, Object> source = responseMap.containsKey("prediction")
+            ? (Map<String, Object>) responseMap.get("prediction")
+            : responseMap;
+
+        AIPredictionResponse.PredictionData predictionData = new AIPredictionResponse.PredictionData();
+        if (source.containsKey("alert_flag")) {
+            predictionData.setAlert_flag((Boolean) source.get("alert_flag"));
+        }
+        if (source.get("anomaly_score") instanceof Number score) {
+            predictionData.setAnomaly_score(score.doubleValue());
+        }
+        if (source.get("threshold_used") instanceof Number threshold) {
+            predictionData.setThreshold_used(threshold.doubleValue());
+        }
+        if (source.get("confidence") instanceof Number confidence) {
+            predictionData.setConfidence(confidence.doubleValue());
+        }
+        return predictionData;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(AIResponseParsingBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
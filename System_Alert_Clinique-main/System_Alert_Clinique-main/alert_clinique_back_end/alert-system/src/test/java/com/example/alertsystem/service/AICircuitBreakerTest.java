@@ -0,0 +1,63 @@
+package com.example.alertsystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AICircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailuresAndClosesAfterSuccessfulProbe() throws InterruptedException {
+        AICircuitBreaker breaker = new AICircuitBreaker(2, 50, 1, 4, 0);
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.recordFailure();
+            breaker.release();
+        }
+        assertEquals(AICircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        Thread.sleep(60);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(AICircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // Un seul appel de test à la fois en HALF_OPEN
+        assertFalse(breaker.tryAcquire());
+
+        breaker.recordSuccess();
+        breaker.release();
+        assertEquals(AICircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondLimit() {
+        AICircuitBreaker breaker = new AICircuitBreaker(5, 1000, 1, 2, 0);
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.release();
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void halfOpenWithFullBulkheadKeepsProbeAndRecovers() throws InterruptedException {
+        AICircuitBreaker breaker = new AICircuitBreaker(5, 50, 1, 1, 0);
+
+        // Appel lent qui occupe l'unique place du bulkhead pendant l'ouverture du circuit
+        assertTrue(breaker.tryAcquire());
+        breaker.forceOpen();
+        Thread.sleep(60);
+
+        assertFalse(breaker.tryAcquire());
+        assertEquals(AICircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // Le refus du bulkhead n'a pas consommé l'appel de test
+        breaker.release();
+        assertTrue(breaker.tryAcquire());
+        breaker.recordSuccess();
+        breaker.release();
+        assertEquals(AICircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
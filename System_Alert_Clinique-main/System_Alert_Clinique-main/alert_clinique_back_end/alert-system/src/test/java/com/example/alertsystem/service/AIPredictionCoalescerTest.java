@@ -0,0 +1,152 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.AIBatchPredictionResponse;
+import com.example.alertsystem.dto.AIPredictionRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires du regroupement des prédictions (sans service IA)
+ */
+class AIPredictionCoalescerTest {
+
+    private final List<List<Long>> sentBatches = Collections.synchronizedList(new ArrayList<>());
+    private AIPredictionCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentRequestsShareOneBatchAndGetTheirOwnResult() throws Exception {
+        coalescer = new AIPredictionCoalescer(this::echo, 200, 10, 1);
+
+        List<CompletableFuture<AIBatchPredictionResponse.PatientPrediction>> futures = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            futures.add(coalescer.submit(request(id)));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            AIBatchPredictionResponse.PatientPrediction result = futures.get(i).get(5, TimeUnit.SECONDS);
+            assertTrue(result.getSuccess());
+            assertEquals(i + 1L, result.getPatient_id());
+        }
+        assertEquals(1, sentBatches.size());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), sentBatches.get(0));
+    }
+
+    @Test
+    void samePatientIsNeverTwiceInABatch() throws Exception {
+        coalescer = new AIPredictionCoalescer(this::echo, 100, 10, 1);
+
+        CompletableFuture<AIBatchPredictionResponse.PatientPrediction> first = coalescer.submit(request(7));
+        CompletableFuture<AIBatchPredictionResponse.PatientPrediction> second = coalescer.submit(request(7));
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).getSuccess());
+        assertTrue(second.get(5, TimeUnit.SECONDS).getSuccess());
+        for (List<Long> batch : sentBatches) {
+            assertEquals(batch.size(), new HashSet<>(batch).size());
+        }
+        assertEquals(2, sentBatches.size());
+    }
+
+    @Test
+    void senderFailureCompletesEveryCallerWithAnError() throws Exception {
+        coalescer = new AIPredictionCoalescer(samples -> {
+            throw new IllegalStateException("boom");
+        }, 10, 10, 1);
+
+        AIBatchPredictionResponse.PatientPrediction result = coalescer.submit(request(3)).get(5, TimeUnit.SECONDS);
+
+        assertFalse(result.getSuccess());
+        assertTrue(result.getError().contains("boom"));
+    }
+
+    @Test
+    void shutdownCompletesEveryPendingCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        coalescer = new AIPredictionCoalescer(samples -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return echo(samples);
+        }, 50, 10, 4);
+
+        List<CompletableFuture<AIBatchPredictionResponse.PatientPrediction>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(coalescer.submit(request(7)));
+        }
+        futures.add(coalescer.submit(request(8)));
+        coalescer.shutdown();
+        release.countDown();
+
+        for (CompletableFuture<AIBatchPredictionResponse.PatientPrediction> future : futures) {
+            assertNotNull(future.get(5, TimeUnit.SECONDS));
+        }
+        assertNull(coalescer.submit(request(9)));
+    }
+
+    @Test
+    void saturatedSendersRejectBatchesInsteadOfQueueingThem() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        coalescer = new AIPredictionCoalescer(samples -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return echo(samples);
+        }, 0, 1, 1);
+
+        // Un lot en cours d'envoi, un en attente: le troisième est refusé tout de suite
+        CompletableFuture<AIBatchPredictionResponse.PatientPrediction> sending = coalescer.submit(request(1));
+        CompletableFuture<AIBatchPredictionResponse.PatientPrediction> waiting = coalescer.submit(request(2));
+        CompletableFuture<AIBatchPredictionResponse.PatientPrediction> rejected = coalescer.submit(request(3));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertFalse(sending.isDone());
+        release.countDown();
+        assertTrue(sending.get(5, TimeUnit.SECONDS).getSuccess());
+        assertTrue(waiting.get(5, TimeUnit.SECONDS).getSuccess());
+        assertEquals(2, sentBatches.size());
+    }
+
+    private List<AIBatchPredictionResponse.PatientPrediction> echo(List<AIPredictionRequest> samples) {
+        List<Long> ids = new ArrayList<>();
+        List<AIBatchPredictionResponse.PatientPrediction> results = new ArrayList<>();
+        for (AIPredictionRequest sample : samples) {
+            ids.add(sample.getPatient_id());
+            AIBatchPredictionResponse.PatientPrediction result = new AIBatchPredictionResponse.PatientPrediction();
+            result.setPatient_id(sample.getPatient_id());
+            result.setSuccess(true);
+            results.add(result);
+        }
+        sentBatches.add(ids);
+        return results;
+    }
+
+    private static AIPredictionRequest request(long patientId) {
+        AIPredictionRequest request = new AIPredictionRequest();
+        request.setPatient_id(patientId);
+        request.setHeart_rate(72.0);
+        return request;
+    }
+}
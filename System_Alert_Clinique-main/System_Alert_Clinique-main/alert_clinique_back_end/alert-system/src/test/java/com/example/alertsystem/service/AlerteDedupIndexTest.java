@@ -0,0 +1,113 @@
+package com.example.alertsystem.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlerteDedupIndexTest {
+
+    /** Capture les lots de mise à jour au lieu de les envoyer en base */
+    private static final class RecordingJdbcTemplate extends JdbcTemplate {
+        final List<Object[]> updates = new ArrayList<>();
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            updates.addAll(batchArgs);
+            return new int[batchArgs.size()];
+        }
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void foldsRepeatsWithinWindowAndFlushesCounts() {
+        RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+        AlerteDedupIndex index = new AlerteDedupIndex(jdbc, true, 300);
+        OffsetDateTime t0 = OffsetDateTime.now();
+
+        assertNull(index.fold(new AlerteDedupIndex.Key(7L, null, "Tachycardie"), t0));
+        index.open(new AlerteDedupIndex.Key(7L, null, "Tachycardie"), 42L, t0);
+
+        AlerteDedupIndex.Folded folded = null;
+        for (int i = 1; i <= 3; i++) {
+            folded = index.fold(new AlerteDedupIndex.Key(7L, null, "Tachycardie"), t0.plusSeconds(i * 10));
+        }
+        assertEquals(42L, folded.alerteId());
+        assertEquals(4, folded.occurrences());
+        assertEquals(t0.plusSeconds(30), folded.lastSeen());
+
+        // Autre type, autre patient, ou fenêtre dépassée: nouvelle alerte
+        assertNull(index.fold(new AlerteDedupIndex.Key(7L, null, "Bradycardie"), t0.plusSeconds(10)));
+        assertNull(index.fold(new AlerteDedupIndex.Key(8L, null, "Tachycardie"), t0.plusSeconds(10)));
+        assertNull(index.fold(new AlerteDedupIndex.Key(7L, null, "Tachycardie"), t0.plusSeconds(300)));
+        // Alerte manuelle d'un médecin: pas repliée sur celle du moteur de seuils
+        assertNull(index.fold(new AlerteDedupIndex.Key(7L, 3L, "Tachycardie"), t0.plusSeconds(10)));
+
+        index.flush();
+        assertEquals(1, jdbc.updates.size());
+        assertEquals(3, jdbc.updates.get(0)[0]);
+        assertEquals(42L, jdbc.updates.get(0)[2]);
+
+        // Rien de nouveau: pas de second report
+        index.flush();
+        assertEquals(1, jdbc.updates.size());
+    }
+
+    @Test
+    void alertsOfDifferentDoctorsAreNotFoldedTogether() {
+        AlerteDedupIndex index = new AlerteDedupIndex(new RecordingJdbcTemplate(), true, 300);
+        OffsetDateTime t0 = OffsetDateTime.now();
+        index.open(new AlerteDedupIndex.Key(7L, 1L, "Tachycardie"), 42L, t0);
+
+        assertNull(index.fold(new AlerteDedupIndex.Key(7L, 2L, "Tachycardie"), t0.plusSeconds(10)));
+        assertEquals(42L, index.fold(new AlerteDedupIndex.Key(7L, 1L, "Tachycardie"), t0.plusSeconds(10)).alerteId());
+    }
+
+    @Test
+    void foldInTransactionCountsOnlyAfterCommit() {
+        RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+        AlerteDedupIndex index = new AlerteDedupIndex(jdbc, true, 300);
+        OffsetDateTime t0 = OffsetDateTime.now();
+        AlerteDedupIndex.Key key = new AlerteDedupIndex.Key(7L, null, "Tachycardie");
+        index.open(key, 42L, t0);
+
+        // Rollback: les synchronisations sont abandonnées sans afterCommit
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(2, index.fold(key, t0.plusSeconds(10)).occurrences());
+        TransactionSynchronizationManager.clearSynchronization();
+        index.flush();
+        assertTrue(jdbc.updates.isEmpty());
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(2, index.fold(key, t0.plusSeconds(20)).occurrences());
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+        index.flush();
+        assertEquals(1, jdbc.updates.size());
+        assertEquals(1, jdbc.updates.get(0)[0]);
+        assertEquals(3, index.fold(key, t0.plusSeconds(30)).occurrences());
+    }
+
+    @Test
+    void disabledIndexNeverFolds() {
+        AlerteDedupIndex index = new AlerteDedupIndex(new RecordingJdbcTemplate(), false, 300);
+        OffsetDateTime t0 = OffsetDateTime.now();
+        index.open(new AlerteDedupIndex.Key(7L, null, "Tachycardie"), 42L, t0);
+        assertNull(index.fold(new AlerteDedupIndex.Key(7L, null, "Tachycardie"), t0.plusSeconds(1)));
+    }
+}
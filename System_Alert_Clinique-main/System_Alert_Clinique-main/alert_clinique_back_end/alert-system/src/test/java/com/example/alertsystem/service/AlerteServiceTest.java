@@ -0,0 +1,179 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.AlerteDto;
+import com.example.alertsystem.dto.KeysetPage;
+import com.example.alertsystem.entities.Alerte;
+import com.example.alertsystem.entities.Patient;
+import com.example.alertsystem.entities.Medecin;
+import com.example.alertsystem.repository.AlerteRepository;
+import com.example.alertsystem.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlerteServiceTest {
+
+    /** Dépôt simulé: findPage renvoie les alertes en mémoire dans la limite demandée */
+    private static final class PageRepository {
+        final List<AlerteDto> alertes = new ArrayList<>();
+        Limit lastLimit;
+
+        AlerteRepository proxy() {
+            return (AlerteRepository) Proxy.newProxyInstance(AlerteRepository.class.getClassLoader(),
+                new Class<?>[] {AlerteRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findPage")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    lastLimit = (Limit) args[6];
+                    return lastLimit.isUnlimited() ? alertes : alertes.subList(0, Math.min(alertes.size(), lastLimit.max()));
+                });
+        }
+    }
+
+    private static AlerteService service(PageRepository repository) {
+        AlerteService service = new AlerteService(repository.proxy(), null, null, null, null);
+        ReflectionTestUtils.setField(service, "defaultPageLimit", 2);
+        ReflectionTestUtils.setField(service, "maxPageLimit", 10);
+        return service;
+    }
+
+    private static PageRepository fiveAlertes() {
+        PageRepository repository = new PageRepository();
+        OffsetDateTime t0 = OffsetDateTime.parse("2026-01-15T08:00:00Z");
+        for (long id = 5; id >= 1; id--) {
+            repository.alertes.add(new AlerteDto(id, "Tachycardie", "rythme élevé", t0.plusMinutes(id),
+                7L, "Patient", null, 1, null));
+        }
+        return repository;
+    }
+
+    @Test
+    void withoutLimitOrCursorEveryAlerteIsReturned() {
+        PageRepository repository = fiveAlertes();
+
+        KeysetPage<AlerteDto> page = service(repository).getPage(null, null, null, null, null, null, null);
+
+        assertTrue(repository.lastLimit.isUnlimited());
+        assertEquals(5, page.getItems().size());
+        assertNull(page.getNext_cursor());
+    }
+
+    @Test
+    void limitOrCursorPaginates() {
+        PageRepository repository = fiveAlertes();
+        AlerteService service = service(repository);
+
+        KeysetPage<AlerteDto> first = service.getPage(null, null, null, null, null, null, 3);
+        assertEquals(4, repository.lastLimit.max());
+        assertEquals(3, first.getItems().size());
+        assertNotNull(first.getNext_cursor());
+
+        // Curseur sans limit: taille de page par défaut
+        service.getPage(null, null, null, null, null, first.getNext_cursor(), null);
+        assertEquals(3, repository.lastLimit.max());
+    }
+
+    @Test
+    void foldedAlerteReturnsStoredOpenAlerte() {
+        OffsetDateTime t0 = OffsetDateTime.parse("2026-01-15T08:00:00Z");
+        Patient patient = new Patient();
+        patient.setId(7L);
+        patient.setName("Patient");
+        Alerte stored = new Alerte();
+        stored.setId(42L);
+        stored.setType("Tachycardie");
+        stored.setMessage("rythme élevé");
+        stored.setTimestamp(t0);
+        stored.setPatient(patient);
+        AlerteRepository repository = (AlerteRepository) Proxy.newProxyInstance(AlerteRepository.class.getClassLoader(),
+            new Class<?>[] {AlerteRepository.class}, (proxy, method, args) -> {
+                if (!method.getName().equals("findById")) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                return args[0].equals(42L) ? Optional.of(stored) : Optional.empty();
+            });
+        AlerteDedupIndex dedupIndex = new AlerteDedupIndex(new JdbcTemplate(), true, 300);
+        dedupIndex.open(new AlerteDedupIndex.Key(7L, null, "Tachycardie"), 42L, t0);
+
+        Alerte repeat = new Alerte();
+        repeat.setType("Tachycardie");
+        repeat.setMessage("autre message");
+        repeat.setTimestamp(t0.plusSeconds(30));
+        repeat.setPatient(patient);
+        AlerteDto folded = new AlerteService(repository, null, null, dedupIndex, null).saveAlerte(repeat);
+
+        assertEquals(42L, folded.getId());
+        assertEquals("rythme élevé", folded.getMessage());
+        assertEquals(t0, folded.getTimestamp());
+        assertEquals(2, folded.getOccurrences());
+        assertEquals(t0.plusSeconds(30), folded.getLastSeen());
+        // L'alerte du client n'est pas modifiée en alerte persistée
+        assertNull(repeat.getId());
+    }
+
+    @Test
+    void createdAlerteCarriesPatientNameFromDatabase() {
+        Patient stored = new Patient();
+        stored.setId(7L);
+        stored.setName("Amina Benali");
+        PatientRepository patients = (PatientRepository) Proxy.newProxyInstance(PatientRepository.class.getClassLoader(),
+            new Class<?>[] {PatientRepository.class}, (proxy, method, args) -> {
+                if (!method.getName().equals("findById")) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                return args[0].equals(7L) ? Optional.of(stored) : Optional.empty();
+            });
+        AlerteRepository alertes = (AlerteRepository) Proxy.newProxyInstance(AlerteRepository.class.getClassLoader(),
+            new Class<?>[] {AlerteRepository.class}, (proxy, method, args) -> {
+                if (!method.getName().equals("save")) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                Alerte saved = (Alerte) args[0];
+                saved.setId(43L);
+                return saved;
+            });
+        List<AlerteDto> published = new ArrayList<>();
+        List<Alerte> delivered = new ArrayList<>();
+        AlerteStreamService stream = new AlerteStreamService(16, 8, 60_000, 1, 30_000) {
+            @Override
+            public void publish(AlerteDto alerte) {
+                published.add(alerte);
+            }
+        };
+        MedecinInboxService inbox = new MedecinInboxService(null, null, 50, 500) {
+            @Override
+            public void deliver(Alerte alerte) {
+                delivered.add(alerte);
+            }
+        };
+        try {
+            // Corps de requête typique: {"patient":{"id":7},"medecin":{"id":3}}
+            Patient stub = new Patient();
+            stub.setId(7L);
+            Medecin medecin = new Medecin();
+            medecin.setId(3L);
+            Alerte alerte = new Alerte();
+            alerte.setType("Tachycardie");
+            alerte.setPatient(stub);
+            alerte.setMedecin(medecin);
+
+            AlerteDto created = new AlerteService(alertes, patients, stream,
+                new AlerteDedupIndex(new JdbcTemplate(), true, 300), inbox).saveAlerte(alerte);
+
+            assertEquals("Amina Benali", created.getPatientName());
+            assertEquals("Amina Benali", published.get(0).getPatientName());
+            assertEquals("Amina Benali", delivered.get(0).getPatient().getName());
+        } finally {
+            stream.shutdown();
+        }
+    }
+}
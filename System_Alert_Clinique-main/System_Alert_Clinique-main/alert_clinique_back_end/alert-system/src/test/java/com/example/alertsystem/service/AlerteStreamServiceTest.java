@@ -0,0 +1,199 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.AlerteDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlerteStreamServiceTest {
+    private static final Pattern ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+    private static final Pattern EVENT = Pattern.compile("^event:(\\w+)$", Pattern.MULTILINE);
+
+    /** Émetteur sans servlet: garde le texte des événements envoyés, peut bloquer comme un client lent */
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        volatile CountDownLatch blocked;
+        volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            CountDownLatch latch = blocked;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrompu");
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            builder.build().forEach(part -> text.append(part.getData() instanceof String str ? str : "{json}"));
+            sent.add(text.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        List<Long> ids() {
+            List<Long> ids = new ArrayList<>();
+            synchronized (sent) {
+                for (String event : sent) {
+                    Matcher m = ID.matcher(event);
+                    if (m.find()) {
+                        ids.add(Long.parseLong(m.group(1)));
+                    }
+                }
+            }
+            return ids;
+        }
+
+        List<String> names() {
+            List<String> names = new ArrayList<>();
+            synchronized (sent) {
+                for (String event : sent) {
+                    Matcher m = EVENT.matcher(event);
+                    if (m.find()) {
+                        names.add(m.group(1));
+                    }
+                }
+            }
+            return names;
+        }
+    }
+
+    private final List<RecordingEmitter> emitters = Collections.synchronizedList(new ArrayList<>());
+    private AlerteStreamService service;
+
+    private AlerteStreamService service(int ringSize, int bufferSize, long stallTimeoutMs) {
+        service = new AlerteStreamService(ringSize, bufferSize, 60_000, 4, stallTimeoutMs) {
+            @Override
+            SseEmitter newEmitter(long timeoutMs) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+        return service;
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (RecordingEmitter emitter : emitters) {
+            CountDownLatch latch = emitter.blocked;
+            if (latch != null) {
+                latch.countDown();
+            }
+        }
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    private static AlerteDto alerte(long id, long patientId) {
+        return new AlerteDto(id, "Tachycardie", "rythme élevé", OffsetDateTime.now(), patientId, "Patient", null, 1, null);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "délai dépassé");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void lastEventIdReplaysMissedAlertsThenLive() throws Exception {
+        AlerteStreamService stream = service(16, 8, 30_000);
+        RecordingEmitter live = (RecordingEmitter) stream.subscribe(null, null, null);
+        for (long i = 1; i <= 3; i++) {
+            stream.publish(alerte(i, 7L));
+        }
+        await(() -> live.ids().size() == 3);
+        List<Long> ids = live.ids();
+
+        // Reconnexion après le premier événement: les deux suivants sont rejoués, dans l'ordre
+        RecordingEmitter resumed = (RecordingEmitter) stream.subscribe(null, null, Long.toString(ids.get(0)));
+        await(() -> resumed.ids().size() == 2);
+        assertEquals(ids.subList(1, 3), resumed.ids());
+
+        // Puis le direct, sans trou ni doublon
+        stream.publish(alerte(4, 7L));
+        await(() -> resumed.ids().size() == 3);
+        assertEquals(ids.get(2) + 1, resumed.ids().get(2));
+
+        // Filtre patient appliqué au rejeu
+        RecordingEmitter other = (RecordingEmitter) stream.subscribe(8L, null, Long.toString(ids.get(0)));
+        stream.publish(alerte(5, 8L));
+        await(() -> other.ids().size() == 1);
+        assertEquals(List.of("alerte"), other.names());
+    }
+
+    @Test
+    void unknownOrExpiredLastEventIdAsksForReset() throws Exception {
+        AlerteStreamService stream = service(2, 8, 30_000);
+        RecordingEmitter first = (RecordingEmitter) stream.subscribe(null, null, null);
+        for (long i = 1; i <= 5; i++) {
+            stream.publish(alerte(i, 7L));
+        }
+        await(() -> first.ids().size() == 5);
+
+        // Premier id sorti de l'anneau de 2 événements
+        RecordingEmitter expired = (RecordingEmitter) stream.subscribe(null, null, Long.toString(first.ids().get(0)));
+        RecordingEmitter garbage = (RecordingEmitter) stream.subscribe(null, null, "pas-un-id");
+        await(() -> expired.sent.size() == 1 && garbage.sent.size() == 1);
+        assertEquals(List.of(AlerteStreamService.EVENT_RESET), expired.names());
+        assertEquals(List.of(AlerteStreamService.EVENT_RESET), garbage.names());
+        assertEquals(2L, stream.getStats().get("resets"));
+    }
+
+    @Test
+    void slowSubscriberIsDisconnectedWithoutDelayingOthers() throws Exception {
+        AlerteStreamService stream = service(64, 4, 30_000);
+        RecordingEmitter slow = (RecordingEmitter) stream.subscribe(null, null, null);
+        slow.blocked = new CountDownLatch(1);
+        RecordingEmitter fast = (RecordingEmitter) stream.subscribe(null, null, null);
+
+        // Le client rapide reçoit chaque alerte pendant que le lent reste bloqué sur la première
+        for (int i = 1; i <= 10; i++) {
+            stream.publish(alerte(i, 7L));
+            int expected = i;
+            await(() -> fast.ids().size() == expected);
+        }
+        await(() -> slow.completed);
+        assertEquals(1L, stream.getStats().get("slowDisconnected"));
+        assertEquals(1, stream.getStats().get("subscribers"));
+    }
+
+    @Test
+    void heartbeatDisconnectsSubscriberStuckInSend() throws Exception {
+        AlerteStreamService stream = service(64, 64, 50);
+        RecordingEmitter stuck = (RecordingEmitter) stream.subscribe(null, null, null);
+        stuck.blocked = new CountDownLatch(1);
+        RecordingEmitter healthy = (RecordingEmitter) stream.subscribe(null, null, null);
+
+        stream.publish(alerte(1, 7L));
+        await(() -> healthy.ids().size() == 1);
+        Thread.sleep(100);
+        stream.heartbeat();
+
+        assertTrue(stuck.completed);
+        assertFalse(healthy.completed);
+        assertEquals(1L, stream.getStats().get("slowDisconnected"));
+        await(() -> healthy.sent.size() == 2);
+    }
+}
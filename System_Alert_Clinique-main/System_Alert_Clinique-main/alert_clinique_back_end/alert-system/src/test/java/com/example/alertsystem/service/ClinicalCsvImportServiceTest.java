@@ -0,0 +1,91 @@
+package com.example.alertsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClinicalCsvImportServiceTest {
+    private static final String HEADER = "patient_id,date,age,sex,heart_rate,mood_score,sleep_duration_hours,alert";
+
+    @TempDir
+    Path dir;
+
+    private static ClinicalCsvImportService.Columns columns() {
+        return ClinicalCsvImportService.Columns.parse(HEADER);
+    }
+
+    @Test
+    void decodesFullLine() {
+        ClinicalCsvImportService.Row row = columns().row("12,2024-03-05,67.0,F,88.6,7,6.5,1".split(",", -1));
+
+        assertNotNull(row);
+        assertEquals(12L, row.patientId);
+        assertEquals(LocalDate.of(2024, 3, 5), row.date);
+        assertEquals(67, row.age);
+        assertTrue(row.female);
+        assertEquals(88.6, row.heartRate);
+        assertEquals(6.5, row.sleepHours);
+        assertEquals("7", row.mood);
+    }
+
+    @Test
+    void blankMeasuresAreSkippedNotRejected() {
+        ClinicalCsvImportService.Row row = columns().row("12,2024-03-05,,M,,, ,0".split(",", -1));
+
+        assertNotNull(row);
+        assertEquals(0, row.age);
+        assertFalse(row.female);
+        assertNull(row.heartRate);
+        assertNull(row.sleepHours);
+        assertNull(row.mood);
+    }
+
+    @Test
+    void rejectsMalformedLines() {
+        ClinicalCsvImportService.Columns columns = columns();
+        // Nombre de cellules différent de l'en-tête
+        assertNull(columns.row("12,2024-03-05,67,F,88".split(",", -1)));
+        assertNull(columns.row("12,2024-03-05,67,F,88,7,6.5,1,extra".split(",", -1)));
+        // Identifiant, date ou mesure illisibles
+        assertNull(columns.row("abc,2024-03-05,67,F,88,7,6.5,1".split(",", -1)));
+        assertNull(columns.row("12,05/03/2024,67,F,88,7,6.5,1".split(",", -1)));
+        assertNull(columns.row("12,2024-03-05,67,F,rapide,7,6.5,1".split(",", -1)));
+        assertNull(columns.row("12,2024-03-05,67,F,88,joyeux,6.5,1".split(",", -1)));
+    }
+
+    @Test
+    void headerWithoutRequiredColumnsIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> ClinicalCsvImportService.Columns.parse("date,heart_rate"));
+        assertThrows(IllegalArgumentException.class, () -> ClinicalCsvImportService.Columns.parse(null));
+    }
+
+    @Test
+    void finishedJobsArePurgedAfterRetention() throws Exception {
+        ClinicalCsvImportService service = new ClinicalCsvImportService(null, null, null, dir.toString(), 60);
+        try {
+            // En-tête seul: aucun patient, l'import se termine sans base
+            ClinicalCsvImportService.Job job = service.start(
+                new ByteArrayInputStream((HEADER + "\n").getBytes(StandardCharsets.UTF_8)), "test");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!"DONE".equals(job.toMap().get("status"))) {
+                assertTrue(System.nanoTime() < deadline, "délai dépassé");
+                Thread.sleep(10);
+            }
+
+            service.purgeFinished(Instant.now().plusSeconds(59 * 60));
+            assertSame(job, service.getJob(job.getId()));
+            service.purgeFinished(Instant.now().plusSeconds(61 * 60));
+            assertNull(service.getJob(job.getId()));
+        } finally {
+            service.shutdown();
+        }
+    }
+}
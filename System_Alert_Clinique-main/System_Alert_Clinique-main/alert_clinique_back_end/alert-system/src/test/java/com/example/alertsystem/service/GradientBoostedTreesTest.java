@@ -0,0 +1,98 @@
+package com.example.alertsystem.service;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GradientBoostedTreesTest {
+
+    private static final Path ARTIFACTS = Path.of(System.getProperty("ai.artifacts.dir", "../../../../artifacts"));
+
+    private final JsonMapper mapper = JsonMapper.builder().build();
+
+    /**
+     * Un arbre: x0 standardisé <= 0 (ou manquant) -> +1, sinon catégorie 1 de c0 -> -1, sinon 0.5
+     */
+    private static final String TINY_MODEL = "{\"format\":\"alert-gbdt\",\"version\":1,\"threshold\":0.5,"
+        + "\"num_features\":[\"age\"],\"scaler_mean\":[50.0],\"scaler_scale\":[10.0],"
+        + "\"cat_features\":[\"weekend\"],\"categories\":[[0.0,1.0]],\"baseline\":0.0,"
+        + "\"trees\":[{\"feature\":[0,-1,2,-1,-1],\"threshold\":[0.0,0.0,0.5,0.0,0.0],"
+        + "\"left\":[1,0,3,0,0],\"right\":[2,0,4,0,0],\"missing_left\":[true,false,false,false,false],"
+        + "\"value\":[0.0,1.0,0.0,0.5,-1.0]}]}";
+
+    @Test
+    void scoresFollowSplitsScalerAndOneHot() {
+        GradientBoostedTrees model = GradientBoostedTrees.fromFile(
+            mapper.readValue(TINY_MODEL, GradientBoostedTrees.ModelFile.class));
+        double[] transformed = new double[model.getTransformedWidth()];
+
+        assertEquals(sigmoid(1.0), model.score(new double[] {40.0, 0.0}, transformed), 1e-12);
+        assertEquals(sigmoid(1.0), model.score(new double[] {Double.NaN, 1.0}, transformed), 1e-12);
+        assertEquals(sigmoid(0.5), model.score(new double[] {60.0, 0.0}, transformed), 1e-12);
+        assertEquals(sigmoid(-1.0), model.score(new double[] {60.0, 1.0}, transformed), 1e-12);
+    }
+
+    @Test
+    void rejectsUnknownFormatVersion() {
+        GradientBoostedTrees.ModelFile file = mapper.readValue(TINY_MODEL, GradientBoostedTrees.ModelFile.class);
+        file.setVersion(2);
+        assertThrows(IllegalArgumentException.class, () -> GradientBoostedTrees.fromFile(file));
+    }
+
+    /**
+     * Parité avec le pipeline Python sur data/clinical_alerts.csv
+     * (fichiers générés par AI/src/export_model.py; ignoré s'ils sont absents)
+     */
+    @Test
+    void matchesPythonScoresOnClinicalAlerts() throws IOException {
+        Path modelPath = ARTIFACTS.resolve("supervised_model.json");
+        Path parityPath = ARTIFACTS.resolve("supervised_parity.csv");
+        assumeTrue(Files.exists(modelPath) && Files.exists(parityPath), "Artefacts exportés absents");
+
+        GradientBoostedTrees model = GradientBoostedTrees.fromFile(
+            mapper.readValue(modelPath.toFile(), GradientBoostedTrees.ModelFile.class));
+
+        try (BufferedReader reader = Files.newBufferedReader(parityPath)) {
+            List<String> header = Arrays.asList(reader.readLine().split(","));
+            int[] columns = new int[model.getRawWidth()];
+            String[] num = model.getNumFeatures();
+            String[] cat = model.getCatFeatures();
+            for (int i = 0; i < num.length; i++) {
+                columns[i] = header.indexOf(num[i]);
+            }
+            for (int i = 0; i < cat.length; i++) {
+                columns[num.length + i] = header.indexOf(cat[i]);
+            }
+            int expectedColumn = header.indexOf("expected_score");
+
+            double[] raw = new double[model.getRawWidth()];
+            double[] transformed = new double[model.getTransformedWidth()];
+            int rows = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(",", -1);
+                for (int i = 0; i < raw.length; i++) {
+                    String v = values[columns[i]];
+                    raw[i] = v.isEmpty() ? Double.NaN : Double.parseDouble(v);
+                }
+                double expected = Double.parseDouble(values[expectedColumn]);
+                assertEquals(expected, model.score(raw, transformed), 1e-9, "ligne " + (rows + 2));
+                rows++;
+            }
+            assertTrue(rows > 0);
+        }
+    }
+
+    private static double sigmoid(double x) {
+        return 1.0 / (1.0 + Math.exp(-x));
+    }
+}
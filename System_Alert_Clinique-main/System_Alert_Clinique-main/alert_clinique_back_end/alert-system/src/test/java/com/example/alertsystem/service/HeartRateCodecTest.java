@@ -0,0 +1,76 @@
+package com.example.alertsystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeartRateCodecTest {
+
+    private static byte[] encode(long patientId, long[] timestamps, int[] values) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HeartRateCodec.Encoder encoder = new HeartRateCodec.Encoder(out, patientId);
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.add(timestamps[i], values[i]);
+        }
+        encoder.finish();
+        return out.toByteArray();
+    }
+
+    @Test
+    void roundTripIrregularSeries() throws IOException {
+        Random random = new Random(42);
+        int n = 5000; // plusieurs blocs
+        long[] timestamps = new long[n];
+        int[] values = new int[n];
+        long ts = 1_735_689_600_000L;
+        for (int i = 0; i < n; i++) {
+            // Pas d'une seconde avec gigue, quelques trous de plusieurs heures, doublons
+            ts += i % 997 == 0 ? 3 * 3_600_000L : 1000 + random.nextInt(21) - 10;
+            if (i % 500 == 0) {
+                ts -= 1000;
+            }
+            timestamps[i] = ts;
+            values[i] = 40 + random.nextInt(140);
+        }
+
+        HeartRateCodec.Series decoded = HeartRateCodec.decode(new ByteArrayInputStream(encode(17L, timestamps, values)));
+
+        assertEquals(17L, decoded.patientId());
+        assertArrayEquals(timestamps, decoded.timestamps());
+        assertArrayEquals(values, decoded.values());
+    }
+
+    @Test
+    void regularSeriesIsAboutTwoBytesPerSample() throws IOException {
+        int n = 10_000;
+        long[] timestamps = new long[n];
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = 1_735_689_600_000L + i * 1000L;
+            values[i] = 70 + (i % 7) - 3;
+        }
+
+        byte[] encoded = encode(1L, timestamps, values);
+
+        // JSON {"id":..,"valeur":..,"timestamp":"..."} sans le patient: déjà ~70 octets par mesure
+        assertTrue(encoded.length < n * 2 + 64, "taille: " + encoded.length);
+    }
+
+    @Test
+    void emptySeriesAndTruncatedStream() throws IOException {
+        HeartRateCodec.Series empty = HeartRateCodec.decode(new ByteArrayInputStream(encode(3L, new long[0], new int[0])));
+        assertEquals(0, empty.timestamps().length);
+
+        byte[] encoded = encode(3L, new long[] {1000L, 2000L}, new int[] {60, 61});
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 1);
+        assertThrows(EOFException.class, () -> HeartRateCodec.decode(new ByteArrayInputStream(truncated)));
+        assertThrows(IOException.class, () -> HeartRateCodec.decode(new ByteArrayInputStream(new byte[] {'{', '"'})));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.RecentRythmes;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeartRateHotWindowTest {
+
+    private static final long WINDOW = 60_000L;
+
+    private static RecentRythmes since(HeartRateHotWindow.SampleRing ring, long from) {
+        RecentRythmes out = new RecentRythmes();
+        ring.copySince(from, out);
+        return out;
+    }
+
+    @Test
+    void keepsSortedWindowAndGrows() {
+        HeartRateHotWindow.SampleRing ring = new HeartRateHotWindow.SampleRing();
+        for (int i = 0; i < 200; i++) {
+            ring.add(1_000_000L + i * 100L, 60 + i % 40, WINDOW, 4096);
+        }
+        // Mesure en retard insérée à sa place, doublon ignoré
+        ring.add(1_000_050L, 99, WINDOW, 4096);
+        ring.add(1_000_050L, 99, WINDOW, 4096);
+
+        RecentRythmes all = since(ring, 0);
+        assertEquals(201, all.getTimestamps().length);
+        for (int i = 1; i < all.getTimestamps().length; i++) {
+            assertTrue(all.getTimestamps()[i - 1] <= all.getTimestamps()[i]);
+        }
+        assertEquals(99, all.getValues()[1]);
+
+        RecentRythmes tail = since(ring, 1_000_000L + 150 * 100L);
+        assertEquals(50, tail.getTimestamps().length);
+        assertEquals(60 + 150 % 40, tail.getValues()[0]);
+    }
+
+    @Test
+    void dropsSamplesOutsideWindowAndCapacity() {
+        HeartRateHotWindow.SampleRing ring = new HeartRateHotWindow.SampleRing();
+        for (int i = 0; i < 100; i++) {
+            ring.add(i * 1_000L, 70, WINDOW, 4096);
+        }
+        // Fenêtre de 60 s avant la mesure la plus récente (99 s)
+        assertEquals(61, since(ring, 0).getTimestamps().length);
+        ring.add(1_000L, 70, WINDOW, 4096);
+        assertEquals(61, since(ring, 0).getTimestamps().length);
+
+        HeartRateHotWindow.SampleRing small = new HeartRateHotWindow.SampleRing();
+        for (int i = 0; i < 100; i++) {
+            small.add(i, i, WINDOW, 64);
+        }
+        RecentRythmes kept = since(small, 0);
+        assertEquals(64, kept.getValues().length);
+        assertEquals(36, kept.getValues()[0]);
+        assertEquals(99, kept.getValues()[63]);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.alertsystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripKeepsInstantAndId() {
+        OffsetDateTime ts = OffsetDateTime.parse("2025-03-14T09:26:53.589793+02:00");
+        KeysetCursor cursor = new KeysetCursor(ts, 123456789L);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertTrue(decoded.timestamp().isEqual(ts));
+        assertEquals(123456789L, decoded.id());
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("pas-un-curseur"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(""));
+    }
+}
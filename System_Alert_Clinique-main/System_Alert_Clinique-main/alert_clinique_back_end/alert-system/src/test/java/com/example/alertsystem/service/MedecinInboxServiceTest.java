@@ -0,0 +1,216 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.entities.Alerte;
+import com.example.alertsystem.entities.InboxCounter;
+import com.example.alertsystem.entities.InboxEntry;
+import com.example.alertsystem.entities.Medecin;
+import com.example.alertsystem.entities.Patient;
+import com.example.alertsystem.repository.InboxCounterRepository;
+import com.example.alertsystem.repository.InboxEntryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MedecinInboxServiceTest {
+
+    /** Dépôts simulés: entrées de boîte en mémoire, sauvegardes des compteurs enregistrées */
+    private static final class Repositories {
+        final List<InboxEntry> entries = new ArrayList<>();
+        final List<List<InboxCounter>> flushes = new ArrayList<>();
+        boolean failSaves;
+
+        InboxEntryRepository entries() {
+            return (InboxEntryRepository) Proxy.newProxyInstance(InboxEntryRepository.class.getClassLoader(),
+                new Class<?>[] {InboxEntryRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        InboxEntry entry = (InboxEntry) args[0];
+                        entry.setId((long) entries.size() + 1);
+                        entries.add(entry);
+                        yield entry;
+                    }
+                    case "markRead" -> markRead((Long) args[0], (Long) args[1]);
+                    case "markAllRead" -> markRead((Long) args[0], null);
+                    case "countByMedecin" -> {
+                        Map<Long, Long> counts = new HashMap<>();
+                        for (InboxEntry entry : entries) {
+                            if (entry.getState() == args[0]) {
+                                counts.merge(entry.getMedecinId(), 1L, Long::sum);
+                            }
+                        }
+                        List<Object[]> rows = new ArrayList<>();
+                        counts.forEach((medecinId, count) -> rows.add(new Object[] {medecinId, count}));
+                        yield rows;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        }
+
+        InboxCounterRepository counters() {
+            return (InboxCounterRepository) Proxy.newProxyInstance(InboxCounterRepository.class.getClassLoader(),
+                new Class<?>[] {InboxCounterRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("saveAll")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    if (failSaves) {
+                        throw new IllegalStateException("base indisponible");
+                    }
+                    List<InboxCounter> saved = new ArrayList<>();
+                    ((Iterable<?>) args[0]).forEach(counter -> saved.add((InboxCounter) counter));
+                    flushes.add(saved);
+                    return saved;
+                });
+        }
+
+        private int markRead(Long medecinId, Long entryId) {
+            int updated = 0;
+            for (InboxEntry entry : entries) {
+                if (entry.getMedecinId().equals(medecinId) && entry.getState() == InboxEntry.State.UNREAD
+                        && (entryId == null || entry.getId().equals(entryId))) {
+                    entry.setState(InboxEntry.State.READ);
+                    updated++;
+                }
+            }
+            return updated;
+        }
+    }
+
+    private final Repositories repositories = new Repositories();
+    private final MedecinInboxService service =
+        new MedecinInboxService(repositories.entries(), repositories.counters(), 50, 500);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void commit() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static Alerte alerte(long id, Long medecinId) {
+        Patient patient = new Patient();
+        patient.setId(7L);
+        patient.setName("Patient");
+        Alerte alerte = new Alerte();
+        alerte.setId(id);
+        alerte.setType("Tachycardie");
+        alerte.setMessage("rythme élevé");
+        alerte.setTimestamp(OffsetDateTime.parse("2026-01-15T08:00:00Z"));
+        alerte.setPatient(patient);
+        if (medecinId != null) {
+            Medecin medecin = new Medecin();
+            medecin.setId(medecinId);
+            alerte.setMedecin(medecin);
+        }
+        return alerte;
+    }
+
+    @Test
+    void countersMoveOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.deliver(alerte(1, 3L));
+        service.deliver(alerte(2, 3L));
+        service.deliver(alerte(3, 4L));
+        assertEquals(0, service.getUnreadCount(3L));
+        commit();
+        assertEquals(2, service.getUnreadCount(3L));
+        assertEquals(1, service.getUnreadCount(4L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(service.markRead(3L, 1L));
+        assertEquals(2, service.getUnreadCount(3L));
+        commit();
+        assertEquals(1, service.getUnreadCount(3L));
+
+        // Déjà lue: pas de nouvelle décrémentation
+        assertFalse(service.markRead(3L, 1L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(1, service.markAllRead(3L));
+        commit();
+        assertEquals(0, service.getUnreadCount(3L));
+        assertEquals(1, service.getUnreadCount(4L));
+    }
+
+    @Test
+    void rollbackLeavesCountersUnchanged() {
+        service.deliver(alerte(1, 3L));
+        assertEquals(1, service.getUnreadCount(3L));
+
+        // Rollback: les synchronisations sont abandonnées sans afterCommit
+        TransactionSynchronizationManager.initSynchronization();
+        service.deliver(alerte(2, 3L));
+        service.markAllRead(3L);
+        TransactionSynchronizationManager.clearSynchronization();
+        assertEquals(1, service.getUnreadCount(3L));
+    }
+
+    @Test
+    void alerteWithoutMedecinIsNotDelivered() {
+        service.deliver(alerte(1, null));
+
+        assertTrue(repositories.entries.isEmpty());
+        service.flushCounters();
+        assertTrue(repositories.flushes.isEmpty());
+    }
+
+    @Test
+    void reconcileRealignsCountersOnEntries() {
+        service.deliver(alerte(1, 3L));
+        service.deliver(alerte(2, 3L));
+        // Dérive: une entrée lue en base sans passer par le service, un compteur fantôme
+        repositories.entries.get(0).setState(InboxEntry.State.READ);
+        service.deliver(alerte(3, 4L));
+        repositories.entries.remove(2);
+
+        service.reconcile();
+
+        assertEquals(1, service.getUnreadCount(3L));
+        assertEquals(0, service.getUnreadCount(4L));
+    }
+
+    @Test
+    void flushSavesChangedCountersAndRetriesAfterFailure() {
+        service.deliver(alerte(1, 3L));
+        service.deliver(alerte(2, 4L));
+
+        repositories.failSaves = true;
+        service.flushCounters();
+        assertTrue(repositories.flushes.isEmpty());
+
+        // Échec: les deux médecins restent à sauvegarder
+        repositories.failSaves = false;
+        service.flushCounters();
+        assertEquals(1, repositories.flushes.size());
+        Map<Long, Long> saved = new HashMap<>();
+        for (InboxCounter counter : repositories.flushes.get(0)) {
+            saved.put(counter.getMedecinId(), counter.getUnread());
+        }
+        assertEquals(Map.of(3L, 1L, 4L, 1L), saved);
+
+        // Rien de modifié depuis: pas de sauvegarde
+        service.flushCounters();
+        assertEquals(1, repositories.flushes.size());
+
+        service.markRead(3L, 1L);
+        service.flushCounters();
+        assertEquals(2, repositories.flushes.size());
+        assertEquals(1, repositories.flushes.get(1).size());
+        assertEquals(0, repositories.flushes.get(1).get(0).getUnread());
+    }
+}
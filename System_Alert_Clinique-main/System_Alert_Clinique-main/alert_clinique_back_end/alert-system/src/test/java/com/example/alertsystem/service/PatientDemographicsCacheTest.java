@@ -0,0 +1,80 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatientDemographicsCacheTest {
+
+    private final Map<Long, PatientRepository.Demographics> rows = new HashMap<>();
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private PatientRepository repository() {
+        return (PatientRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{PatientRepository.class}, (proxy, method, args) -> {
+                if (method.getName().equals("findDemographicsById")) {
+                    queries.incrementAndGet();
+                    return Optional.ofNullable(rows.get((Long) args[0]));
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static PatientRepository.Demographics row(Integer age, String gender) {
+        return new PatientRepository.Demographics() {
+            public Integer getAge() { return age; }
+            public String getGender() { return gender; }
+        };
+    }
+
+    @Test
+    void readThroughThenInvalidate() {
+        rows.put(7L, row(68, "F"));
+        PatientDemographicsCache cache = new PatientDemographicsCache(repository(), true, 1000);
+
+        int packed = cache.lookup(7L);
+        assertEquals(68, PatientDemographicsCache.age(packed));
+        assertEquals("F", PatientDemographicsCache.gender(packed));
+        cache.lookup(7L);
+        assertEquals(1, queries.get());
+
+        rows.put(7L, row(69, "M"));
+        cache.invalidate(7L);
+        packed = cache.lookup(7L);
+        assertEquals(69, PatientDemographicsCache.age(packed));
+        assertEquals("M", PatientDemographicsCache.gender(packed));
+        assertEquals(2, queries.get());
+
+        assertEquals(PatientDemographicsCache.MISSING, cache.lookup(8L));
+        assertNull(PatientDemographicsCache.age(PatientDemographicsCache.MISSING));
+        assertNull(PatientDemographicsCache.gender(PatientDemographicsCache.pack(null, null)));
+    }
+
+    @Test
+    void removalKeepsProbeChainsIntact() {
+        for (long id = 1; id <= 500; id++) {
+            rows.put(id, row((int) (id % 100), id % 2 == 0 ? "F" : "M"));
+        }
+        PatientDemographicsCache cache = new PatientDemographicsCache(repository(), true, 100000);
+        for (long id = 1; id <= 500; id++) {
+            cache.lookup(id);
+        }
+        for (long id = 1; id <= 500; id += 3) {
+            cache.invalidate(id);
+        }
+        queries.set(0);
+        for (long id = 1; id <= 500; id++) {
+            int packed = cache.lookup(id);
+            assertEquals((int) (id % 100), PatientDemographicsCache.age(packed));
+        }
+        // Seules les entrées invalidées repartent en base
+        assertEquals(167, queries.get());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.alertsystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatientFeatureWindowTest {
+
+    private static final PatientFeatureWindow.Metric HR = PatientFeatureWindow.Metric.HEART_RATE;
+
+    /**
+     * Valeurs attendues = pandas rolling(window=7, min_periods=3) sur les moyennes journalières
+     */
+    @Test
+    void matchesPandasRollingStatistics() {
+        PatientFeatureWindow window = new PatientFeatureWindow(true, 10);
+        double[] daily = {60, 62, 75, 58, 61, 90, 70, 66, 64, 80, 59};
+        double[] expectedDelta = {Double.NaN, Double.NaN, 9.333333333333329, -5.75, -2.2, 22.33333333333333,
+            2.0, -2.857142857142861, -5.142857142857139, 10.142857142857139, -11.0};
+        double[] expectedZ = {Double.NaN, Double.NaN, 1.1459635719945804, -0.7491153638257481, -0.3254351931601148,
+            1.7865712424821338, 0.17474079606503334, -0.26066513001825675, -0.47720849668004073,
+            0.8913849845987669, -0.9812566176594382};
+
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int k = 0; k < daily.length; k++) {
+            LocalDate day = start.plusDays(k);
+            // Deux mesures dans la journée, de moyenne daily[k]
+            window.record(1L, HR, daily[k] - 2, day.atTime(8, 0).atOffset(ZoneOffset.UTC));
+            window.record(1L, HR, daily[k] + 2, day.atTime(20, 0).atOffset(ZoneOffset.UTC));
+
+            Map<PatientFeatureWindow.Metric, Double> current = new EnumMap<>(PatientFeatureWindow.Metric.class);
+            current.put(HR, daily[k]);
+            Map<String, Double> features = window.rollingFeatures(1L, day, current);
+            if (Double.isNaN(expectedDelta[k])) {
+                assertNull(features, "jour " + k);
+            } else {
+                assertEquals(expectedDelta[k], features.get("heart_rate_delta"), 1e-9, "jour " + k);
+                assertEquals(expectedZ[k], features.get("heart_rate_z"), 1e-9, "jour " + k);
+            }
+        }
+        assertEquals(daily[daily.length - 1], window.latest(1L, HR), 1e-9);
+    }
+
+    @Test
+    void mapsMoodLabelsAndNumbers() {
+        assertEquals(4.0, PatientFeatureWindow.moodScore("Fatigué"));
+        assertEquals(6.5, PatientFeatureWindow.moodScore("6,5"));
+        assertNull(PatientFeatureWindow.moodScore("inconnu"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.RecentRythmes;
+import com.example.alertsystem.dto.RythmePoint;
+import com.example.alertsystem.entities.Patient;
+import com.example.alertsystem.entities.RythmeCardiaque;
+import com.example.alertsystem.repository.RythmeCardiaqueRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RythmeCardiaqueServiceTest {
+
+    private final PatientFeatureWindow featureWindow = new PatientFeatureWindow(true, 100);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /** Dépôt simulé: requête des mesures les plus récentes et save() qui renvoie l'entité */
+    private static RythmeCardiaqueRepository repository(List<RythmePoint> newestFirst) {
+        return (RythmeCardiaqueRepository) Proxy.newProxyInstance(RythmeCardiaqueRepository.class.getClassLoader(),
+            new Class<?>[] {RythmeCardiaqueRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "findLatestByPatient" -> newestFirst;
+                case "save" -> args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private RythmeCardiaqueService service(RythmeCardiaqueRepository repository) {
+        // Fenêtre chaude désactivée: lecture en base
+        HeartRateHotWindow hotWindow = new HeartRateHotWindow(new JdbcTemplate(new DriverManagerDataSource()),
+            null, false, 60, 4096, 100);
+        return new RythmeCardiaqueService(repository, null, featureWindow, hotWindow,
+            new ThresholdRuleEngine(null, null, null, null, null, false, 1, 1));
+    }
+
+    private static RythmeCardiaque rythme(long patientId, int valeur) {
+        Patient patient = new Patient();
+        patient.setId(patientId);
+        RythmeCardiaque rc = new RythmeCardiaque();
+        rc.setPatient(patient);
+        rc.setValeur(valeur);
+        rc.setTimestamp(OffsetDateTime.parse("2026-01-15T08:00:00Z"));
+        return rc;
+    }
+
+    @Test
+    void featureWindowOnlySeesCommittedSamples() {
+        RythmeCardiaqueService service = service(repository(List.of()));
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.save(rythme(4L, 120));
+        assertNull(featureWindow.latest(4L, PatientFeatureWindow.Metric.HEART_RATE));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+        assertEquals(120.0, featureWindow.latest(4L, PatientFeatureWindow.Metric.HEART_RATE));
+
+        // Rollback: les synchronisations sont abandonnées sans afterCommit
+        TransactionSynchronizationManager.initSynchronization();
+        service.save(rythme(4L, 180));
+        TransactionSynchronizationManager.clearSynchronization();
+        assertEquals(120.0, featureWindow.latest(4L, PatientFeatureWindow.Metric.HEART_RATE));
+
+        // Hors transaction: enregistrée tout de suite (moyenne du jour de 120 et 95, sans 180)
+        service.save(rythme(4L, 95));
+        assertEquals(107.5, featureWindow.latest(4L, PatientFeatureWindow.Metric.HEART_RATE));
+    }
+
+    @Test
+    void databaseFallbackReturnsNewestSamplesInChronologicalOrder() {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<RythmePoint> newestFirst = List.of(
+            new RythmePoint(30L, 90, now.minusSeconds(10)),
+            new RythmePoint(20L, 80, now.minusSeconds(20)),
+            new RythmePoint(10L, 70, now.minusSeconds(30)));
+
+        RecentRythmes recent = service(repository(newestFirst)).getRecent(5L, 120);
+
+        assertEquals("database", recent.getSource());
+        assertEquals(5L, recent.getPatient_id());
+        assertArrayEquals(new int[] {70, 80, 90}, recent.getValues());
+        assertArrayEquals(new long[] {
+            now.minusSeconds(30).toInstant().toEpochMilli(),
+            now.minusSeconds(20).toInstant().toEpochMilli(),
+            now.minusSeconds(10).toInstant().toEpochMilli()}, recent.getTimestamps());
+    }
+}
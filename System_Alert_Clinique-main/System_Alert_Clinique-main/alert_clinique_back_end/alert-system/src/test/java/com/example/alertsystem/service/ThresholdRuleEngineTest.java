@@ -0,0 +1,147 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.entities.SeuilAlerte;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThresholdRuleEngineTest {
+
+    /** Base simulée: les alertes du patient 99 sont refusées, comme une contrainte violée */
+    private static final class FakeDbEngine extends ThresholdRuleEngine {
+        final List<Long> written = Collections.synchronizedList(new ArrayList<>());
+        volatile int unavailableCalls;
+
+        FakeDbEngine() {
+            super(null, null, null, null, null, true, 100, 10);
+            ReflectionTestUtils.setField(this, "retryDelayMs", 10L);
+            ReflectionTestUtils.setField(this, "table", ThresholdRuleEngine.compile(
+                List.of(seuil(1, SeuilAlerte.Metrique.HEART_RATE, null, null, null, 120.0)), Map.of()));
+        }
+
+        @Override
+        void writeAlerts(List<Breach> breaches) {
+            if (unavailableCalls > 0) {
+                unavailableCalls--;
+                throw new DataAccessResourceFailureException("connexion refusée");
+            }
+            for (Breach breach : breaches) {
+                if (breach.sample().patientId() == 99L) {
+                    throw new IllegalStateException("violates foreign key constraint");
+                }
+            }
+            for (Breach breach : breaches) {
+                written.add(breach.sample().patientId());
+            }
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "délai dépassé");
+            Thread.sleep(10);
+        }
+    }
+
+    private static SeuilAlerte seuil(long id, SeuilAlerte.Metrique metrique, Long patientId, String condition,
+                                     Double min, Double max) {
+        SeuilAlerte s = new SeuilAlerte();
+        s.setId(id);
+        s.setMetrique(metrique);
+        s.setPatientId(patientId);
+        s.setCondition(condition);
+        s.setMin(min);
+        s.setMax(max);
+        return s;
+    }
+
+    @Test
+    void mostSpecificScopeWinsPerMetric() {
+        List<SeuilAlerte> seuils = List.of(
+            seuil(1, SeuilAlerte.Metrique.HEART_RATE, null, null, 50.0, 120.0),
+            seuil(2, SeuilAlerte.Metrique.HEART_RATE, null, "Hypertension sévère", null, 100.0),
+            seuil(3, SeuilAlerte.Metrique.HEART_RATE, 7L, null, null, 90.0),
+            seuil(4, SeuilAlerte.Metrique.SLEEP_HOURS, null, "hypertension sévère ", 5.0, null));
+        Map<Long, String> conditions = Map.of(7L, "hypertension sévère", 8L, "hypertension sévère");
+
+        ThresholdRuleEngine.RuleTable table = ThresholdRuleEngine.compile(seuils, conditions);
+
+        // Patient 7: son propre seuil de rythme, le seuil de sommeil de sa pathologie
+        assertEquals(3L, table.rules(7L, SeuilAlerte.Metrique.HEART_RATE)[0].seuilId());
+        assertEquals(4L, table.rules(7L, SeuilAlerte.Metrique.SLEEP_HOURS)[0].seuilId());
+        // Patient 8: pathologie; patient 9: global
+        assertEquals(2L, table.rules(8L, SeuilAlerte.Metrique.HEART_RATE)[0].seuilId());
+        assertEquals(1L, table.rules(9L, SeuilAlerte.Metrique.HEART_RATE)[0].seuilId());
+        assertNull(table.rules(9L, SeuilAlerte.Metrique.MOOD_SCORE));
+    }
+
+    @Test
+    void openBoundsAreIgnored() {
+        ThresholdRuleEngine.RuleTable table = ThresholdRuleEngine.compile(
+            List.of(seuil(1, SeuilAlerte.Metrique.HEART_RATE, null, null, null, 120.0)), Map.of());
+        ThresholdRuleEngine.Rule rule = table.rules(1L, SeuilAlerte.Metrique.HEART_RATE)[0];
+
+        assertFalse(rule.breached(30));
+        assertFalse(rule.breached(120));
+        assertTrue(rule.breached(121));
+        assertEquals("Rythme cardiaque 121 hors seuil max 120 (seuil #1)", ThresholdRuleEngine.message(rule, 121));
+        assertEquals("Anomalie de rythme", rule.type());
+    }
+
+    @Test
+    void inactiveOrUnboundedSeuilsAreSkipped() {
+        SeuilAlerte inactive = seuil(1, SeuilAlerte.Metrique.HEART_RATE, null, null, 50.0, 120.0);
+        inactive.setActif(false);
+        SeuilAlerte unbounded = seuil(2, SeuilAlerte.Metrique.HEART_RATE, null, null, null, null);
+
+        ThresholdRuleEngine.RuleTable table = ThresholdRuleEngine.compile(List.of(inactive, unbounded), Map.of());
+
+        assertNull(table.rules(1L, SeuilAlerte.Metrique.HEART_RATE));
+    }
+
+    @Test
+    void unavailableDatabaseRetriesTheAlertBatch() throws Exception {
+        FakeDbEngine engine = new FakeDbEngine();
+        engine.unavailableCalls = 2;
+        OffsetDateTime t0 = OffsetDateTime.parse("2026-01-15T08:00:00Z");
+        engine.submit(1L, SeuilAlerte.Metrique.HEART_RATE, 130, t0);
+        engine.submit(2L, SeuilAlerte.Metrique.HEART_RATE, 140, t0);
+        engine.startEvaluator();
+        try {
+            await(() -> engine.written.size() == 2);
+            assertEquals(List.of(1L, 2L), engine.written);
+            assertEquals(2L, engine.getStats().get("retries"));
+            assertEquals(0L, engine.getStats().get("failed"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void rejectedAlertDoesNotLoseTheRestOfTheBatch() throws Exception {
+        FakeDbEngine engine = new FakeDbEngine();
+        OffsetDateTime t0 = OffsetDateTime.parse("2026-01-15T08:00:00Z");
+        engine.submit(1L, SeuilAlerte.Metrique.HEART_RATE, 130, t0);
+        engine.submit(99L, SeuilAlerte.Metrique.HEART_RATE, 130, t0);
+        engine.submit(2L, SeuilAlerte.Metrique.HEART_RATE, 130, t0);
+        engine.startEvaluator();
+        try {
+            await(() -> engine.written.size() == 2);
+            assertEquals(List.of(1L, 2L), engine.written);
+            await(() -> Long.valueOf(1L).equals(engine.getStats().get("failed")));
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
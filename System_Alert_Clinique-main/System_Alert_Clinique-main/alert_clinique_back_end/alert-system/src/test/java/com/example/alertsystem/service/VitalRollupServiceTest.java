@@ -0,0 +1,167 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.entities.VitalRollup.Metric;
+import com.example.alertsystem.entities.VitalRollup.Resolution;
+import com.example.alertsystem.service.VitalRollupService.Position;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VitalRollupServiceTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    /**
+     * Base simulée: lignes brutes repérées par (ingest_xid, id), tranches intégrées et
+     * high-water marks en mémoire; une tranche en échec n'avance pas le high-water mark
+     */
+    private static final class FakeDbRollup extends VitalRollupService {
+        final Map<Metric, List<Position>> raw = new EnumMap<>(Metric.class);
+        final Map<Metric, List<Position>> counted = new EnumMap<>(Metric.class);
+        final Map<Metric, Position> marks = new EnumMap<>(Metric.class);
+        final Set<Metric> missingColumn = EnumSet.noneOf(Metric.class);
+        final Set<Metric> failingIntegrate = EnumSet.noneOf(Metric.class);
+        int integrations;
+        long horizon;
+
+        FakeDbRollup() {
+            super(null, null, true, CHUNK_SIZE, 300, 2000);
+            for (Metric metric : Metric.values()) {
+                raw.put(metric, new ArrayList<>());
+                counted.put(metric, new ArrayList<>());
+            }
+        }
+
+        void insert(Metric metric, long xid, long id) {
+            raw.get(metric).add(new Position(xid, id));
+        }
+
+        @Override
+        void checkIngestColumn(Metric metric) {
+            if (missingColumn.contains(metric)) {
+                throw new IllegalStateException("Colonne ingest_xid absente");
+            }
+        }
+
+        @Override
+        long snapshotHorizon() {
+            return horizon;
+        }
+
+        @Override
+        Position watermark(Metric metric) {
+            return marks.getOrDefault(metric, new Position(0L, 0L));
+        }
+
+        @Override
+        Position chunkEnd(Metric metric, Position lo, long horizon) {
+            List<Position> rows = raw.get(metric).stream()
+                .filter(row -> row.isAfter(lo) && row.xid() < horizon)
+                .sorted(Comparator.comparingLong(Position::xid).thenComparingLong(Position::id))
+                .toList();
+            return rows.size() >= CHUNK_SIZE ? rows.get(CHUNK_SIZE - 1) : null;
+        }
+
+        @Override
+        void integrate(Metric metric, Position lo, Position hi) {
+            if (failingIntegrate.contains(metric)) {
+                throw new IllegalStateException("base indisponible");
+            }
+            integrations++;
+            raw.get(metric).stream()
+                .filter(row -> row.isAfter(lo) && !row.isAfter(hi))
+                .sorted(Comparator.comparingLong(Position::xid).thenComparingLong(Position::id))
+                .forEach(counted.get(metric)::add);
+            marks.put(metric, hi);
+        }
+    }
+
+    @Test
+    void choosesCoarsestResolutionGivingEnoughPoints() {
+        assertEquals(Resolution.DAY, VitalRollupService.chooseResolution(Duration.ofDays(365), 300));
+        assertEquals(Resolution.HOUR, VitalRollupService.chooseResolution(Duration.ofDays(30), 300));
+        assertEquals(Resolution.MINUTE, VitalRollupService.chooseResolution(Duration.ofDays(7), 300));
+        // Limite exacte: 300 jours donnent 300 points journaliers
+        assertEquals(Resolution.DAY, VitalRollupService.chooseResolution(Duration.ofDays(300), 300));
+        assertEquals(Resolution.HOUR, VitalRollupService.chooseResolution(Duration.ofDays(300).minusSeconds(1), 300));
+        // Plage trop courte même pour la minute: minute quand même
+        assertEquals(Resolution.MINUTE, VitalRollupService.chooseResolution(Duration.ofSeconds(30), 300));
+    }
+
+    @Test
+    void catchUpFollowsCommitOrderAndStopsAtHorizon() {
+        FakeDbRollup service = new FakeDbRollup();
+        service.insert(Metric.HEART_RATE, 100, 5);
+        service.insert(Metric.HEART_RATE, 100, 6);
+        // Id alloué plus tôt mais transaction plus tardive: rattrapé après les lignes de 100
+        service.insert(Metric.HEART_RATE, 101, 1);
+        service.insert(Metric.HEART_RATE, 102, 3);
+        // Transaction encore en cours au passage: laissée au suivant
+        service.insert(Metric.HEART_RATE, 105, 2);
+        service.horizon = 103;
+
+        service.catchUp();
+
+        assertEquals(List.of(new Position(100, 5), new Position(100, 6), new Position(101, 1), new Position(102, 3)),
+            service.counted.get(Metric.HEART_RATE));
+        // High-water mark poussé jusqu'à l'horizon: rien ne peut plus s'insérer avant
+        assertEquals(new Position(102, Long.MAX_VALUE), service.marks.get(Metric.HEART_RATE));
+
+        service.insert(Metric.HEART_RATE, 104, 9);
+        service.horizon = 106;
+        service.catchUp();
+
+        assertEquals(List.of(new Position(100, 5), new Position(100, 6), new Position(101, 1), new Position(102, 3),
+            new Position(104, 9), new Position(105, 2)), service.counted.get(Metric.HEART_RATE));
+        assertEquals(new Position(105, Long.MAX_VALUE), service.marks.get(Metric.HEART_RATE));
+    }
+
+    @Test
+    void catchUpAtHorizonIntegratesNothing() {
+        FakeDbRollup service = new FakeDbRollup();
+        service.insert(Metric.SLEEP, 100, 1);
+        service.horizon = 101;
+        service.catchUp();
+        int integrations = service.integrations;
+
+        // Horizon inchangé: high-water marks déjà au bout, aucune tranche vide
+        service.catchUp();
+
+        assertEquals(integrations, service.integrations);
+        assertEquals(List.of(new Position(100, 1)), service.counted.get(Metric.SLEEP));
+    }
+
+    @Test
+    void failingMetricDoesNotStopTheOthersNorCountTwice() {
+        FakeDbRollup service = new FakeDbRollup();
+        service.insert(Metric.HEART_RATE, 100, 1);
+        service.insert(Metric.HEART_RATE, 100, 2);
+        service.insert(Metric.SLEEP, 100, 3);
+        service.horizon = 101;
+        service.missingColumn.add(Metric.HEART_RATE);
+
+        assertThrows(IllegalStateException.class, service::catchUp);
+        assertTrue(service.counted.get(Metric.HEART_RATE).isEmpty());
+        assertEquals(List.of(new Position(100, 3)), service.counted.get(Metric.SLEEP));
+
+        // Colonne ajoutée par la migration mais base en échec: le high-water mark reste en place
+        service.missingColumn.clear();
+        service.failingIntegrate.add(Metric.HEART_RATE);
+        assertThrows(IllegalStateException.class, service::catchUp);
+        assertNull(service.marks.get(Metric.HEART_RATE));
+
+        service.failingIntegrate.clear();
+        service.catchUp();
+        assertEquals(List.of(new Position(100, 1), new Position(100, 2)), service.counted.get(Metric.HEART_RATE));
+        assertEquals(List.of(new Position(100, 3)), service.counted.get(Metric.SLEEP));
+    }
+}
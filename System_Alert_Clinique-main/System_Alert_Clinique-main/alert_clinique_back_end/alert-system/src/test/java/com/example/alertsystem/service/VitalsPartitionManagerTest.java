@@ -0,0 +1,30 @@
+package com.example.alertsystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VitalsPartitionManagerTest {
+
+    @Test
+    void partitionNameRoundTripsThroughMonthOf() {
+        for (String table : VitalsPartitionManager.TABLES) {
+            for (YearMonth month : new YearMonth[] {YearMonth.of(2025, 1), YearMonth.of(2025, 12), YearMonth.of(2026, 7)}) {
+                String name = VitalsPartitionManager.partitionName(table, month);
+                assertTrue(name.startsWith(table + "_p"));
+                assertEquals(month, VitalsPartitionManager.monthOf(name));
+            }
+        }
+        assertEquals("rythme_cardiaque_p2026_03", VitalsPartitionManager.partitionName("rythme_cardiaque", YearMonth.of(2026, 3)));
+    }
+
+    @Test
+    void monthOfIgnoresDefaultAndUnknownPartitions() {
+        assertNull(VitalsPartitionManager.monthOf("rythme_cardiaque_default"));
+        assertNull(VitalsPartitionManager.monthOf("rythme_cardiaque_old"));
+        assertNull(VitalsPartitionManager.monthOf("humeur_p2026_03_old"));
+        assertNull(VitalsPartitionManager.monthOf("humeur_p26_03"));
+    }
+}
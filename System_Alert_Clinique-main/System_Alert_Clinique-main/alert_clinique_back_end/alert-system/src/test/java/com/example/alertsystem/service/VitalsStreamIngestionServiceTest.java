@@ -0,0 +1,135 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.VitalSample;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VitalsStreamIngestionServiceTest {
+
+    /** Base simulée: une mesure "POISON" fait échouer tout le lot, comme un etat trop long */
+    private static final class FakeDbIngestion extends VitalsStreamIngestionService {
+        final List<String> rows = Collections.synchronizedList(new ArrayList<>());
+        volatile int unavailableCalls;
+        volatile CountDownLatch blocked;
+
+        FakeDbIngestion(int batchSize) {
+            super(null, new PatientFeatureWindow(true, 100), null,
+                new ThresholdRuleEngine(null, null, null, null, null, false, 1, 1),
+                null, JsonMapper.builder().build(), 1000, batchSize, 100, 1, 10, 5000);
+        }
+
+        @Override
+        List<VitalSample> writeBatch(List<VitalSample> batch) {
+            CountDownLatch latch = blocked;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (unavailableCalls > 0) {
+                unavailableCalls--;
+                throw new DataAccessResourceFailureException("connexion refusée");
+            }
+            for (VitalSample sample : batch) {
+                if ("POISON".equals(sample.getEtat())) {
+                    throw new IllegalStateException("value too long for type character varying(255)");
+                }
+            }
+            for (VitalSample sample : batch) {
+                rows.add(sample.getEtat());
+            }
+            return batch;
+        }
+    }
+
+    private FakeDbIngestion service;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (service != null) {
+            CountDownLatch latch = service.blocked;
+            if (latch != null) {
+                latch.countDown();
+            }
+            service.shutdown();
+        }
+    }
+
+    private static ByteArrayInputStream moods(String... etats) {
+        StringBuilder body = new StringBuilder();
+        for (String etat : etats) {
+            body.append("{\"type\":\"mood\",\"patient_id\":1,\"etat\":\"").append(etat).append("\"}\n");
+        }
+        return new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "délai dépassé");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void unavailableDatabaseKeepsTheBatchAndRetries() throws Exception {
+        service = new FakeDbIngestion(10);
+        service.unavailableCalls = 3;
+        service.startWriters();
+
+        assertEquals(3, service.ingest(moods("content", "calme", "fatigué")).accepted());
+
+        await(() -> service.rows.size() == 3);
+        assertEquals(List.of("content", "calme", "fatigué"), service.rows);
+        assertEquals(3L, service.getStats().get("retries"));
+        assertEquals(0L, service.getStats().get("failed"));
+    }
+
+    @Test
+    void rejectedBatchIsRewrittenOneByOne() throws Exception {
+        service = new FakeDbIngestion(10);
+        service.blocked = new CountDownLatch(1);
+        service.startWriters();
+
+        // Lot formé pendant que le writer est bloqué: les trois mesures partent ensemble
+        service.ingest(moods("content"));
+        service.ingest(moods("calme", "POISON", "fatigué"));
+        service.blocked.countDown();
+
+        await(() -> service.rows.size() == 3);
+        assertEquals(List.of("content", "calme", "fatigué"), service.rows);
+        assertEquals(1L, service.getStats().get("failed"));
+        assertEquals(3L, service.getStats().get("written"));
+    }
+
+    @Test
+    void shutdownDrainsTheQueue() throws Exception {
+        service = new FakeDbIngestion(2);
+        service.blocked = new CountDownLatch(1);
+        service.startWriters();
+        service.ingest(moods("a", "b", "c", "d", "e"));
+
+        service.blocked.countDown();
+        service.shutdown();
+
+        assertEquals(List.of("a", "b", "c", "d", "e"), service.rows);
+        assertEquals(0, service.getStats().get("queued"));
+        // Arrêté: plus aucune mesure acceptée
+        assertTrue(service.ingest(moods("f")).throttled());
+    }
+}
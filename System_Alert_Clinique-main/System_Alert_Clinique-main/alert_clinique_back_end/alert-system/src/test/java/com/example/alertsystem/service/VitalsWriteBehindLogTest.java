@@ -0,0 +1,151 @@
+package com.example.alertsystem.service;
+
+import com.example.alertsystem.dto.VitalSample;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VitalsWriteBehindLogTest {
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    @TempDir
+    Path dir;
+
+    /** Base simulée: une mesure "POISON" fait échouer tout le lot, comme un etat trop long */
+    private static final class FakeDbLog extends VitalsWriteBehindLog {
+        final List<VitalSample> rows = Collections.synchronizedList(new ArrayList<>());
+        volatile int unavailableCalls;
+
+        FakeDbLog(Path dir) {
+            super(null, new PatientFeatureWindow(true, 100),
+                new ThresholdRuleEngine(null, null, null, null, null, false, 1, 1),
+                null, MAPPER, true, dir.toString(), 1000, 10, true);
+        }
+
+        @Override
+        List<VitalSample> writeBatch(List<VitalSample> batch) {
+            if (unavailableCalls > 0) {
+                unavailableCalls--;
+                throw new DataAccessResourceFailureException("connexion refusée");
+            }
+            for (VitalSample sample : batch) {
+                if ("POISON".equals(sample.getEtat())) {
+                    throw new IllegalStateException("value too long for type character varying(255)");
+                }
+            }
+            rows.addAll(batch);
+            return batch;
+        }
+
+        List<String> etats() {
+            synchronized (rows) {
+                return rows.stream().map(VitalSample::getEtat).toList();
+            }
+        }
+    }
+
+    private static VitalSample mood(String etat) {
+        VitalSample sample = new VitalSample();
+        sample.setType("mood");
+        sample.setPatient_id(1L);
+        sample.setEtat(etat);
+        sample.setTimestamp(OffsetDateTime.parse("2026-01-15T08:00:00Z"));
+        return sample;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "délai dépassé");
+            Thread.sleep(10);
+        }
+    }
+
+    private long segmentCount() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("wal-")).count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void replaysLeftoverSegmentAndSkipsTornTail() throws Exception {
+        Path leftover = dir.resolve("wal-3.log");
+        String content = MAPPER.writeValueAsString(mood("content")) + "\n"
+            + MAPPER.writeValueAsString(mood("fatigué")) + "\n"
+            + "{\"type\":\"mood\",\"patient_id\":1,\"et";
+        Files.writeString(leftover, content, StandardCharsets.UTF_8);
+
+        FakeDbLog log = new FakeDbLog(dir);
+        log.start();
+        try {
+            await(() -> log.rows.size() == 2);
+            assertEquals(List.of("content", "fatigué"), log.etats());
+            assertEquals(2L, log.getStats().get("replayed"));
+            assertEquals(1L, log.getStats().get("corrupt"));
+            await(() -> !Files.exists(leftover));
+            // Le nouveau segment suit le numéro du segment rejoué
+            assertTrue(Files.exists(dir.resolve("wal-4.log")));
+        } finally {
+            log.shutdown();
+        }
+    }
+
+    @Test
+    void poisonEntryIsQuarantinedWithoutBlockingTheLog() throws Exception {
+        FakeDbLog log = new FakeDbLog(dir);
+        log.start();
+        try {
+            assertTrue(log.append(mood("content")));
+            assertTrue(log.append(mood("POISON")));
+            assertTrue(log.append(mood("calme")));
+
+            // Compteur incrémenté une fois la ligne écrite dans le fichier de quarantaine
+            await(() -> Long.valueOf(1L).equals(log.getStats().get("quarantined")));
+            await(() -> log.rows.size() == 2);
+            assertEquals(List.of("content", "calme"), log.etats());
+            assertTrue(Files.readString(dir.resolve(VitalsWriteBehindLog.QUARANTINE)).contains("POISON"));
+
+            // Le journal continue: mesure suivante écrite, anciens segments supprimés
+            assertTrue(log.append(mood("joyeux")));
+            await(() -> log.rows.size() == 3);
+            await(() -> segmentCount() == 1);
+        } finally {
+            log.shutdown();
+        }
+    }
+
+    @Test
+    void unavailableDatabaseKeepsEntriesForRetry() throws Exception {
+        FakeDbLog log = new FakeDbLog(dir);
+        log.unavailableCalls = 3;
+        log.start();
+        try {
+            assertTrue(log.append(mood("content")));
+            assertTrue(log.append(mood("calme")));
+
+            await(() -> log.rows.size() == 2);
+            assertEquals(0L, log.getStats().get("quarantined"));
+            assertTrue((Long) log.getStats().get("failedCommits") >= 3);
+        } finally {
+            log.shutdown();
+        }
+    }
+}
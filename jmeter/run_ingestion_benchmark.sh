@@ -0,0 +1,55 @@
+#!/bin/bash
+# Benchmark d'ingestion des rythmes cardiaques: une mesure par requête vs POST /api/rythmes/batch
+# Usage: ./run_ingestion_benchmark.sh [threads] [nombre_mesures] [taille_lot] [patient_id]
+# Le patient doit exister (les mesures d'un patient inconnu sont rejetées par /batch).
+
+THREADS=${1:-8}
+SAMPLES=${2:-20000}
+BATCH_SIZE=${3:-1000}
+PATIENT_ID=${4:-1}
+
+if ! command -v jmeter &> /dev/null; then
+    echo "ERREUR: JMeter n'est pas dans le PATH"
+    exit 1
+fi
+
+mkdir -p results
+TIMESTAMP=$(date +%Y%m%d_%H%M%S)
+RESULTS_FILE="results/ingestion_${TIMESTAMP}.jtl"
+
+echo "========================================"
+echo "Benchmark ingestion rythmes cardiaques"
+echo "Threads: $THREADS | Mesures: $SAMPLES | Lot: $BATCH_SIZE | Patient: $PATIENT_ID"
+echo "========================================"
+
+jmeter -n \
+    -t plan_ingestion_rythmes.jmx \
+    -JTHREADS="$THREADS" \
+    -JSAMPLES="$SAMPLES" \
+    -JBATCH_SIZE="$BATCH_SIZE" \
+    -JPATIENT_ID="$PATIENT_ID" \
+    -Jjmeter.save.saveservice.output_format=csv \
+    -l "$RESULTS_FILE" || exit 1
+
+# Mesures/s = mesures envoyées avec succès / durée du groupe (premier envoi -> dernière réponse)
+awk -F',' -v batch="$BATCH_SIZE" '
+NR == 1 { for (i = 1; i <= NF; i++) col[$i] = i; next }
+{
+    label = $col["label"]; start = $col["timeStamp"]; end = start + $col["elapsed"]
+    if (!(label in first) || start < first[label]) first[label] = start
+    if (end > last[label]) last[label] = end
+    requests[label]++
+    if ($col["success"] == "true") ok[label]++
+}
+END {
+    printf "\n%-8s %10s %10s %12s %14s\n", "label", "requêtes", "erreurs", "durée (s)", "mesures/s"
+    for (label in requests) {
+        perRequest = (label == "batch") ? batch : 1
+        seconds = (last[label] - first[label]) / 1000.0
+        rate = seconds > 0 ? ok[label] * perRequest / seconds : 0
+        printf "%-8s %10d %10d %12.1f %14.0f\n", label, requests[label], requests[label] - ok[label], seconds, rate
+    }
+}' "$RESULTS_FILE"
+
+echo ""
+echo "Résultats bruts: $RESULTS_FILE"